@@ -0,0 +1,69 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares GradeCodec with Genson for grades as they are stored in the world state.
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GradeCodecBenchmark {
+
+    private final Genson genson = new Genson();
+
+    private final Grade grade = new Grade("Filip Piwowarczyk0", 4.5, List.of("Adam Mickiewicz", "Ola Piwowarczyk"), "Math",
+            "Adam Mickiewicz", "Filip Piwowarczyk");
+
+    private final String json = genson.serialize(grade);
+
+    /**
+     * Serializes a grade with Genson.
+     *
+     * @return serialized grade
+     */
+    @Benchmark
+    public String encodeGenson() {
+        return genson.serialize(grade);
+    }
+
+    /**
+     * Serializes a grade with GradeCodec.
+     *
+     * @return serialized grade
+     */
+    @Benchmark
+    public String encodeCodec() {
+        return GradeCodec.encode(grade);
+    }
+
+    /**
+     * Deserializes a grade with Genson.
+     *
+     * @return deserialized grade
+     */
+    @Benchmark
+    public Grade decodeGenson() {
+        return genson.deserialize(json, Grade.class);
+    }
+
+    /**
+     * Deserializes a grade with GradeCodec.
+     *
+     * @return deserialized grade
+     */
+    @Benchmark
+    public Grade decodeCodec() {
+        return GradeCodec.decode(json);
+    }
+}
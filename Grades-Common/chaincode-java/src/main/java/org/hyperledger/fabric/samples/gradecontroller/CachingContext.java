@@ -0,0 +1,87 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.contract.ClientIdentity;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+
+/**
+ * Transaction context shared by both contracts, keeps state cache for the
+ * whole transaction so contract, store and validators share reads, and
+ * author read once from certificate that signed transaction.
+ */
+public class CachingContext extends Context {
+
+    static final String ENROLLMENT_ID_ATTRIBUTE = "hf.EnrollmentID";
+
+    private final StateCache state;
+    private String author;
+
+    public CachingContext(final ChaincodeStub stub) {
+        super(stub);
+        this.state = new StateCache(stub);
+    }
+
+    /**
+     * @return State cache of this transaction
+     */
+    public StateCache getState() {
+        return state;
+    }
+
+    /**
+     * @return Name of author read from certificate that signed transaction
+     */
+    public String getAuthor() {
+        if (author == null) {
+            author = authorOf(getClientIdentity());
+        }
+        return author;
+    }
+
+    /**
+     * @param ctx Context of app
+     * @return State cache of transaction, uncached view if context was not created by contract
+     */
+    static StateCache state(final Context ctx) {
+        if (ctx instanceof CachingContext) {
+            return ((CachingContext) ctx).getState();
+        }
+        return new StateCache(ctx.getStub());
+    }
+
+    /**
+     * @param ctx Context of app
+     * @return Name of author read from certificate that signed transaction
+     */
+    static String author(final Context ctx) {
+        if (ctx instanceof CachingContext) {
+            return ((CachingContext) ctx).getAuthor();
+        }
+        return authorOf(ctx.getClientIdentity());
+    }
+
+    /**
+     * Users are registered in CA under their names, so enrollment id is the
+     * author. Certificates issued without it fall back to common name.
+     */
+    static String authorOf(final ClientIdentity identity) {
+        String enrollmentId = identity.getAttributeValue(ENROLLMENT_ID_ATTRIBUTE);
+        if (enrollmentId != null) {
+            return enrollmentId;
+        }
+        try {
+            for (Rdn rdn : new LdapName(identity.getX509Certificate().getSubjectX500Principal().getName()).getRdns()) {
+                if ("CN".equalsIgnoreCase(rdn.getType())) {
+                    return rdn.getValue().toString();
+                }
+            }
+        } catch (InvalidNameException e) {
+            throw new IllegalArgumentException("Cannot read subject of author certificate", e);
+        }
+        return identity.getId();
+    }
+}
@@ -0,0 +1,168 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary codec for grades kept in world state. Value starts with version
+ * byte followed by fields in fixed order: gradeId, grade, visitors,
+ * subject, teacher and student. Strings are UTF-8 prefixed with varint
+ * length + 1, grade is varint of hundredths + 1 and list is varint of
+ * size + 1, so 0 always stands for null.
+ *
+ * JSON values start with '{' or whitespace, which never collides with
+ * version byte, so both formats can be told apart by their first byte.
+ */
+public final class CompactGradeCodec {
+
+    static final byte VERSION = 1;
+
+    private static final int EXPECTED_LENGTH = 96;
+
+    private CompactGradeCodec() {
+
+    }
+
+    /**
+     * Grades whose value is not whole number of hundredths cannot be
+     * written as fixed-point number and are written as JSON instead.
+     *
+     * @param grade Grade to write
+     * @return Binary value of grade
+     */
+    public static byte[] encode(final Grade grade) {
+        if (!isFixedPoint(grade.getGrade())) {
+            return GradeCodec.encode(grade).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(EXPECTED_LENGTH);
+        out.write(VERSION);
+        writeString(out, grade.getGradeId());
+        writeVarint(out, grade.getGrade() == null ? 0 : (int) Math.round(grade.getGrade() * 100) + 1);
+        if (grade.getVisitors() == null) {
+            writeVarint(out, 0);
+        } else {
+            writeVarint(out, grade.getVisitors().size() + 1);
+            for (String visitor : grade.getVisitors()) {
+                writeString(out, visitor);
+            }
+        }
+        writeString(out, grade.getSubject());
+        writeString(out, grade.getTeacher());
+        writeString(out, grade.getStudent());
+        return out.toByteArray();
+    }
+
+    /**
+     * @param value Binary value of grade
+     * @return Grade read from value
+     * @throws IllegalArgumentException when value is not grade written by this codec
+     */
+    public static Grade decode(final byte[] value) {
+        if (!isCompact(value)) {
+            throw new IllegalArgumentException("Unknown grade format");
+        }
+        Reader reader = new Reader(value);
+        String gradeId = reader.readString();
+        int hundredths = reader.readVarint();
+        Double grade = hundredths == 0 ? null : (hundredths - 1) / 100.0;
+        List<String> visitors = null;
+        int size = reader.readVarint();
+        if (size > 0) {
+            visitors = new ArrayList<>(size - 1);
+            for (int i = 1; i < size; i++) {
+                visitors.add(reader.readString());
+            }
+        }
+        String subject = reader.readString();
+        String teacher = reader.readString();
+        String student = reader.readString();
+        if (reader.pos != value.length) {
+            throw reader.error();
+        }
+        return new Grade(gradeId, grade, visitors, subject, teacher, student);
+    }
+
+    /**
+     * @param value Value of grade
+     * @return True if value was written by this codec
+     */
+    public static boolean isCompact(final byte[] value) {
+        return value.length > 0 && value[0] == VERSION;
+    }
+
+    private static boolean isFixedPoint(final Double grade) {
+        if (grade == null) {
+            return true;
+        }
+        double hundredths = grade * 100;
+        return hundredths >= 0 && hundredths < Integer.MAX_VALUE - 1
+                && Math.round(hundredths) / 100.0 == grade;
+    }
+
+    private static void writeString(final ByteArrayOutputStream out, final String value) {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            out.write((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+
+    private static final class Reader {
+
+        private final byte[] value;
+        private int pos = 1;
+
+        Reader(final byte[] value) {
+            this.value = value;
+        }
+
+        String readString() {
+            int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length > value.length - pos) {
+                throw error();
+            }
+            String string = new String(value, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return string;
+        }
+
+        int readVarint() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (pos == value.length) {
+                    throw error();
+                }
+                byte b = value[pos++];
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (result < 0) {
+                        throw error();
+                    }
+                    return result;
+                }
+            }
+            throw error();
+        }
+
+        IllegalArgumentException error() {
+            return new IllegalArgumentException(String.format("Malformed grade at %d", pos));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.contract.Context;
+
+import java.util.List;
+
+/**
+ * Decides how accesses to grades are kept for consent audit. Contract
+ * checks permissions first and calls strategy only for accesses that are
+ * allowed, strategy may write to world state of the transaction.
+ */
+public interface ConsentStrategy {
+
+    /**
+     * @param ctx    Context of app
+     * @param author Author of grade
+     * @param grade  Grade about to be written
+     * @return Grade to write instead
+     */
+    Grade recordCreation(Context ctx, String author, Grade grade);
+
+    /**
+     * @param ctx       Context of app
+     * @param author    Author of query
+     * @param operation Operation performed on grade
+     * @param grade     Grade read from world state
+     * @return Grade as kept in world state after access is recorded
+     */
+    Grade recordAccess(Context ctx, String author, String operation, Grade grade);
+
+    /**
+     * @param ctx       Context of app
+     * @param author    Author of query
+     * @param operation Operation performed on grades
+     * @param grades    Grades that were accessed
+     */
+    void recordAccess(Context ctx, String author, String operation, List<Grade> grades);
+
+    /**
+     * Query over grades of many students. Range scans pass bounds of the
+     * range, empty bound stands for open end. Queries reading chosen
+     * grades pass null bounds.
+     *
+     * @param ctx       Context of app
+     * @param author    Author of query
+     * @param operation Operation performed on grades
+     * @param startKey  First key of scanned range
+     * @param endKey    Key after scanned range
+     * @param grades    Grades that were read
+     */
+    void recordScan(Context ctx, String author, String operation, String startKey, String endKey, List<Grade> grades);
+}
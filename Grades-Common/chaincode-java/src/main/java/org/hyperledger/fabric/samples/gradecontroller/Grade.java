@@ -8,6 +8,12 @@ import org.hyperledger.fabric.contract.annotation.Property;
 import java.util.List;
 import java.util.Objects;
 
+/**
+ * Visitors list is kept by VISITORS consent strategy, which appends author
+ * to it on every access. With RECORDS strategy accesses are kept as
+ * VisitorStats instead, visitors of grades written before are moved there
+ * the first time such grade is read with ReadGrade, updated or deleted.
+ */
 @DataType()
 public final class Grade {
 
@@ -85,7 +91,7 @@ public final class Grade {
                         new Double[]{that.getGrade()}
                 )
                 &&
-                visitors.equals(that.visitors);
+                Objects.equals(visitors, that.visitors);
     }
 
 
@@ -0,0 +1,152 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.contract.ContractRouter;
+import org.hyperledger.fabric.shim.ChaincodeServer;
+import org.hyperledger.fabric.shim.ChaincodeServerProperties;
+import org.hyperledger.fabric.shim.NettyChaincodeServer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Runs grades contract as chaincode-as-a-service. Peer connects to this
+ * process instead of building and starting chaincode container, so
+ * chaincode can be restarted as plain JVM process.
+ *
+ * Configured with environment variables:
+ * CHAINCODE_ID - package ID returned by peer lifecycle chaincode install,
+ * CHAINCODE_SERVER_ADDRESS - host:port to listen on, 0.0.0.0:9999 by default,
+ * CHAINCODE_TLS_DISABLED - true by default,
+ * CHAINCODE_TLS_KEY, CHAINCODE_TLS_CERT - key and certificate of server when TLS is enabled,
+ * CHAINCODE_CLIENT_CA_CERT - CA of peers, enables client authentication.
+ */
+public final class GradeChaincodeServer {
+
+    static final String DEFAULT_ADDRESS = "0.0.0.0:9999";
+
+    private static final long STARTUP_TIMEOUT_MILLIS = 60_000;
+    private static final long POLL_INTERVAL_MILLIS = 10;
+
+    private static final Logger LOGGER = Logger.getLogger(GradeChaincodeServer.class.getName());
+
+    private GradeChaincodeServer() {
+
+    }
+
+    /**
+     * @param args Not used, server is configured with environment
+     * @throws Exception when server cannot be started
+     */
+    public static void main(final String[] args) throws Exception {
+        Map<String, String> env = System.getenv();
+        ChaincodeServerProperties properties = properties(env);
+        InetSocketAddress address = (InetSocketAddress) properties.getServerAddress();
+
+        ContractRouter contractRouter = new ContractRouter(new String[]{"-i", chaincodeId(env)});
+        ChaincodeServer chaincodeServer = new NettyChaincodeServer(contractRouter, properties);
+        LOGGER.info(String.format("Contract router ready %d ms after JVM start", sinceJvmStart()));
+
+        Thread startupTimer = new Thread(() -> {
+            if (waitUntilListening(address, STARTUP_TIMEOUT_MILLIS)) {
+                LOGGER.info(String.format("Chaincode server listening on %s %d ms after JVM start", address, sinceJvmStart()));
+            } else {
+                LOGGER.warning(String.format("Chaincode server not listening on %s after %d ms", address, STARTUP_TIMEOUT_MILLIS));
+            }
+        }, "startup-timer");
+        startupTimer.setDaemon(true);
+        startupTimer.start();
+
+        contractRouter.startRouterWithChaincodeServer(chaincodeServer);
+    }
+
+    /**
+     * @param env Environment of process
+     * @return Package ID of chaincode
+     * @throws IllegalArgumentException when package ID is not set
+     */
+    static String chaincodeId(final Map<String, String> env) {
+        String chaincodeId = env.get("CHAINCODE_ID");
+        if (chaincodeId == null || chaincodeId.isEmpty()) {
+            throw new IllegalArgumentException("CHAINCODE_ID must be set to package ID of chaincode");
+        }
+        return chaincodeId;
+    }
+
+    /**
+     * @param env Environment of process
+     * @return Properties of chaincode server
+     * @throws IllegalArgumentException when address is malformed or TLS files are missing
+     */
+    static ChaincodeServerProperties properties(final Map<String, String> env) {
+        ChaincodeServerProperties properties = new ChaincodeServerProperties();
+        properties.setServerAddress(address(env.getOrDefault("CHAINCODE_SERVER_ADDRESS", DEFAULT_ADDRESS)));
+
+        boolean tlsEnabled = !Boolean.parseBoolean(env.getOrDefault("CHAINCODE_TLS_DISABLED", "true"));
+        properties.setTlsEnabled(tlsEnabled);
+        if (tlsEnabled) {
+            String key = env.get("CHAINCODE_TLS_KEY");
+            String cert = env.get("CHAINCODE_TLS_CERT");
+            if (key == null || cert == null) {
+                throw new IllegalArgumentException("CHAINCODE_TLS_KEY and CHAINCODE_TLS_CERT must be set when TLS is enabled");
+            }
+            properties.setKeyFile(key);
+            properties.setKeyCertChainFile(cert);
+            properties.setTrustCertCollectionFile(env.get("CHAINCODE_CLIENT_CA_CERT"));
+        }
+        return properties;
+    }
+
+    /**
+     * @param address Address as host:port
+     * @return Socket address
+     * @throws IllegalArgumentException when address is malformed
+     */
+    static InetSocketAddress address(final String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException(String.format("Bad chaincode server address %s", address));
+        }
+        try {
+            return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Bad chaincode server address %s", address), e);
+        }
+    }
+
+    /**
+     * Server started by shim blocks until shutdown, so readiness is detected
+     * by connecting to its port.
+     *
+     * @param address       Address server listens on, wildcard address is probed on loopback
+     * @param timeoutMillis Maximal time to wait
+     * @return True if server accepted connection before timeout
+     */
+    static boolean waitUntilListening(final InetSocketAddress address, final long timeoutMillis) {
+        InetSocketAddress target = address.getAddress() != null && address.getAddress().isAnyLocalAddress()
+                ? new InetSocketAddress("127.0.0.1", address.getPort())
+                : address;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(target, (int) POLL_INTERVAL_MILLIS);
+                return true;
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(POLL_INTERVAL_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long sinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,445 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import com.owlike.genson.GensonBuilder;
+import com.owlike.genson.stream.ObjectWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reflection-free JSON codec for grades kept in world state. Output is the
+ * same as output of default Genson for Grade: properties in alphabetical
+ * order, no whitespace and null properties written as null, except for
+ * visitors, which are left out when there are none, so grades of
+ * No-Consent contract keep format they had before visitors existed.
+ * Values written by either of them can be read by the other. Reading
+ * accepts any JSON object and ignores unknown properties.
+ */
+public final class GradeCodec {
+
+    private static final int EXPECTED_LENGTH = 160;
+
+    private GradeCodec() {
+
+    }
+
+    /**
+     * @param grade Grade to write
+     * @return JSON of grade
+     */
+    public static String encode(final Grade grade) {
+        StringBuilder out = new StringBuilder(EXPECTED_LENGTH);
+        write(out, grade);
+        return out.toString();
+    }
+
+    /**
+     * @param grades Grades to write
+     * @return JSON array of grades
+     */
+    public static String encodeAll(final List<Grade> grades) {
+        StringBuilder out = new StringBuilder(EXPECTED_LENGTH * grades.size() + 2);
+        out.append('[');
+        for (int i = 0; i < grades.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            write(out, grades.get(i));
+        }
+        return out.append(']').toString();
+    }
+
+    /**
+     * @return Genson writing grades inside other values the same way as encode
+     */
+    public static Genson genson() {
+        return new GensonBuilder()
+                .withSerializer((grade, writer, ctx) -> write(writer, grade), Grade.class)
+                .create();
+    }
+
+    /**
+     * @param json JSON of grade
+     * @return Grade read from JSON
+     * @throws IllegalArgumentException when JSON is not an object
+     */
+    public static Grade decode(final String json) {
+        Parser parser = new Parser(json);
+        Grade grade = parser.readGrade();
+        parser.skipWhitespace();
+        if (parser.pos != json.length()) {
+            throw parser.error();
+        }
+        return grade;
+    }
+
+    /**
+     * @param value Value of grade in world state, JSON or binary
+     * @return Grade read from value
+     * @throws IllegalArgumentException when value is neither JSON object nor binary grade
+     */
+    public static Grade decode(final byte[] value) {
+        if (CompactGradeCodec.isCompact(value)) {
+            return CompactGradeCodec.decode(value);
+        }
+        return decode(new String(value, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param value Value of grade in world state, JSON or binary
+     * @return JSON of grade
+     */
+    public static String toJson(final byte[] value) {
+        if (CompactGradeCodec.isCompact(value)) {
+            return encode(CompactGradeCodec.decode(value));
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static void write(final StringBuilder out, final Grade grade) {
+        out.append("{\"grade\":");
+        if (grade.getGrade() == null) {
+            out.append("null");
+        } else {
+            out.append(grade.getGrade().doubleValue());
+        }
+        writeString(out, ",\"gradeId\":", grade.getGradeId());
+        writeString(out, ",\"student\":", grade.getStudent());
+        writeString(out, ",\"subject\":", grade.getSubject());
+        writeString(out, ",\"teacher\":", grade.getTeacher());
+        if (grade.getVisitors() != null) {
+            out.append(",\"visitors\":[");
+            for (int i = 0; i < grade.getVisitors().size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                writeNullableString(out, grade.getVisitors().get(i));
+            }
+            out.append(']');
+        }
+        out.append('}');
+    }
+
+    private static void write(final ObjectWriter writer, final Grade grade) {
+        writer.beginObject().writeName("grade");
+        if (grade.getGrade() == null) {
+            writer.writeNull();
+        } else {
+            writer.writeValue(grade.getGrade().doubleValue());
+        }
+        writeString(writer, "gradeId", grade.getGradeId());
+        writeString(writer, "student", grade.getStudent());
+        writeString(writer, "subject", grade.getSubject());
+        writeString(writer, "teacher", grade.getTeacher());
+        if (grade.getVisitors() != null) {
+            writer.writeName("visitors").beginArray();
+            for (String visitor : grade.getVisitors()) {
+                writeNullableString(writer, visitor);
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    private static void writeString(final ObjectWriter writer, final String name, final String value) {
+        writer.writeName(name);
+        writeNullableString(writer, value);
+    }
+
+    private static void writeNullableString(final ObjectWriter writer, final String value) {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeValue(value);
+        }
+    }
+
+    private static void writeString(final StringBuilder out, final String name, final String value) {
+        out.append(name);
+        writeNullableString(out, value);
+    }
+
+    private static void writeNullableString(final StringBuilder out, final String value) {
+        if (value == null) {
+            out.append("null");
+        } else {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(final StringBuilder out, final String value) {
+        out.append('"');
+        int last = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement = escape(value.charAt(i));
+            if (replacement != null) {
+                out.append(value, last, i).append(replacement);
+                last = i + 1;
+            }
+        }
+        out.append(value, last, value.length()).append('"');
+    }
+
+    // Same escapes as Genson JsonWriter
+    private static String escape(final char c) {
+        switch (c) {
+            case '"':
+                return "\\\"";
+            case '\\':
+                return "\\\\";
+            case '\t':
+                return "\\t";
+            case '\b':
+                return "\\b";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\f':
+                return "\\f";
+            case '\u2028':
+                return "\\u2028";
+            case '\u2029':
+                return "\\u2029";
+            default:
+                return c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+        }
+    }
+
+    private static final class Parser {
+
+        private final String json;
+        private int pos;
+
+        Parser(final String json) {
+            this.json = json;
+        }
+
+        Grade readGrade() {
+            String gradeId = null;
+            Double grade = null;
+            List<String> visitors = null;
+            String subject = null;
+            String teacher = null;
+            String student = null;
+
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                do {
+                    skipWhitespace();
+                    String name = readString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    switch (name) {
+                        case "gradeId":
+                            gradeId = readNullableString();
+                            break;
+                        case "grade":
+                            grade = readNullableNumber();
+                            break;
+                        case "visitors":
+                            visitors = readNullableStringList();
+                            break;
+                        case "subject":
+                            subject = readNullableString();
+                            break;
+                        case "teacher":
+                            teacher = readNullableString();
+                            break;
+                        case "student":
+                            student = readNullableString();
+                            break;
+                        default:
+                            skipValue();
+                    }
+                    skipWhitespace();
+                } while (next() == ',');
+                if (json.charAt(pos - 1) != '}') {
+                    throw error();
+                }
+            }
+            return new Grade(gradeId, grade, visitors, subject, teacher, student);
+        }
+
+        private List<String> readNullableStringList() {
+            if (readNull()) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            expect('[');
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return values;
+            }
+            do {
+                skipWhitespace();
+                values.add(readNullableString());
+                skipWhitespace();
+            } while (next() == ',');
+            if (json.charAt(pos - 1) != ']') {
+                throw error();
+            }
+            return values;
+        }
+
+        private String readNullableString() {
+            return readNull() ? null : readString();
+        }
+
+        private Double readNullableNumber() {
+            return readNull() ? null : readNumber();
+        }
+
+        private boolean readNull() {
+            if (json.startsWith("null", pos)) {
+                pos += 4;
+                return true;
+            }
+            return false;
+        }
+
+        private String readString() {
+            expect('"');
+            int start = pos;
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return json.substring(start, pos - 1);
+                }
+                if (c == '\\') {
+                    pos--;
+                    return readEscapedString(start);
+                }
+            }
+        }
+
+        private String readEscapedString(final int start) {
+            StringBuilder value = new StringBuilder(json.length() - start).append(json, start, pos);
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'u':
+                        if (pos + 4 > json.length()) {
+                            throw error();
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error();
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                }
+            }
+        }
+
+        private Double readNumber() {
+            int start = pos;
+            while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+                pos++;
+            }
+            try {
+                return Double.valueOf(json.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error();
+            }
+        }
+
+        private void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{' || c == '[') {
+                char end = c == '{' ? '}' : ']';
+                pos++;
+                skipWhitespace();
+                if (peek() == end) {
+                    pos++;
+                    return;
+                }
+                do {
+                    skipWhitespace();
+                    if (end == '}') {
+                        readString();
+                        skipWhitespace();
+                        expect(':');
+                        skipWhitespace();
+                    }
+                    skipValue();
+                    skipWhitespace();
+                } while (next() == ',');
+                if (json.charAt(pos - 1) != end) {
+                    throw error();
+                }
+            } else if (json.startsWith("true", pos)) {
+                pos += 4;
+            } else if (json.startsWith("false", pos)) {
+                pos += 5;
+            } else if (!readNull()) {
+                readNumber();
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private void expect(final char c) {
+            if (next() != c) {
+                throw error();
+            }
+        }
+
+        private char peek() {
+            if (pos >= json.length()) {
+                throw error();
+            }
+            return json.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException(String.format("Malformed grade at %d: %s", pos, json));
+        }
+    }
+}
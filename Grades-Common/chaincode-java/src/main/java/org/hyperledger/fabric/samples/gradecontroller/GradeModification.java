@@ -0,0 +1,84 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.Objects;
+
+/**
+ * One write of grade key found in ledger history. Grade is null when the
+ * write deleted the grade.
+ */
+@DataType()
+public final class GradeModification {
+
+    @Property()
+    private final String txId;
+
+    @Property()
+    private final Long timestamp;
+
+    @Property()
+    private final Boolean isDelete;
+
+    @Property()
+    private final Grade grade;
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public Boolean getIsDelete() {
+        return isDelete;
+    }
+
+    public Grade getGrade() {
+        return grade;
+    }
+
+    public GradeModification(@JsonProperty("txId") final String txId, @JsonProperty("timestamp") final Long timestamp,
+                             @JsonProperty("isDelete") final Boolean isDelete, @JsonProperty("grade") final Grade grade) {
+        this.txId = txId;
+        this.timestamp = timestamp;
+        this.isDelete = isDelete;
+        this.grade = grade;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        GradeModification that = (GradeModification) obj;
+
+        return Objects.equals(getTxId(), that.getTxId())
+                && Objects.equals(getTimestamp(), that.getTimestamp())
+                && Objects.equals(getIsDelete(), that.getIsDelete())
+                && Objects.equals(getGrade(), that.getGrade());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getTxId(), getTimestamp(), getIsDelete(), getGrade());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[txId = " + txId
+                + ", timestamp = " + timestamp
+                + ", isDelete = " + isDelete
+                + ", grade = " + grade + "]";
+    }
+}
@@ -0,0 +1,75 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One page of grades with bookmark to pass when asking for the next page.
+ */
+@DataType()
+public final class GradePage {
+
+    @Property()
+    private final List<Grade> records;
+
+    @Property()
+    private final Integer fetchedRecordsCount;
+
+    @Property()
+    private final String bookmark;
+
+    public List<Grade> getRecords() {
+        return records;
+    }
+
+    public Integer getFetchedRecordsCount() {
+        return fetchedRecordsCount;
+    }
+
+    public String getBookmark() {
+        return bookmark;
+    }
+
+    public GradePage(@JsonProperty("records") final List<Grade> records,
+                     @JsonProperty("fetchedRecordsCount") final Integer fetchedRecordsCount,
+                     @JsonProperty("bookmark") final String bookmark) {
+        this.records = records;
+        this.fetchedRecordsCount = fetchedRecordsCount;
+        this.bookmark = bookmark;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        GradePage that = (GradePage) obj;
+
+        return Objects.equals(getRecords(), that.getRecords())
+                && Objects.equals(getFetchedRecordsCount(), that.getFetchedRecordsCount())
+                && Objects.equals(getBookmark(), that.getBookmark());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getRecords(), getFetchedRecordsCount(), getBookmark());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[records = " + records
+                + ", fetchedRecordsCount = " + fetchedRecordsCount
+                + ", bookmark = " + bookmark + "]";
+    }
+}
@@ -0,0 +1,102 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.Objects;
+
+/**
+ * Outcome of one item of batch transaction. Holds either written grade or
+ * error code and message of the item that was rejected.
+ */
+@DataType()
+public final class GradeResult {
+
+    @Property()
+    private final String gradeId;
+
+    @Property()
+    private final Grade grade;
+
+    @Property()
+    private final String error;
+
+    @Property()
+    private final String message;
+
+    public String getGradeId() {
+        return gradeId;
+    }
+
+    public Grade getGrade() {
+        return grade;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public GradeResult(@JsonProperty("gradeId") final String gradeId, @JsonProperty("grade") final Grade grade,
+                       @JsonProperty("error") final String error, @JsonProperty("message") final String message) {
+        this.gradeId = gradeId;
+        this.grade = grade;
+        this.error = error;
+        this.message = message;
+    }
+
+    /**
+     * @param grade Written grade
+     * @return Result of item that succeeded
+     */
+    public static GradeResult success(final Grade grade) {
+        return new GradeResult(grade.getGradeId(), grade, null, null);
+    }
+
+    /**
+     * @param gradeId Id of grade, null for grade that was not added
+     * @param error   Error code
+     * @param message Error message
+     * @return Result of item that failed
+     */
+    public static GradeResult failure(final String gradeId, final String error, final String message) {
+        return new GradeResult(gradeId, null, error, message);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        GradeResult that = (GradeResult) obj;
+
+        return Objects.equals(getGradeId(), that.getGradeId())
+                && Objects.equals(getGrade(), that.getGrade())
+                && Objects.equals(getError(), that.getError())
+                && Objects.equals(getMessage(), that.getMessage());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getGradeId(), getGrade(), getError(), getMessage());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[gradeId = " + gradeId
+                + ", grade = " + grade
+                + ", error = " + error
+                + ", message = " + message + "]";
+    }
+}
@@ -0,0 +1,226 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import com.owlike.genson.JsonBindingException;
+import com.owlike.genson.stream.JsonStreamException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * CouchDB selector restricted to grade documents. The same selector is
+ * sent to CouchDB as rich query and evaluated in chaincode when state
+ * database does not support rich queries, so only operators that can be
+ * evaluated in chaincode are accepted: implicit and explicit $and, $or
+ * and field operators $eq, $ne, $gt, $gte, $lt, $lte, $in and $exists.
+ */
+public final class GradeSelector {
+
+    private static final Genson GENSON = new Genson();
+    private static final Set<String> FIELD_OPERATORS = Set.of("$eq", "$ne", "$gt", "$gte", "$lt", "$lte", "$in", "$exists");
+    // Only grades have both fields, consent grants, summaries and access records lack at least one
+    private static final Map<String, Object> GRADE_DOCUMENT = discriminator();
+
+    private final Map<String, Object> selector;
+
+    private GradeSelector(final Map<String, Object> selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * @param selectorJSON CouchDB selector
+     * @return Selector matching only grades
+     * @throws IllegalArgumentException when selector is not JSON object or uses unsupported operator
+     */
+    @SuppressWarnings("unchecked")
+    public static GradeSelector parse(final String selectorJSON) {
+        Object parsed;
+        try {
+            parsed = GENSON.deserialize(selectorJSON, Object.class);
+        } catch (JsonBindingException | JsonStreamException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        if (!(parsed instanceof Map)) {
+            throw new IllegalArgumentException("Selector has to be JSON object");
+        }
+        Map<String, Object> selector = new LinkedHashMap<>((Map<String, Object>) parsed);
+        validate(selector);
+        return new GradeSelector(restrictToGrades(selector));
+    }
+
+    /**
+     * @return Rich query for CouchDB
+     */
+    public String toQuery() {
+        return GENSON.serialize(Map.of("selector", selector));
+    }
+
+    /**
+     * @param documentJSON Stored document
+     * @return True if document is grade matching selector
+     */
+    @SuppressWarnings("unchecked")
+    public boolean matches(final String documentJSON) {
+        Object document;
+        try {
+            document = GENSON.deserialize(documentJSON, Object.class);
+        } catch (JsonBindingException | JsonStreamException e) {
+            return false;
+        }
+        return document instanceof Map && matchesAll(selector, (Map<String, Object>) document);
+    }
+
+    private static Map<String, Object> discriminator() {
+        Map<String, Object> grade = new LinkedHashMap<>();
+        grade.put("gradeId", Map.of("$exists", true));
+        grade.put("grade", Map.of("$exists", true));
+        return grade;
+    }
+
+    /**
+     * Conditions of grade document are added next to conditions of selector,
+     * selectors that already constrain those fields are joined with them by $and.
+     */
+    private static Map<String, Object> restrictToGrades(final Map<String, Object> selector) {
+        if (GRADE_DOCUMENT.keySet().stream().noneMatch(selector::containsKey)) {
+            Map<String, Object> grades = new LinkedHashMap<>(selector);
+            grades.putAll(GRADE_DOCUMENT);
+            return grades;
+        }
+        Map<String, Object> grades = new LinkedHashMap<>();
+        grades.put("$and", List.of(selector, GRADE_DOCUMENT));
+        return grades;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void validate(final Map<String, Object> conditions) {
+        for (Map.Entry<String, Object> condition : conditions.entrySet()) {
+            String key = condition.getKey();
+            if ("$and".equals(key) || "$or".equals(key)) {
+                for (Object subselector : asList(key, condition.getValue())) {
+                    validate(asMap(key, subselector));
+                }
+            } else if (key.startsWith("$")) {
+                throw new IllegalArgumentException("Unsupported operator " + key);
+            } else if (condition.getValue() instanceof Map) {
+                for (Map.Entry<String, Object> operator : ((Map<String, Object>) condition.getValue()).entrySet()) {
+                    if (!FIELD_OPERATORS.contains(operator.getKey())) {
+                        throw new IllegalArgumentException("Unsupported operator " + operator.getKey());
+                    }
+                    if ("$in".equals(operator.getKey())) {
+                        asList(operator.getKey(), operator.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAll(final Map<String, Object> conditions, final Map<String, Object> document) {
+        for (Map.Entry<String, Object> condition : conditions.entrySet()) {
+            if (!matches(condition.getKey(), condition.getValue(), document)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean matches(final String key, final Object condition, final Map<String, Object> document) {
+        switch (key) {
+            case "$and":
+                for (Object subselector : asList(key, condition)) {
+                    if (!matchesAll(asMap(key, subselector), document)) {
+                        return false;
+                    }
+                }
+                return true;
+            case "$or":
+                for (Object subselector : asList(key, condition)) {
+                    if (matchesAll(asMap(key, subselector), document)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                if (condition instanceof Map) {
+                    return matchesOperators((Map<String, Object>) condition, document.containsKey(key), document.get(key));
+                }
+                return equal(document.get(key), condition);
+        }
+    }
+
+    private static boolean matchesOperators(final Map<String, Object> operators, final boolean exists, final Object value) {
+        for (Map.Entry<String, Object> operator : operators.entrySet()) {
+            Object operand = operator.getValue();
+            Integer comparison = compare(value, operand);
+            boolean matched;
+            switch (operator.getKey()) {
+                case "$eq":
+                    matched = equal(value, operand);
+                    break;
+                case "$ne":
+                    matched = !equal(value, operand);
+                    break;
+                case "$gt":
+                    matched = comparison != null && comparison > 0;
+                    break;
+                case "$gte":
+                    matched = comparison != null && comparison >= 0;
+                    break;
+                case "$lt":
+                    matched = comparison != null && comparison < 0;
+                    break;
+                case "$lte":
+                    matched = comparison != null && comparison <= 0;
+                    break;
+                case "$in":
+                    matched = asList(operator.getKey(), operand).stream().anyMatch(candidate -> equal(value, candidate));
+                    break;
+                default:
+                    // $exists, other operators are rejected when parsing
+                    matched = exists == Boolean.TRUE.equals(operand);
+                    break;
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equal(final Object value, final Object operand) {
+        if (value instanceof Number && operand instanceof Number) {
+            return ((Number) value).doubleValue() == ((Number) operand).doubleValue();
+        }
+        return Objects.equals(value, operand);
+    }
+
+    private static Integer compare(final Object value, final Object operand) {
+        if (value instanceof Number && operand instanceof Number) {
+            return Double.compare(((Number) value).doubleValue(), ((Number) operand).doubleValue());
+        }
+        if (value instanceof String && operand instanceof String) {
+            return ((String) value).compareTo((String) operand);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asList(final String operator, final Object operand) {
+        if (!(operand instanceof List)) {
+            throw new IllegalArgumentException(operator + " requires array");
+        }
+        return (List<Object>) operand;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(final String operator, final Object operand) {
+        if (!(operand instanceof Map)) {
+            throw new IllegalArgumentException(operator + " requires array of selectors");
+        }
+        return (Map<String, Object>) operand;
+    }
+}
@@ -0,0 +1,552 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import com.owlike.genson.JsonBindingException;
+import com.owlike.genson.stream.JsonStreamException;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Grades, their indexes, summaries and state format in world state, shared
+ * by both contracts. Store checks no permissions, contracts do that before
+ * calling it. Every access goes through consent strategy the contract
+ * chooses for the transaction, together with author the contract passes.
+ */
+public final class GradeStore {
+
+    static final String GRADE_SEQUENCE = "sequence~student";
+    static final String SUBJECT_INDEX = "subject~student~gradeId";
+    static final String TEACHER_INDEX = "teacher~gradeId";
+    static final String SUMMARY_INDEX = "summary~type~name";
+    static final String SUMMARY_DELTA_INDEX = "summaryDelta~type~name~txId";
+    static final String STUDENT = "student";
+    static final String SUBJECT = "subject";
+    static final String CONFIG = "config~name";
+    static final String STATE_FORMAT = "stateFormat";
+    static final String RANGE_BOOKMARK = "range:";
+
+    // Fabric treats empty value as delete, so index entries hold single null character
+    static final String INDEX_VALUE = "\u0000";
+
+    private final Genson genson = GradeCodec.genson();
+
+    private final Function<Context, ConsentStrategy> consent;
+
+    private enum GradeStoreErrors {
+        GRADE_NOT_FOUND,
+        WRONG_SELECTOR,
+        WRONG_GRADES_FORMAT,
+        WRONG_STATE_FORMAT,
+        WRONG_LIMIT
+    }
+
+    public enum StateFormat {
+        JSON,
+        COMPACT
+    }
+
+    /**
+     * @param consent Consent strategy of transaction
+     */
+    public GradeStore(final Function<Context, ConsentStrategy> consent) {
+        this.consent = consent;
+    }
+
+    /**
+     * @param ctx Context of app
+     * @return Consent strategy of transaction
+     */
+    ConsentStrategy consent(final Context ctx) {
+        return consent.apply(ctx);
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param gradeId Id of grade
+     * @return True if grade exists
+     */
+    static boolean gradeExists(final Context ctx, final String gradeId) {
+        return CachingContext.state(ctx).getState(gradeId).length != 0;
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param gradeId Id of grade
+     * @return Grade, access is not recorded
+     * @throws ChaincodeException when grade does not exist
+     */
+    Grade getGrade(final Context ctx, final String gradeId) {
+        byte[] gradeValue = CachingContext.state(ctx).getState(gradeId);
+        if (gradeValue.length == 0) {
+            throw gradeNotFound(gradeId);
+        }
+        return GradeCodec.decode(gradeValue);
+    }
+
+    /**
+     * @param gradeId Id of missing grade
+     * @return Result reporting missing grade
+     */
+    static GradeResult notFound(final String gradeId) {
+        return GradeResult.failure(gradeId, GradeStoreErrors.GRADE_NOT_FOUND.toString(),
+                String.format("Grade %s does not exist", gradeId));
+    }
+
+    /**
+     * @param ctx    Context of app
+     * @param author Author of transaction
+     * @param grade  New grade, existence and value are checked by contract
+     * @return Grade as written
+     */
+    Grade addGrade(final Context ctx, final String author, final Grade grade) {
+        Grade created = consent(ctx).recordCreation(ctx, author, grade);
+        putGrade(ctx, created);
+        putIndexes(ctx, created);
+        addToSummaries(ctx, created);
+        return created;
+    }
+
+    /**
+     * Visitors of grade written before visitors were kept apart are kept
+     * with the new value.
+     *
+     * @param ctx    Context of app
+     * @param author Author of transaction
+     * @param grade  New value of existing grade
+     * @return Grade as written
+     */
+    Grade updateGrade(final Context ctx, final String author, final Grade grade) {
+        Grade oldGrade = consent(ctx).recordAccess(ctx, author, "UPDATE", getGrade(ctx, grade.getGradeId()));
+        Grade newGrade = new Grade(grade.getGradeId(), grade.getGrade(), oldGrade.getVisitors(),
+                grade.getSubject(), grade.getTeacher(), grade.getStudent());
+        putGrade(ctx, newGrade);
+        moveIndex(ctx, subjectKey(ctx, oldGrade), subjectKey(ctx, newGrade));
+        moveIndex(ctx, teacherKey(ctx, oldGrade), teacherKey(ctx, newGrade));
+        removeFromSummaries(ctx, oldGrade);
+        addToSummaries(ctx, newGrade);
+        return newGrade;
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param author  Author of transaction
+     * @param gradeId Id of existing grade
+     */
+    void deleteGrade(final Context ctx, final String author, final String gradeId) {
+        StateCache state = CachingContext.state(ctx);
+        Grade grade = consent(ctx).recordAccess(ctx, author, "DELETE", getGrade(ctx, gradeId));
+        state.delState(gradeId);
+        state.delState(subjectKey(ctx, grade));
+        state.delState(teacherKey(ctx, grade));
+        removeFromSummaries(ctx, grade);
+    }
+
+    /**
+     * Writes grade in format configured for new grades.
+     *
+     * @param ctx   Context of app
+     * @param grade Grade to write
+     */
+    void putGrade(final Context ctx, final Grade grade) {
+        StateCache state = CachingContext.state(ctx);
+        if (getStateFormat(ctx) == StateFormat.COMPACT) {
+            state.putState(grade.getGradeId(), CompactGradeCodec.encode(grade));
+        } else {
+            state.putStringState(grade.getGradeId(), GradeCodec.encode(grade));
+        }
+    }
+
+    /**
+     * Allocates next id for student from its sequence key. Probing is only
+     * needed for students whose grades were added before the sequence
+     * existed or whose next id was taken with addGradeWithId. Ids of
+     * deleted grades are never handed out again.
+     *
+     * @param ctx     Context of app
+     * @param student Student that gets new grade
+     * @return Free grade id
+     */
+    String nextGradeId(final Context ctx, final String student) {
+        StateCache state = CachingContext.state(ctx);
+        String sequenceKey = ctx.getStub().createCompositeKey(GRADE_SEQUENCE, student).toString();
+        String sequence = state.getStringState(sequenceKey);
+        int i = sequence.isEmpty() ? 0 : Integer.parseInt(sequence);
+        String output = student + i;
+        while (gradeExists(ctx, output)) {
+            i++;
+            output = student + i;
+        }
+        state.putStringState(sequenceKey, Integer.toString(i + 1));
+        return output;
+    }
+
+    /**
+     * @param ctx      Context of app
+     * @param startKey First id of range
+     * @param endKey   Id after the range, empty for no end
+     * @return Grades in range, access is not recorded
+     */
+    List<Grade> readRange(final Context ctx, final String startKey, final String endKey) {
+        List<Grade> grades = new ArrayList<>();
+        QueryResultsIterator<KeyValue> results = ctx.getStub().getStateByRange(startKey, endKey);
+        for (KeyValue result : results) {
+            grades.add(GradeCodec.decode(result.getValue()));
+        }
+        return grades;
+    }
+
+    /**
+     * @param ctx      Context of app
+     * @param startKey First id of range
+     * @param endKey   Id after the range, empty for no end
+     * @param pageSize Maximal number of grades in page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of grades in range, access is not recorded
+     */
+    GradePage readRangePage(final Context ctx, final String startKey, final String endKey,
+                            final int pageSize, final String bookmark) {
+        return readPage(ctx.getStub().getStateByRangeWithPagination(startKey, endKey, pageSize, bookmark));
+    }
+
+    /**
+     * Index entries only point at grades, grade itself is always read from
+     * its own key. Entries of grades deleted later in the same transaction
+     * are skipped.
+     *
+     * @param ctx       Context of app
+     * @param index     Object type of index
+     * @param attribute Leading attribute of index entries
+     * @return Grades pointed by index entries, access is not recorded
+     */
+    List<Grade> readIndexedGrades(final Context ctx, final String index, final String attribute) {
+        ChaincodeStub stub = ctx.getStub();
+        StateCache state = CachingContext.state(ctx);
+        List<Grade> grades = new ArrayList<>();
+
+        QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(index, attribute);
+
+        for (KeyValue result : results) {
+            List<String> attributes = stub.splitCompositeKey(result.getKey()).getAttributes();
+            byte[] gradeValue = state.getState(attributes.get(attributes.size() - 1));
+            if (gradeValue.length != 0) {
+                grades.add(GradeCodec.decode(gradeValue));
+            }
+        }
+        return grades;
+    }
+
+    /**
+     * Rich queries run inside CouchDB. LevelDB rejects them and CouchDB
+     * cannot look into compact values, so then the selector is evaluated
+     * in chaincode over page of range of all grades. Such page may hold
+     * fewer grades than pageSize, its bookmark is prefixed with
+     * RANGE_BOOKMARK so it is never passed to CouchDB.
+     *
+     * @param ctx      Context of app
+     * @param selector CouchDB selector
+     * @param pageSize Maximal number of grades in page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of matching grades, access is not recorded
+     */
+    GradePage queryGrades(final Context ctx, final String selector, final int pageSize, final String bookmark) {
+        GradeSelector gradeSelector = parseSelector(selector);
+        if (getStateFormat(ctx) == StateFormat.COMPACT || bookmark.startsWith(RANGE_BOOKMARK)) {
+            return filterGradesPage(ctx, gradeSelector, pageSize, bookmark);
+        }
+        QueryResultsIteratorWithMetadata<KeyValue> results;
+        try {
+            results = ctx.getStub().getQueryResultWithPagination(gradeSelector.toQuery(), pageSize, bookmark);
+        } catch (RuntimeException e) {
+            System.out.println(String.format("Rich query not supported, evaluating selector in chaincode: %s", e.getMessage()));
+            return filterGradesPage(ctx, gradeSelector, pageSize, bookmark);
+        }
+        return readPage(results);
+    }
+
+    /**
+     * Reading stops as soon as limit is reached, so older modifications
+     * are never fetched from peer.
+     *
+     * @param ctx     Context of app
+     * @param gradeId Id of grade
+     * @param limit   Maximal number of returned modifications
+     * @return Modifications of grade, newest first
+     */
+    List<GradeModification> readHistory(final Context ctx, final String gradeId, final int limit) {
+        if (limit <= 0) {
+            String errorMessage = String.format("Limit %d is not positive", limit);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeStoreErrors.WRONG_LIMIT.toString());
+        }
+        List<GradeModification> history = new ArrayList<>();
+        for (KeyModification modification : ctx.getStub().getHistoryForKey(gradeId)) {
+            Grade grade = modification.isDeleted() ? null : GradeCodec.decode(modification.getValue());
+            history.add(new GradeModification(modification.getTxId(), modification.getTimestamp().toEpochMilli(),
+                    modification.isDeleted(), grade));
+            if (history.size() == limit) {
+                break;
+            }
+        }
+        return history;
+    }
+
+    /**
+     * @param gradesJSON JSON array of grades
+     * @param withIds    True if every grade needs id
+     * @return Grades of array
+     * @throws ChaincodeException when array or any grade in it is malformed
+     */
+    Grade[] parseGrades(final String gradesJSON, final boolean withIds) {
+        Grade[] grades;
+        try {
+            grades = genson.deserialize(gradesJSON, Grade[].class);
+        } catch (JsonBindingException | JsonStreamException e) {
+            grades = null;
+        }
+        if (grades == null || Arrays.stream(grades).anyMatch(grade -> grade == null
+                || grade.getSubject() == null || grade.getTeacher() == null || grade.getStudent() == null
+                || (withIds && grade.getGradeId() == null))) {
+            String errorMessage = String.format("Bad grades %s", gradesJSON);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeStoreErrors.WRONG_GRADES_FORMAT.toString());
+        }
+        return grades;
+    }
+
+    /**
+     * @param gradeId Id of grade, null for grade that was not added
+     * @param e       Error of the item
+     * @return Result of item that failed
+     */
+    static GradeResult failure(final String gradeId, final ChaincodeException e) {
+        return GradeResult.failure(gradeId, new String(e.getPayload(), StandardCharsets.UTF_8), e.getMessage());
+    }
+
+    /**
+     * Sets format of grades written from now on. Grades already in world
+     * state keep their format until they are updated, both formats are
+     * always readable.
+     *
+     * @param ctx    Context of app
+     * @param format JSON or COMPACT
+     */
+    void setStateFormat(final Context ctx, final String format) {
+        StateFormat stateFormat;
+        try {
+            stateFormat = StateFormat.valueOf(format);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = String.format("Bad state format %s", format);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeStoreErrors.WRONG_STATE_FORMAT.toString());
+        }
+        CachingContext.state(ctx).putStringState(configKey(ctx, STATE_FORMAT), stateFormat.name());
+    }
+
+    /**
+     * @param ctx  Context of app
+     * @param name Name of setting
+     * @return Key of setting in world state
+     */
+    static String configKey(final Context ctx, final String name) {
+        return ctx.getStub().createCompositeKey(CONFIG, name).toString();
+    }
+
+    /**
+     * @param ctx  Context of app
+     * @param type STUDENT or SUBJECT
+     * @param name Student or subject
+     * @return Summary with deltas not yet compacted
+     */
+    GradeSummary readSummary(final Context ctx, final String type, final String name) {
+        GradeSummary summary = readSummary(CachingContext.state(ctx), summaryKey(ctx, type, name));
+        for (KeyValue delta : ctx.getStub().getStateByPartialCompositeKey(SUMMARY_DELTA_INDEX, type, name)) {
+            summary = summary.plus(genson.deserialize(delta.getStringValue(), GradeSummary.class));
+        }
+        return summary;
+    }
+
+    /**
+     * Recomputes all summaries from grades, needed once for grades added
+     * before summaries were kept.
+     *
+     * @param ctx Context of app
+     */
+    void rebuildSummaries(final Context ctx) {
+        ChaincodeStub stub = ctx.getStub();
+        StateCache state = CachingContext.state(ctx);
+        for (String type : List.of(STUDENT, SUBJECT)) {
+            for (KeyValue summary : stub.getStateByPartialCompositeKey(SUMMARY_INDEX, type)) {
+                state.delState(summary.getKey());
+            }
+            for (KeyValue delta : stub.getStateByPartialCompositeKey(SUMMARY_DELTA_INDEX, type)) {
+                state.delState(delta.getKey());
+            }
+        }
+        Map<String, GradeSummary> summaries = new LinkedHashMap<>();
+        for (KeyValue result : stub.getStateByRange("", "")) {
+            Grade grade = GradeCodec.decode(result.getValue());
+            GradeSummary summary = GradeSummary.empty().add(grade.getGrade());
+            summaries.merge(summaryKey(ctx, STUDENT, grade.getStudent()), summary, GradeSummary::plus);
+            summaries.merge(summaryKey(ctx, SUBJECT, grade.getSubject()), summary, GradeSummary::plus);
+        }
+        summaries.forEach((key, summary) -> writeSummary(state, key, summary));
+    }
+
+    /**
+     * Folds summary deltas into summaries. Grade writes started meanwhile
+     * add new deltas, which makes the transaction fail phantom read check
+     * instead of them, so it is safe to retry at any time.
+     *
+     * @param ctx Context of app
+     */
+    void compactSummaries(final Context ctx) {
+        ChaincodeStub stub = ctx.getStub();
+        StateCache state = CachingContext.state(ctx);
+        Map<String, GradeSummary> summaries = new LinkedHashMap<>();
+        for (String type : List.of(STUDENT, SUBJECT)) {
+            for (KeyValue delta : stub.getStateByPartialCompositeKey(SUMMARY_DELTA_INDEX, type)) {
+                String key = summaryKey(ctx, type, stub.splitCompositeKey(delta.getKey()).getAttributes().get(1));
+                GradeSummary summary = summaries.computeIfAbsent(key, summaryKey -> readSummary(state, summaryKey));
+                summaries.put(key, summary.plus(genson.deserialize(delta.getStringValue(), GradeSummary.class)));
+                state.delState(delta.getKey());
+            }
+        }
+        summaries.forEach((key, summary) -> writeSummary(state, key, summary));
+    }
+
+    private GradePage filterGradesPage(final Context ctx, final GradeSelector selector, final int pageSize, final String bookmark) {
+        String rangeBookmark = bookmark.startsWith(RANGE_BOOKMARK) ? bookmark.substring(RANGE_BOOKMARK.length()) : "";
+        List<Grade> grades = new ArrayList<>();
+
+        QueryResultsIteratorWithMetadata<KeyValue> results =
+                ctx.getStub().getStateByRangeWithPagination("", "", pageSize, rangeBookmark);
+
+        for (KeyValue result : results) {
+            // Indexes, summaries, grade sequences, consents and configuration are kept under composite keys
+            if (!result.getKey().startsWith(CompositeKey.NAMESPACE) && selector.matches(GradeCodec.toJson(result.getValue()))) {
+                grades.add(GradeCodec.decode(result.getValue()));
+            }
+        }
+        String nextBookmark = results.getMetadata().getBookmark();
+        return new GradePage(grades, results.getMetadata().getFetchedRecordsCount(),
+                nextBookmark.isEmpty() ? "" : RANGE_BOOKMARK + nextBookmark);
+    }
+
+    private GradeSelector parseSelector(final String selector) {
+        try {
+            return GradeSelector.parse(selector);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = String.format("Bad selector %s: %s", selector, e.getMessage());
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeStoreErrors.WRONG_SELECTOR.toString());
+        }
+    }
+
+    private GradePage readPage(final QueryResultsIteratorWithMetadata<KeyValue> results) {
+        List<Grade> grades = new ArrayList<>();
+        for (KeyValue result : results) {
+            grades.add(GradeCodec.decode(result.getValue()));
+        }
+        return new GradePage(grades, results.getMetadata().getFetchedRecordsCount(), results.getMetadata().getBookmark());
+    }
+
+    private ChaincodeException gradeNotFound(final String gradeId) {
+        String errorMessage = String.format("Grade %s does not exist", gradeId);
+        System.out.println(errorMessage);
+        return new ChaincodeException(errorMessage, GradeStoreErrors.GRADE_NOT_FOUND.toString());
+    }
+
+    /**
+     * @param ctx Context of app
+     * @return Format of newly written grades, JSON until configured otherwise
+     */
+    private StateFormat getStateFormat(final Context ctx) {
+        String format = CachingContext.state(ctx).getStringState(configKey(ctx, STATE_FORMAT));
+        return format.isEmpty() ? StateFormat.JSON : StateFormat.valueOf(format);
+    }
+
+    private void putIndexes(final Context ctx, final Grade grade) {
+        StateCache state = CachingContext.state(ctx);
+        state.putStringState(subjectKey(ctx, grade), INDEX_VALUE);
+        state.putStringState(teacherKey(ctx, grade), INDEX_VALUE);
+    }
+
+    private void addToSummaries(final Context ctx, final Grade grade) {
+        updateSummary(ctx, STUDENT, grade.getStudent(), summary -> summary.add(grade.getGrade()));
+        updateSummary(ctx, SUBJECT, grade.getSubject(), summary -> summary.add(grade.getGrade()));
+    }
+
+    private void removeFromSummaries(final Context ctx, final Grade grade) {
+        updateSummary(ctx, STUDENT, grade.getStudent(), summary -> summary.remove(grade.getGrade()));
+        updateSummary(ctx, SUBJECT, grade.getSubject(), summary -> summary.remove(grade.getGrade()));
+    }
+
+    /**
+     * Grade writes never touch summary itself, only delta key of their own
+     * transaction, so transactions changing the same summary do not
+     * conflict. Deltas may be negative.
+     *
+     * @param ctx    Context of app
+     * @param type   STUDENT or SUBJECT
+     * @param name   Student or subject
+     * @param change Change of summary
+     */
+    private void updateSummary(final Context ctx, final String type, final String name, final UnaryOperator<GradeSummary> change) {
+        ChaincodeStub stub = ctx.getStub();
+        StateCache state = CachingContext.state(ctx);
+        String key = stub.createCompositeKey(SUMMARY_DELTA_INDEX, type, name, stub.getTxId()).toString();
+        GradeSummary delta = readSummary(state, key);
+        GradeSummary newDelta = change.apply(delta);
+        if (newDelta != delta) {
+            writeSummary(state, key, newDelta);
+        }
+    }
+
+    private void writeSummary(final StateCache state, final String key, final GradeSummary summary) {
+        if (summary.hasChanges()) {
+            state.putStringState(key, genson.serialize(summary));
+        } else {
+            state.delState(key);
+        }
+    }
+
+    private GradeSummary readSummary(final StateCache state, final String key) {
+        String summaryJSON = state.getStringState(key);
+        return summaryJSON.isEmpty() ? GradeSummary.empty() : genson.deserialize(summaryJSON, GradeSummary.class);
+    }
+
+    private String summaryKey(final Context ctx, final String type, final String name) {
+        return ctx.getStub().createCompositeKey(SUMMARY_INDEX, type, name).toString();
+    }
+
+    private void moveIndex(final Context ctx, final String oldKey, final String newKey) {
+        if (!oldKey.equals(newKey)) {
+            StateCache state = CachingContext.state(ctx);
+            state.delState(oldKey);
+            state.putStringState(newKey, INDEX_VALUE);
+        }
+    }
+
+    private String subjectKey(final Context ctx, final Grade grade) {
+        return ctx.getStub().createCompositeKey(SUBJECT_INDEX, grade.getSubject(), grade.getStudent(), grade.getGradeId()).toString();
+    }
+
+    private String teacherKey(final Context ctx, final Grade grade) {
+        return ctx.getStub().createCompositeKey(TEACHER_INDEX, grade.getTeacher(), grade.getGradeId()).toString();
+    }
+}
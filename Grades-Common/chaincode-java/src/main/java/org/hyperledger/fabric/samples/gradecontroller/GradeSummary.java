@@ -0,0 +1,133 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Running aggregate of grades of one student or one subject, or change of
+ * such aggregate made by one transaction. Histogram holds number of grades
+ * for every valid grade value, in order of VALUES. Average is sum divided
+ * by count. Changes may hold negative numbers.
+ */
+@DataType()
+public final class GradeSummary {
+
+    static final List<Double> VALUES = List.of(2.0, 2.5, 3.0, 3.5, 4.0, 4.5, 5.0);
+
+    @Property()
+    private final Integer count;
+
+    @Property()
+    private final Double sum;
+
+    @Property()
+    private final List<Integer> histogram;
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public List<Integer> getHistogram() {
+        return histogram;
+    }
+
+    public GradeSummary(@JsonProperty("count") final Integer count, @JsonProperty("sum") final Double sum,
+                        @JsonProperty("histogram") final List<Integer> histogram) {
+        this.count = count;
+        this.sum = sum;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return Summary of no grades
+     */
+    public static GradeSummary empty() {
+        return new GradeSummary(0, 0.0, Collections.nCopies(VALUES.size(), 0));
+    }
+
+    /**
+     * @param grade Value of added grade
+     * @return Summary including grade, same summary if value is not valid grade
+     */
+    public GradeSummary add(final Double grade) {
+        return change(grade, 1);
+    }
+
+    /**
+     * @param grade Value of removed grade
+     * @return Summary without grade, same summary if value is not valid grade
+     */
+    public GradeSummary remove(final Double grade) {
+        return change(grade, -1);
+    }
+
+    private GradeSummary change(final Double grade, final int delta) {
+        int bucket = VALUES.indexOf(grade);
+        if (bucket < 0) {
+            return this;
+        }
+        List<Integer> newHistogram = new ArrayList<>(histogram);
+        newHistogram.set(bucket, histogram.get(bucket) + delta);
+        return new GradeSummary(count + delta, sum + delta * grade, newHistogram);
+    }
+
+    /**
+     * @param other Summary or change of summary
+     * @return Summary including both
+     */
+    public GradeSummary plus(final GradeSummary other) {
+        List<Integer> newHistogram = new ArrayList<>(histogram);
+        for (int i = 0; i < newHistogram.size(); i++) {
+            newHistogram.set(i, histogram.get(i) + other.histogram.get(i));
+        }
+        return new GradeSummary(count + other.count, sum + other.sum, newHistogram);
+    }
+
+    /**
+     * @return False if summary is empty or change cancels out
+     */
+    public boolean hasChanges() {
+        return count != 0 || histogram.stream().anyMatch(n -> n != 0);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        GradeSummary that = (GradeSummary) obj;
+
+        return Objects.equals(getCount(), that.getCount())
+                && Objects.equals(getSum(), that.getSum())
+                && Objects.equals(getHistogram(), that.getHistogram());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getCount(), getSum(), getHistogram());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[count = " + count
+                + ", sum = " + sum
+                + ", histogram = " + histogram + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.contract.Context;
+
+import java.util.List;
+
+/**
+ * Keeps no trace of accesses, reads have empty write set.
+ */
+public final class NoConsent implements ConsentStrategy {
+
+    @Override
+    public Grade recordCreation(final Context ctx, final String author, final Grade grade) {
+        return grade;
+    }
+
+    @Override
+    public Grade recordAccess(final Context ctx, final String author, final String operation, final Grade grade) {
+        return grade;
+    }
+
+    @Override
+    public void recordAccess(final Context ctx, final String author, final String operation, final List<Grade> grades) {
+
+    }
+
+    @Override
+    public void recordScan(final Context ctx, final String author, final String operation,
+                           final String startKey, final String endKey, final List<Grade> grades) {
+
+    }
+}
@@ -0,0 +1,80 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * World state seen by one transaction. The first read of a key goes to the
+ * peer, later reads are served from memory and see writes made earlier in
+ * the same transaction.
+ */
+public final class StateCache {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ChaincodeStub stub;
+    private final Map<String, byte[]> values = new HashMap<>();
+
+    public StateCache(final ChaincodeStub stub) {
+        this.stub = stub;
+    }
+
+    /**
+     * @param key Key to read
+     * @return Value of key, empty array if key does not exist
+     */
+    public byte[] getState(final String key) {
+        byte[] value = values.get(key);
+        if (value == null) {
+            value = stub.getState(key);
+            if (value == null) {
+                value = EMPTY;
+            }
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @param key Key to read
+     * @return Value of key, empty string if key does not exist
+     */
+    public String getStringState(final String key) {
+        byte[] value = values.get(key);
+        if (value == null) {
+            String stringValue = stub.getStringState(key);
+            value = stringValue == null ? EMPTY : stringValue.getBytes(StandardCharsets.UTF_8);
+            values.put(key, value);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param key   Key to write
+     * @param value New value of key
+     */
+    public void putState(final String key, final byte[] value) {
+        stub.putState(key, value);
+        values.put(key, value);
+    }
+
+    /**
+     * @param key   Key to write
+     * @param value New value of key
+     */
+    public void putStringState(final String key, final String value) {
+        stub.putStringState(key, value);
+        values.put(key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param key Key to delete
+     */
+    public void delState(final String key) {
+        stub.delState(key);
+        values.put(key, EMPTY);
+    }
+}
@@ -0,0 +1,68 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+public class CompactGradeCodecTest {
+
+    private final Grade grade = new Grade("Filip Piwowarczyk0", 4.5, Arrays.asList("Adam Mickiewicz", null), "Język polski", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+    @Test
+    public void shouldReadWhatItWrites() {
+        byte[] value = CompactGradeCodec.encode(grade);
+
+        assertThat(value[0]).isEqualTo(CompactGradeCodec.VERSION);
+        assertThat(CompactGradeCodec.decode(value)).isEqualTo(grade);
+        assertThat(GradeCodec.decode(value)).isEqualTo(grade);
+    }
+
+    @Test
+    public void shouldReadNullFields() {
+        Grade empty = new Grade(null, null, null, null, null, null);
+
+        assertThat(CompactGradeCodec.decode(CompactGradeCodec.encode(empty))).isEqualTo(empty);
+    }
+
+    @Test
+    public void shouldBeSmallerThanJson() {
+        assertThat(CompactGradeCodec.encode(grade).length)
+                .isLessThan(GradeCodec.encode(grade).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void shouldWriteJsonWhenGradeIsNotFixedPoint() {
+        Grade odd = new Grade("Filip Piwowarczyk0", 4.125, List.of(), "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+        byte[] value = CompactGradeCodec.encode(odd);
+
+        assertThat(CompactGradeCodec.isCompact(value)).isFalse();
+        assertThat(GradeCodec.decode(value)).isEqualTo(odd);
+    }
+
+    @Test
+    public void shouldReadLegacyJsonThroughGradeCodec() {
+        String json = GradeCodec.encode(grade);
+
+        assertThat(GradeCodec.decode(json.getBytes(StandardCharsets.UTF_8))).isEqualTo(grade);
+        assertThat(GradeCodec.toJson(json.getBytes(StandardCharsets.UTF_8))).isEqualTo(json);
+        assertThat(GradeCodec.toJson(CompactGradeCodec.encode(grade))).isEqualTo(json);
+    }
+
+    @Test
+    public void shouldRejectMalformedValues() {
+        byte[] value = CompactGradeCodec.encode(grade);
+
+        assertThat(catchThrowable(() -> CompactGradeCodec.decode(Arrays.copyOf(value, value.length - 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> CompactGradeCodec.decode(Arrays.copyOf(value, value.length + 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> CompactGradeCodec.decode(new byte[]{'{', '}'})))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,91 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.shim.ChaincodeServerProperties;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+public final class GradeChaincodeServerTest {
+
+    @Nested
+    class Configuration {
+
+        @Test
+        void shouldListenOnDefaultAddressWithoutTls() {
+            ChaincodeServerProperties properties = GradeChaincodeServer.properties(Map.of());
+
+            assertThat(properties.getServerAddress()).isEqualTo(new InetSocketAddress("0.0.0.0", 9999));
+            assertThat(properties.isTlsEnabled()).isFalse();
+        }
+
+        @Test
+        void shouldReadAddressAndTlsFiles() {
+            ChaincodeServerProperties properties = GradeChaincodeServer.properties(Map.of(
+                    "CHAINCODE_SERVER_ADDRESS", "grades.example.com:7052",
+                    "CHAINCODE_TLS_DISABLED", "false",
+                    "CHAINCODE_TLS_KEY", "/tls/key.pem",
+                    "CHAINCODE_TLS_CERT", "/tls/cert.pem",
+                    "CHAINCODE_CLIENT_CA_CERT", "/tls/ca.pem"));
+
+            InetSocketAddress address = (InetSocketAddress) properties.getServerAddress();
+            assertThat(address.getHostString()).isEqualTo("grades.example.com");
+            assertThat(address.getPort()).isEqualTo(7052);
+            assertThat(properties.isTlsEnabled()).isTrue();
+            assertThat(properties.getKeyFile()).isEqualTo("/tls/key.pem");
+            assertThat(properties.getKeyCertChainFile()).isEqualTo("/tls/cert.pem");
+            assertThat(properties.getTrustCertCollectionFile()).isEqualTo("/tls/ca.pem");
+        }
+
+        @Test
+        void whenTlsFilesAreMissing() {
+            Throwable thrown = catchThrowable(() -> GradeChaincodeServer.properties(Map.of("CHAINCODE_TLS_DISABLED", "false")));
+
+            assertThat(thrown).isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("CHAINCODE_TLS_KEY and CHAINCODE_TLS_CERT must be set when TLS is enabled");
+        }
+
+        @Test
+        void whenAddressIsMalformed() {
+            Throwable thrown = catchThrowable(() -> GradeChaincodeServer.properties(Map.of("CHAINCODE_SERVER_ADDRESS", "localhost:port")));
+
+            assertThat(thrown).isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Bad chaincode server address localhost:port");
+        }
+
+        @Test
+        void whenChaincodeIdIsMissing() {
+            Throwable thrown = catchThrowable(() -> GradeChaincodeServer.chaincodeId(Map.of()));
+
+            assertThat(thrown).isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("CHAINCODE_ID must be set to package ID of chaincode");
+            assertThat(GradeChaincodeServer.chaincodeId(Map.of("CHAINCODE_ID", "grades_1.0:abc"))).isEqualTo("grades_1.0:abc");
+        }
+    }
+
+    @Nested
+    class StartupTimer {
+
+        @Test
+        void shouldDetectListeningServer() throws Exception {
+            try (ServerSocket server = new ServerSocket(0)) {
+                assertThat(GradeChaincodeServer.waitUntilListening(new InetSocketAddress("0.0.0.0", server.getLocalPort()), 1000)).isTrue();
+            }
+        }
+
+        @Test
+        void shouldGiveUpAfterTimeout() throws Exception {
+            int port;
+            try (ServerSocket server = new ServerSocket(0)) {
+                port = server.getLocalPort();
+            }
+
+            assertThat(GradeChaincodeServer.waitUntilListening(new InetSocketAddress("127.0.0.1", port), 100)).isFalse();
+        }
+    }
+}
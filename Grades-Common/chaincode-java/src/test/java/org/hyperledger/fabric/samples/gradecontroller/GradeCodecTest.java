@@ -0,0 +1,76 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+public class GradeCodecTest {
+
+    private final Genson genson = new Genson();
+
+    private final List<Grade> grades = List.of(
+            new Grade("Filip Piwowarczyk0", 2.0, List.of("Adam Mickiewicz"), "Math", "Adam Mickiewicz", "Filip Piwowarczyk"),
+            new Grade("Ola Piwowarczyk12", 4.5, Arrays.asList("Adam \"M\"", null), "Język \"polski\"", "Adam\\Mickiewicz", "Ola\tPiwowarczyk\n\u0001\u2028"),
+            new Grade(null, null, List.of(), "Math", null, "Filip Piwowarczyk"));
+
+    @Test
+    public void shouldWriteSameJsonAsGenson() {
+        for (Grade grade : grades) {
+            assertThat(GradeCodec.encode(grade)).isEqualTo(genson.serialize(grade));
+        }
+        assertThat(GradeCodec.encodeAll(grades)).isEqualTo(genson.serialize(grades));
+        assertThat(GradeCodec.encodeAll(List.of())).isEqualTo("[]");
+    }
+
+    @Test
+    public void shouldLeaveOutMissingVisitors() {
+        Grade grade = new Grade("Filip Piwowarczyk0", 2.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+        String json = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\","
+                + "\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        assertThat(GradeCodec.encode(grade)).isEqualTo(json);
+        assertThat(GradeCodec.genson().serialize(GradeResult.success(grade)))
+                .isEqualTo("{\"error\":null,\"grade\":" + json + ",\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null}");
+        assertThat(GradeCodec.genson().serialize(new GradePage(List.of(grade), 1, "")))
+                .isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + json + "]}");
+        assertThat(GradeCodec.decode(json)).isEqualTo(grade);
+    }
+
+    @Test
+    public void shouldWriteNestedGradesSameAsEncode() {
+        for (Grade grade : grades) {
+            assertThat(GradeCodec.genson().serialize(new GradeModification("tx1", 1L, false, grade)))
+                    .contains("\"grade\":" + GradeCodec.encode(grade) + ",");
+        }
+    }
+
+    @Test
+    public void shouldReadWhatGensonWrites() {
+        for (Grade grade : grades) {
+            assertThat(GradeCodec.decode(genson.serialize(grade))).isEqualTo(grade);
+        }
+    }
+
+    @Test
+    public void shouldReadLegacyJson() {
+        Grade grade = GradeCodec.decode("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 4, \"visitors\": [\"Adam Mickiewicz\", \"Ola Piwowarczyk\"], "
+                + "\"unknown\": {\"nested\": [1, -2.5e1, true, false, null, {}, []]}, "
+                + "\"subject\": \"Math\", \"teacher\": null, \"student\": \"Filip \\u0050iwowarczyk\\/\" }");
+
+        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 4.0, List.of("Adam Mickiewicz", "Ola Piwowarczyk"), "Math", null, "Filip Piwowarczyk/"));
+    }
+
+    @Test
+    public void shouldRejectMalformedJson() {
+        assertThat(catchThrowable(() -> GradeCodec.decode("{\"grade\":}"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> GradeCodec.decode("{\"grade\":2.0"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> GradeCodec.decode("{\"gradeId\":\"\\u00\"}"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> GradeCodec.decode("{} {}"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> GradeCodec.decode(""))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
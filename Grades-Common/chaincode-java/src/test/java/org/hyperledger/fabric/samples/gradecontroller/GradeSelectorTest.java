@@ -0,0 +1,69 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+public class GradeSelectorTest {
+
+    private static final String GRADE = "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+    @Test
+    public void shouldMatchEqualFields() {
+        assertThat(GradeSelector.parse("{\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}").matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{\"subject\":\"PE\"}").matches(GRADE)).isFalse();
+    }
+
+    @Test
+    public void shouldCompareNumbersAndStrings() {
+        assertThat(GradeSelector.parse("{\"grade\":{\"$gte\":4,\"$lt\":5.0}}").matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{\"grade\":{\"$gt\":4.5}}").matches(GRADE)).isFalse();
+        assertThat(GradeSelector.parse("{\"student\":{\"$lte\":\"G\"}}").matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{\"grade\":{\"$gt\":\"4\"}}").matches(GRADE)).isFalse();
+    }
+
+    @Test
+    public void shouldMatchLogicalOperators() {
+        assertThat(GradeSelector.parse("{\"$or\":[{\"subject\":\"PE\"},{\"grade\":{\"$in\":[4.5,5]}}]}").matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{\"$and\":[{\"subject\":\"Math\"},{\"grade\":{\"$ne\":4.5}}]}").matches(GRADE)).isFalse();
+    }
+
+    @Test
+    public void shouldMatchOnlyGrades() {
+        assertThat(GradeSelector.parse("{}").matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{}").matches("{\"author\":\"admin\",\"operation\":\"READ\"}")).isFalse();
+        assertThat(GradeSelector.parse("{\"visitors\":{\"$exists\":false}}").matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{\"student\":\"Filip Piwowarczyk\"}").matches(
+                "{\"scope\":\"grade:Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"viewer\":\"Jan Kowalski\"}")).isFalse();
+        assertThat(GradeSelector.parse("{}").matches("{\"gradeId\":\"Filip Piwowarczyk2\",\"count\":1}")).isFalse();
+        assertThat(GradeSelector.parse("{}").matches("COMPACT")).isFalse();
+    }
+
+    @Test
+    public void shouldKeepOwnConditionsOnDiscriminatingFields() {
+        GradeSelector selector = GradeSelector.parse("{\"grade\":{\"$gte\":4}}");
+
+        assertThat(selector.toQuery())
+                .isEqualTo("{\"selector\":{\"$and\":[{\"grade\":{\"$gte\":4}},{\"gradeId\":{\"$exists\":true},\"grade\":{\"$exists\":true}}]}}");
+        assertThat(selector.matches(GRADE)).isTrue();
+        assertThat(GradeSelector.parse("{\"gradeId\":\"Filip Piwowarczyk2\"}").matches("{\"gradeId\":\"Filip Piwowarczyk2\",\"count\":1}")).isFalse();
+    }
+
+    @Test
+    public void shouldRestrictQueryToGrades() {
+        assertThat(GradeSelector.parse("{\"teacher\":\"Adam Mickiewicz\"}").toQuery())
+                .isEqualTo("{\"selector\":{\"teacher\":\"Adam Mickiewicz\",\"gradeId\":{\"$exists\":true},\"grade\":{\"$exists\":true}}}");
+    }
+
+    @Test
+    public void shouldRejectBadSelectors() {
+        assertThat(catchThrowable(() -> GradeSelector.parse("[]"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> GradeSelector.parse("{\"subject\":")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(catchThrowable(() -> GradeSelector.parse("{\"$nor\":[]}")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Unsupported operator $nor");
+        assertThat(catchThrowable(() -> GradeSelector.parse("{\"grade\":{\"$in\":4}}")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("$in requires array");
+    }
+}
@@ -0,0 +1,86 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StateCacheTest {
+
+    @Test
+    public void shouldReadKeyOnce() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getStringState("key")).thenReturn("value");
+        StateCache state = new StateCache(stub);
+
+        assertThat(state.getStringState("key")).isEqualTo("value");
+        assertThat(state.getStringState("key")).isEqualTo("value");
+        verify(stub, times(1)).getStringState("key");
+    }
+
+    @Test
+    public void shouldCacheMissingKey() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        StateCache state = new StateCache(stub);
+
+        assertThat(state.getStringState("key")).isEmpty();
+        assertThat(state.getStringState("key")).isEmpty();
+        verify(stub, times(1)).getStringState("key");
+    }
+
+    @Test
+    public void shouldSeeOwnWrites() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        StateCache state = new StateCache(stub);
+
+        state.putStringState("key", "value");
+
+        assertThat(state.getStringState("key")).isEqualTo("value");
+        verify(stub).putStringState("key", "value");
+        verify(stub, never()).getStringState("key");
+    }
+
+    @Test
+    public void shouldSeeOwnDeletes() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getStringState("key")).thenReturn("value");
+        StateCache state = new StateCache(stub);
+
+        state.getStringState("key");
+        state.delState("key");
+
+        assertThat(state.getStringState("key")).isEmpty();
+        verify(stub).delState("key");
+        verify(stub, times(1)).getStringState("key");
+    }
+
+    @Test
+    public void shouldReadBytesOnce() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getState("key")).thenReturn(new byte[]{1, 2});
+        StateCache state = new StateCache(stub);
+
+        assertThat(state.getState("key")).isEqualTo(new byte[]{1, 2});
+        assertThat(state.getState("key")).isEqualTo(new byte[]{1, 2});
+        verify(stub, times(1)).getState("key");
+    }
+
+    @Test
+    public void shouldSeeOwnByteWritesAsStrings() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        StateCache state = new StateCache(stub);
+
+        state.putState("key", "value".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(state.getStringState("key")).isEqualTo("value");
+        verify(stub).putState("key", "value".getBytes(StandardCharsets.UTF_8));
+        verify(stub, never()).getStringState("key");
+    }
+}
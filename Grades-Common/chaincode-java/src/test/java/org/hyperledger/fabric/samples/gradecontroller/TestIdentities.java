@@ -0,0 +1,62 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Creators of transactions signed with certificates kept in
+ * identities directory of test resources. Certificates carry the same
+ * attributes extension Fabric CA adds to enrollment certificates.
+ */
+final class TestIdentities {
+
+    static final String MSP_ID = "Org1MSP";
+
+    private TestIdentities() {
+
+    }
+
+    /**
+     * SerializedIdentity is written by hand, because package of the
+     * protobuf classes differs between shim versions.
+     *
+     * @param name Name of certificate file without .pem
+     * @return Serialized identity as returned by ChaincodeStub.getCreator()
+     */
+    static byte[] creator(final String name) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeField(out, 1, MSP_ID.getBytes(StandardCharsets.UTF_8));
+        writeField(out, 2, certificate(name));
+        return out.toByteArray();
+    }
+
+    private static byte[] certificate(final String name) {
+        String resource = "/identities/" + name + ".pem";
+        try (InputStream in = TestIdentities.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException(String.format("Missing certificate %s", resource));
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Cannot read certificate %s", resource), e);
+        }
+    }
+
+    private static void writeField(final ByteArrayOutputStream out, final int field, final byte[] value) {
+        // Length-delimited wire type
+        writeVarint(out, field << 3 | 2);
+        writeVarint(out, value.length);
+        out.write(value, 0, value.length);
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            out.write((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+}
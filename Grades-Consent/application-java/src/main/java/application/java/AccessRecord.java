@@ -0,0 +1,97 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Objects;
+
+public class AccessRecord {
+    @JsonProperty("author")
+    private String author;
+    @JsonProperty("operation")
+    private String operation;
+    @JsonProperty("gradeIds")
+    private List<String> gradeIds;
+    @JsonProperty("txId")
+    private String txId;
+    @JsonProperty("timestamp")
+    private Long timestamp;
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public List<String> getGradeIds() {
+        return gradeIds;
+    }
+
+    public void setGradeIds(List<String> gradeIds) {
+        this.gradeIds = gradeIds;
+    }
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public void setTxId(String txId) {
+        this.txId = txId;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public AccessRecord() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        AccessRecord that = (AccessRecord) o;
+
+        return Objects.equals(author, that.author)
+                && Objects.equals(operation, that.operation)
+                && Objects.equals(gradeIds, that.gradeIds)
+                && Objects.equals(txId, that.txId)
+                && Objects.equals(timestamp, that.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getAuthor(), getOperation(), getGradeIds(), getTxId(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[author = " + author
+                + ", operation = " + operation
+                + ", gradeIds = " + gradeIds
+                + ", txId = " + txId
+                + ", timestamp = " + timestamp + "]";
+    }
+
+}
@@ -0,0 +1,22 @@
+package application.java;
+
+/**
+ * How reads of grades are recorded, set with grades.access-recording property.
+ * Paginated queries and history can only be evaluated, so in both modes
+ * access to them is submitted with recordGradesAccess in background.
+ */
+public enum AccessRecording {
+    /**
+     * Reads are submitted, access is recorded by the same transaction.
+     */
+    SUBMIT,
+    /**
+     * Reads are evaluated on one peer, access is submitted with
+     * recordGradesAccess in background after the response is ready.
+     * Scans of all grades, subject or teacher are submitted with
+     * recordGradesScan, which keeps one scan record per query.
+     * Records are best-effort, ones rejected by full queue, failing
+     * every retry or left at shutdown are only logged.
+     */
+    ASYNC
+}
@@ -0,0 +1,84 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class ConsentGrant {
+    @JsonProperty("student")
+    private String student;
+    @JsonProperty("viewer")
+    private String viewer;
+    @JsonProperty("scope")
+    private String scope;
+    @JsonProperty("timestamp")
+    private Long timestamp;
+
+    public String getStudent() {
+        return student;
+    }
+
+    public void setStudent(String student) {
+        this.student = student;
+    }
+
+    public String getViewer() {
+        return viewer;
+    }
+
+    public void setViewer(String viewer) {
+        this.viewer = viewer;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public ConsentGrant() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        ConsentGrant that = (ConsentGrant) o;
+
+        return Objects.equals(student, that.student)
+                && Objects.equals(viewer, that.viewer)
+                && Objects.equals(scope, that.scope)
+                && Objects.equals(timestamp, that.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getStudent(), getViewer(), getScope(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[student = " + student
+                + ", viewer = " + viewer
+                + ", scope = " + scope
+                + ", timestamp = " + timestamp + "]";
+    }
+
+}
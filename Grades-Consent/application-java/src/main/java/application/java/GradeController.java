@@ -9,86 +9,305 @@ import org.hyperledger.fabric.sdk.Enrollment;
 import org.hyperledger.fabric.sdk.User;
 import org.hyperledger.fabric.sdk.security.CryptoSuite;
 import org.hyperledger.fabric.sdk.security.CryptoSuiteFactory;
+import org.hyperledger.fabric_ca.sdk.Attribute;
 import org.hyperledger.fabric_ca.sdk.EnrollmentRequest;
 import org.hyperledger.fabric_ca.sdk.HFCAClient;
 import org.hyperledger.fabric_ca.sdk.RegistrationRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpSession;
 import javax.validation.constraints.NotNull;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @RestController
-public class GradeController {
+public class GradeController implements AutoCloseable {
 
     static {
         System.setProperty("org.hyperledger.fabric.sdk.service_discovery.as_localhost", "true");
     }
 
     private static final Logger LOGGER = LogManager.getLogger(GradeController.class);
-    private Contract contract;
-    private byte[] result;
+    // Identity of logged in user is kept in session of each client, so requests of other users never act as them
+    public static final String USER_ATTRIBUTE = "user";
+    public static final String ORGANIZATION_ATTRIBUTE = "organization";
     private final ObjectMapper objectMapper = new ObjectMapper();
-    Gateway.Builder builder;
-    private String currentUser;
-    private Organizations currentOrganization;
+    private final GatewayPool gateways;
+    private final AccessRecording accessRecording;
+    // Access records wait in bounded queue, so slow ordering cannot exhaust memory of the app
+    static final int ACCESS_QUEUE_SIZE = 1000;
+    static final int ACCESS_RECORD_ATTEMPTS = 3;
+    static final long ACCESS_RETRY_DELAY_MILLIS = 500;
+    private final ExecutorService accessRecorder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(ACCESS_QUEUE_SIZE));
+    private volatile TransactionIntents intents;
+
+    public GradeController(GatewayPool gateways,
+                           @Value("${grades.access-recording:SUBMIT}") AccessRecording accessRecording) {
+        this.gateways = gateways;
+        this.accessRecording = accessRecording;
+    }
 
     @GetMapping("/grades")
-    public List<Grade> getAllGrades() throws IOException {
+    public List<Grade> getAllGrades(HttpSession session) throws IOException {
         LOGGER.info("Getting all grades");
-        String roles = FileHandler.readRolesFromFile(currentUser, currentOrganization);
-        try (Gateway gateway = builder.connect()) {
-            connectToChain(gateway);
-            result = contract.submitTransaction("getAllGrades", currentUser, roles);
+        byte[] result = null;
+        try {
+            result = read(session, "getAllGrades", user(session));
         } catch (Exception e) {
             LOGGER.error(e.getMessage(),e);
         }
-        return objectMapper.readValue(result, new TypeReference<List<Grade>>() {
-        });
+        return recordScanAccess(session, objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        }));
     }
 
     @GetMapping("/grades/{gradeId}")
-    public Grade getGrade(@PathVariable String gradeId) throws IOException {
-        String roles = FileHandler.readRolesFromFile(currentUser, currentOrganization);
-        try (Gateway gateway = builder.connect()) {
+    public Grade getGrade(@PathVariable String gradeId, HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
             LOGGER.info("Get grade with id: " + gradeId);
-            connectToChain(gateway);
-            result = contract.submitTransaction("ReadGrade", currentUser, roles, gradeId);
+            result = read(session, "ReadGrade", user(session), gradeId);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(),e);
         }
-        return objectMapper.readValue(result, Grade.class);
+        Grade grade = objectMapper.readValue(result, Grade.class);
+        recordReadAccess(session, List.of(grade));
+        return grade;
+    }
+
+    @GetMapping("/grades/{gradeId}/history")
+    public List<GradeModification> getGradeHistory(@PathVariable String gradeId,
+                                                   @RequestParam(defaultValue = "10") Integer limit,
+                                                   HttpSession session) throws IOException {
+        LOGGER.info("Get history of grade with id: " + gradeId);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradeHistory", user(session), gradeId, limit.toString());
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        List<GradeModification> history = objectMapper.readValue(result, new TypeReference<List<GradeModification>>() {
+        });
+        recordGradesAccess(session, List.of(gradeId));
+        return history;
+    }
+
+    @GetMapping("/grades/{gradeId}/visitors")
+    public Map<String, VisitorStats> getGradeVisitors(@PathVariable String gradeId, HttpSession session) throws IOException {
+        LOGGER.info("Get visitors of grade with id: " + gradeId);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradeVisitors", user(session), gradeId);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, new TypeReference<Map<String, VisitorStats>>() {
+        });
+    }
+
+    @GetMapping(value = "/grades", params = "ids")
+    public List<GradeResult> getGrades(@RequestParam List<String> ids, HttpSession session) throws IOException {
+        LOGGER.info("Get grades with ids: " + ids);
+        byte[] result = null;
+        try {
+            result = read(session, "ReadGrades", user(session), objectMapper.writeValueAsString(ids));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        List<GradeResult> results = objectMapper.readValue(result, new TypeReference<List<GradeResult>>() {
+        });
+        List<Grade> grades = new ArrayList<>();
+        for (GradeResult gradeResult : results) {
+            if (gradeResult.getGrade() != null) {
+                grades.add(gradeResult.getGrade());
+            }
+        }
+        recordReadAccess(session, grades);
+        return results;
     }
 
     @GetMapping("/student")
-    public List<Grade> getGradesForStudent(@RequestParam String studentName) throws IOException {
+    public List<Grade> getGradesForStudent(@RequestParam String studentName, HttpSession session) throws IOException {
         LOGGER.info("Getting grades for " + studentName);
-        String roles = FileHandler.readRolesFromFile(currentUser, currentOrganization);
-        try (Gateway gateway = builder.connect()) {
-            connectToChain(gateway);
-            result = contract.submitTransaction("getGradesForStudent", currentUser, roles, studentName);
+        byte[] result = null;
+        try {
+            result = read(session, "getGradesForStudent", user(session), studentName);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(),e);
         }
         // Map Json to Grades object
-        return objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        return recordReadAccess(session, objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        }));
+    }
+
+    @GetMapping("/subject")
+    public List<Grade> getGradesBySubject(@RequestParam String subject, HttpSession session) throws IOException {
+        LOGGER.info("Getting grades in " + subject);
+        byte[] result = null;
+        try {
+            result = read(session, "getGradesBySubject", user(session), subject);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return recordScanAccess(session, objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        }));
+    }
+
+    @GetMapping("/teacher")
+    public List<Grade> getGradesByTeacher(@RequestParam String teacher, HttpSession session) throws IOException {
+        LOGGER.info("Getting grades given by " + teacher);
+        byte[] result = null;
+        try {
+            result = read(session, "getGradesByTeacher", user(session), teacher);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return recordScanAccess(session, objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        }));
+    }
+
+    @GetMapping(value = "/grades", params = "pageSize")
+    public GradePage getAllGradesPage(@RequestParam Integer pageSize,
+                                      @RequestParam(defaultValue = "") String bookmark,
+                                      HttpSession session) throws IOException {
+        LOGGER.info("Getting page of all grades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "getAllGradesPage", user(session), pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        GradePage page = objectMapper.readValue(result, GradePage.class);
+        recordGradesAccess(session, page);
+        return page;
+    }
+
+    @GetMapping(value = "/student", params = "pageSize")
+    public GradePage getGradesForStudentPage(@RequestParam String studentName,
+                                             @RequestParam Integer pageSize,
+                                             @RequestParam(defaultValue = "") String bookmark,
+                                             HttpSession session) throws IOException {
+        LOGGER.info("Getting page of grades for " + studentName);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradesForStudentPage", user(session), studentName, pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        GradePage page = objectMapper.readValue(result, GradePage.class);
+        recordGradesAccess(session, page);
+        return page;
+    }
+
+    @GetMapping("/access")
+    public AccessPage getAccessLog(@RequestParam String student,
+                                   @RequestParam(defaultValue = "0") Long since,
+                                   @RequestParam Integer pageSize,
+                                   @RequestParam(defaultValue = "") String bookmark,
+                                   HttpSession session) throws IOException {
+        LOGGER.info("Getting access log of " + student);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getAccessLog", user(session), student, since.toString(), pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, AccessPage.class);
+    }
+
+    @GetMapping("/scans")
+    public ScanPage getScanLog(@RequestParam String student,
+                               @RequestParam(defaultValue = "0") Long since,
+                               @RequestParam Integer pageSize,
+                               @RequestParam(defaultValue = "") String bookmark,
+                               HttpSession session) throws IOException {
+        LOGGER.info("Getting scan log of " + student);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getScanLog", user(session), student, since.toString(), pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, ScanPage.class);
+    }
+
+    @GetMapping("/consents")
+    public List<ConsentGrant> getConsents(@RequestParam String student, HttpSession session) throws IOException {
+        LOGGER.info("Getting consents of " + student);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getConsents", user(session), student);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<ConsentGrant>>() {
         });
     }
 
+    @PostMapping("/consents")
+    public ConsentGrant grantConsent(@RequestParam String viewer,
+                                     @RequestParam String scope,
+                                     HttpSession session) throws IOException {
+        LOGGER.info("Granting " + viewer + " consent to " + scope);
+        byte[] result = null;
+        try {
+            result = invoke(session, "grantConsent", user(session), viewer, scope);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, ConsentGrant.class);
+    }
+
+    @DeleteMapping("/consents")
+    public void revokeConsent(@RequestParam String viewer,
+                              @RequestParam String scope,
+                              HttpSession session) throws IOException {
+        LOGGER.info("Revoking " + viewer + " consent to " + scope);
+        try {
+            invoke(session, "revokeConsent", user(session), viewer, scope);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+    }
+
+    @GetMapping("/grades/query")
+    public GradePage queryGrades(@RequestParam String selector,
+                                 @RequestParam Integer pageSize,
+                                 @RequestParam(defaultValue = "") String bookmark,
+                                 HttpSession session) throws IOException {
+        LOGGER.info("Querying grades with " + selector);
+        byte[] result = null;
+        try {
+            result = invoke(session, "queryGrades", user(session), selector, pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        GradePage page = objectMapper.readValue(result, GradePage.class);
+        recordGradesAccess(session, page);
+        return page;
+    }
+
     @PostMapping("/grades")
     public Grade addGrade(@RequestParam Double gradeValue,
                           @RequestParam String subject,
                           @RequestParam String teacher,
-                          @RequestParam String student) throws IOException {
-        String roles = FileHandler.readRolesFromFile(currentUser, currentOrganization);
-        try (Gateway gateway = builder.connect()) {
-            connectToChain(gateway);
-            result = contract.submitTransaction("addGrade", currentUser, roles, gradeValue.toString(), subject, teacher, student);
+                          @RequestParam String student,
+                          HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
+            result = invoke(session, "addGrade", user(session), gradeValue.toString(), subject, teacher, student);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(),e);
         }
@@ -96,18 +315,43 @@ public class GradeController {
         return objectMapper.readValue(result, Grade.class);
     }
 
+    @PostMapping("/grades/batch")
+    public List<GradeResult> addGrades(@RequestBody List<Grade> grades, HttpSession session) throws IOException {
+        LOGGER.info("Adding " + grades.size() + " grades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "addGrades", user(session), objectMapper.writeValueAsString(grades));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<GradeResult>>() {
+        });
+    }
+
+    @PutMapping("/grades/batch")
+    public List<GradeResult> updateGrades(@RequestBody List<Grade> grades, HttpSession session) throws IOException {
+        LOGGER.info("Updating " + grades.size() + " grades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "updateGrades", user(session), objectMapper.writeValueAsString(grades));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(),e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<GradeResult>>() {
+        });
+    }
+
     @PutMapping("/grades/{gradeId}")
     public Grade updateGrade(@PathVariable String gradeId,
                              @RequestParam Double gradeValue,
                              @RequestParam String subject,
                              @RequestParam String teacher,
-                             @RequestParam String student) throws IOException {
-
-        String roles = FileHandler.readRolesFromFile(currentUser, currentOrganization);
-        try (Gateway gateway = builder.connect()) {
+                             @RequestParam String student,
+                             HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
             LOGGER.info("Update grade with: " + gradeId);
-            connectToChain(gateway);
-            result = contract.submitTransaction("UpdateGrade", currentUser, roles, gradeId, gradeValue.toString(), subject, teacher, student);
+            result = invoke(session, "UpdateGrade", user(session), gradeId, gradeValue.toString(), subject, teacher, student);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(),e);
         }
@@ -117,39 +361,196 @@ public class GradeController {
 
 
     @DeleteMapping("/grades/{gradeId}")
-    public Grade deleteGrade(@PathVariable String gradeId) throws IOException {
-        String roles = FileHandler.readRolesFromFile(currentUser, currentOrganization);
-        try (Gateway gateway = builder.connect()) {
+    public Grade deleteGrade(@PathVariable String gradeId, HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
             LOGGER.info("Delete grade with id: " + gradeId);
-            connectToChain(gateway);
-            result = contract.submitTransaction("ReadGrade", gradeId);
-            contract.submitTransaction("DeleteGrade", currentUser, roles, gradeId);
+            result = read(session, "ReadGrade", user(session), gradeId);
+            invoke(session, "DeleteGrade", user(session), gradeId);
         } catch (Exception e) {
             LOGGER.error(e.getMessage(),e);
         }
         return objectMapper.readValue(result, Grade.class);
     }
 
-    private void connectToChain(Gateway gateway) {
-        Network network = gateway.getNetwork("mychannel");
-        contract = network.getContract("grades");
+    // Paginated queries are read-only in Fabric, so access is recorded in separate transaction
+    private void recordGradesAccess(HttpSession session, GradePage page) throws IOException {
+        List<String> gradeIds = new ArrayList<>();
+        for (Grade grade : page.getRecords()) {
+            gradeIds.add(grade.getGradeId());
+        }
+        recordGradesAccess(session, gradeIds);
+    }
+
+    // Grades returned by evaluated reads only have access recorded when it is done asynchronously
+    private List<Grade> recordReadAccess(HttpSession session, List<Grade> grades) throws IOException {
+        if (accessRecording == AccessRecording.ASYNC) {
+            recordGradesAccess(session, gradeIds(grades));
+        }
+        return grades;
+    }
+
+    // Scans keep one scan record per query, also when nothing was found, like when they are submitted
+    private List<Grade> recordScanAccess(HttpSession session, List<Grade> grades) throws IOException {
+        if (accessRecording == AccessRecording.ASYNC) {
+            submitInBackground(session, "recordGradesScan", gradeIds(grades));
+        }
+        return grades;
+    }
+
+    private static List<String> gradeIds(List<Grade> grades) {
+        List<String> gradeIds = new ArrayList<>();
+        for (Grade grade : grades) {
+            gradeIds.add(grade.getGradeId());
+        }
+        return gradeIds;
+    }
+
+    // Only path submitting recordGradesAccess, it records grades already returned by evaluated reads
+    private void recordGradesAccess(HttpSession session, List<String> gradeIds) throws IOException {
+        if (!gradeIds.isEmpty()) {
+            submitInBackground(session, "recordGradesAccess", gradeIds);
+        }
+    }
+
+    private void submitInBackground(HttpSession session, String transaction, List<String> gradeIds) throws IOException {
+        String gradeIdsJson = objectMapper.writeValueAsString(gradeIds);
+        // Identity is captured now, session may log in as someone else before record is submitted
+        GatewayPool.Lease lease = lease(session);
+        String author = user(session);
+        AccessSubmission submission = new AccessSubmission(lease, transaction, author, gradeIdsJson);
+        try {
+            accessRecorder.execute(submission);
+        } catch (RejectedExecutionException e) {
+            // Response is already read, so full queue or shutdown only loses the record
+            LOGGER.error("Access record rejected, queue is full or application is stopping: " + submission);
+            lease.close();
+        }
+    }
+
+    // Reads of grades record access, so they are submitted unless access is recorded asynchronously
+    private byte[] read(HttpSession session, String transaction, String... args) throws Exception {
+        if (accessRecording == AccessRecording.ASYNC) {
+            try (GatewayPool.Lease lease = lease(session)) {
+                return lease.contract().evaluateTransaction(transaction, args);
+            }
+        }
+        return invoke(session, transaction, args);
+    }
+
+    private byte[] invoke(HttpSession session, String transaction, String... args) throws Exception {
+        try (GatewayPool.Lease lease = lease(session)) {
+            Contract contract = lease.contract();
+            if (intents(contract).isEvaluated(transaction)) {
+                return contract.evaluateTransaction(transaction, args);
+            }
+            return contract.submitTransaction(transaction, args);
+        }
+    }
+
+    // Metadata is the same for every identity, so it is read once
+    private TransactionIntents intents(Contract contract) {
+        if (intents == null) {
+            try {
+                intents = TransactionIntents.load(contract);
+            } catch (Exception e) {
+                LOGGER.error("Cannot read metadata of chaincode, submitting all transactions", e);
+                return TransactionIntents.NONE;
+            }
+        }
+        return intents;
+    }
+
+    private GatewayPool.Lease lease(HttpSession session) {
+        return gateways.lease(organization(session), user(session));
+    }
+
+    private static String user(HttpSession session) {
+        String user = (String) session.getAttribute(USER_ATTRIBUTE);
+        if (user == null) {
+            throw new IllegalStateException("No user is logged in");
+        }
+        return user;
+    }
+
+    private static Organizations organization(HttpSession session) {
+        return (Organizations) session.getAttribute(ORGANIZATION_ATTRIBUTE);
+    }
+
+    // Lets access records still waiting in background reach the ledger, logs the ones that did not
+    @Override
+    public void close() throws InterruptedException {
+        accessRecorder.shutdown();
+        if (!accessRecorder.awaitTermination(30, TimeUnit.SECONDS)) {
+            List<Runnable> unsubmitted = accessRecorder.shutdownNow();
+            LOGGER.error(unsubmitted.size() + " access records were not submitted before shutdown");
+            for (Runnable record : unsubmitted) {
+                LOGGER.error("Access record not submitted: " + record);
+                ((AccessSubmission) record).lease.close();
+            }
+        }
+    }
+
+    // Submits access record in background, retrying failed submissions before giving up
+    private static final class AccessSubmission implements Runnable {
+        private final GatewayPool.Lease lease;
+        private final String transaction;
+        private final String author;
+        private final String gradeIdsJson;
+
+        AccessSubmission(GatewayPool.Lease lease, String transaction, String author, String gradeIdsJson) {
+            this.lease = lease;
+            this.transaction = transaction;
+            this.author = author;
+            this.gradeIdsJson = gradeIdsJson;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int attempt = 1; attempt <= ACCESS_RECORD_ATTEMPTS; attempt++) {
+                    try {
+                        lease.contract().submitTransaction(transaction, author, gradeIdsJson);
+                        return;
+                    } catch (Exception e) {
+                        LOGGER.error("Attempt " + attempt + " of " + ACCESS_RECORD_ATTEMPTS + " to submit " + this + " failed", e);
+                    }
+                    if (attempt < ACCESS_RECORD_ATTEMPTS) {
+                        Thread.sleep(ACCESS_RETRY_DELAY_MILLIS * attempt);
+                    }
+                }
+                LOGGER.error("Access record not submitted: " + this);
+            } catch (InterruptedException e) {
+                LOGGER.error("Access record not submitted, application is stopping: " + this);
+                Thread.currentThread().interrupt();
+            } finally {
+                lease.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return transaction + " by " + author + " of " + gradeIdsJson;
+        }
     }
 
     @RestController
     private class LoginController {
         @GetMapping("/logIn")
-        public String logIn(@RequestParam Organizations org, @RequestParam String userName) {
+        public String logIn(@RequestParam Organizations org, @RequestParam String userName, HttpSession session) {
             //Current location of connection file for organization
             Path networkConfigPath = Paths.get("test-network", "organizations", "peerOrganizations", org.name().toLowerCase() + ".example.com", "connection-" + org.name().toLowerCase() + ".yaml");
             try {
                 Path walletPath = Paths.get(org.name().toLowerCase() + "Wallet");
                 Wallet wallet = Wallets.newFileSystemWallet(walletPath);
-                builder = Gateway.createBuilder();
+                Gateway.Builder builder = Gateway.createBuilder();
                 builder.identity(wallet, userName).networkConfig(networkConfigPath).discovery(true);
+                gateways.register(org, userName, builder);
             } catch (Exception e) {
                 LOGGER.error("No such user as " + userName);
             }
-            setCurrentUserAndOrganization(userName, org);
+            session.setAttribute(USER_ATTRIBUTE, userName);
+            session.setAttribute(ORGANIZATION_ATTRIBUTE, org);
             String returnMsg = "Successfully logged user " + userName;
             System.out.println(returnMsg);
             return returnMsg;
@@ -235,8 +636,7 @@ public class GradeController {
                 return;
             }
 
-            writeRolesFile(userName, org, roles);
-            registerUserInChain(wallet, affiliation, adminIdentity, mspId, userName, caClient);
+            registerUserInChain(wallet, affiliation, adminIdentity, mspId, userName, roles, caClient);
             System.out.printf("Successfully enrolled user \"%s\" and imported it into the wallet%n", userName);
         }
     }
@@ -246,22 +646,20 @@ public class GradeController {
                                      X509Identity adminIdentity,
                                      String mspId,
                                      String userName,
+                                     Set<String> roles,
                                      HFCAClient caClient) throws Exception {
         User admin = new UserImpl("admin", Set.of("Admin"), affiliation, adminIdentity, mspId);
         RegistrationRequest registrationRequest = new RegistrationRequest(userName);
         registrationRequest.setAffiliation(affiliation);
         registrationRequest.setEnrollmentID(userName);
+        // Chaincode reads roles from enrollment certificate, so they cannot be changed by the app
+        registrationRequest.addAttribute(new Attribute("roles", String.join(";", roles), true));
         String enrollmentSecret = caClient.register(registrationRequest, admin);
         Enrollment enrollment = caClient.enroll(userName, enrollmentSecret);
         Identity user = Identities.newX509Identity(mspId, enrollment);
         wallet.put(userName, user);
     }
 
-    private void writeRolesFile(String userName, Organizations org, Set<String> roles) throws IOException {
-        File rolesFile = FileHandler.createFileForRoles(userName, org);
-        FileHandler.writeRolesToFile(rolesFile, roles);
-    }
-
     private CryptoSuite createCryptoSuite(HFCAClient caClient) throws Exception {
         return CryptoSuiteFactory.getDefault().getCryptoSuite();
     }
@@ -270,10 +668,6 @@ public class GradeController {
         return wallet.get("admin") != null;
     }
 
-    private void setCurrentUserAndOrganization(String userName, Organizations org) {
-        currentUser = userName;
-        currentOrganization = org;
-    }
 
 
 }
@@ -0,0 +1,73 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Objects;
+
+public class GradePage {
+    @JsonProperty("records")
+    private List<Grade> records;
+    @JsonProperty("fetchedRecordsCount")
+    private Integer fetchedRecordsCount;
+    @JsonProperty("bookmark")
+    private String bookmark;
+
+    public List<Grade> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<Grade> records) {
+        this.records = records;
+    }
+
+    public Integer getFetchedRecordsCount() {
+        return fetchedRecordsCount;
+    }
+
+    public void setFetchedRecordsCount(Integer fetchedRecordsCount) {
+        this.fetchedRecordsCount = fetchedRecordsCount;
+    }
+
+    public String getBookmark() {
+        return bookmark;
+    }
+
+    public void setBookmark(String bookmark) {
+        this.bookmark = bookmark;
+    }
+
+    public GradePage() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        GradePage that = (GradePage) o;
+
+        return Objects.equals(records, that.records)
+                && Objects.equals(fetchedRecordsCount, that.fetchedRecordsCount)
+                && Objects.equals(bookmark, that.bookmark);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getRecords(), getFetchedRecordsCount(), getBookmark());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[records = " + records
+                + ", fetchedRecordsCount = " + fetchedRecordsCount
+                + ", bookmark = " + bookmark + "]";
+    }
+
+}
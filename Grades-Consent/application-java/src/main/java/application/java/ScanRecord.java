@@ -0,0 +1,122 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class ScanRecord {
+    @JsonProperty("author")
+    private String author;
+    @JsonProperty("operation")
+    private String operation;
+    @JsonProperty("startKey")
+    private String startKey;
+    @JsonProperty("endKey")
+    private String endKey;
+    @JsonProperty("gradeIds")
+    private Map<String, List<String>> gradeIds;
+    @JsonProperty("txId")
+    private String txId;
+    @JsonProperty("timestamp")
+    private Long timestamp;
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getStartKey() {
+        return startKey;
+    }
+
+    public void setStartKey(String startKey) {
+        this.startKey = startKey;
+    }
+
+    public String getEndKey() {
+        return endKey;
+    }
+
+    public void setEndKey(String endKey) {
+        this.endKey = endKey;
+    }
+
+    public Map<String, List<String>> getGradeIds() {
+        return gradeIds;
+    }
+
+    public void setGradeIds(Map<String, List<String>> gradeIds) {
+        this.gradeIds = gradeIds;
+    }
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public void setTxId(String txId) {
+        this.txId = txId;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public ScanRecord() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        ScanRecord that = (ScanRecord) o;
+
+        return Objects.equals(author, that.author)
+                && Objects.equals(operation, that.operation)
+                && Objects.equals(startKey, that.startKey)
+                && Objects.equals(endKey, that.endKey)
+                && Objects.equals(gradeIds, that.gradeIds)
+                && Objects.equals(txId, that.txId)
+                && Objects.equals(timestamp, that.timestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getAuthor(), getOperation(), getStartKey(), getEndKey(), getGradeIds(), getTxId(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[author = " + author
+                + ", operation = " + operation
+                + ", startKey = " + startKey
+                + ", endKey = " + endKey
+                + ", gradeIds = " + gradeIds
+                + ", txId = " + txId
+                + ", timestamp = " + timestamp + "]";
+    }
+
+}
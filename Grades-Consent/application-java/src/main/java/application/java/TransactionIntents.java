@@ -0,0 +1,51 @@
+package application.java;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.ContractException;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Intents of chaincode transactions, read from metadata published by the
+ * contract. Transactions marked EVALUATE only read the ledger, so they are
+ * evaluated on a single peer instead of being ordered and committed.
+ * Contract metadata lists intent of every transaction in its "tags" array.
+ * Transactions missing from metadata are submitted.
+ */
+public class TransactionIntents {
+
+    static final String GET_METADATA = "org.hyperledger.fabric:GetMetadata";
+    static final TransactionIntents NONE = new TransactionIntents(Set.of());
+
+    private final Set<String> evaluated;
+
+    TransactionIntents(Set<String> evaluated) {
+        this.evaluated = evaluated;
+    }
+
+    public static TransactionIntents load(Contract contract) throws ContractException, IOException {
+        return parse(contract.evaluateTransaction(GET_METADATA));
+    }
+
+    static TransactionIntents parse(byte[] metadata) throws IOException {
+        Set<String> evaluated = new HashSet<>();
+        for (JsonNode contract : new ObjectMapper().readTree(metadata).path("contracts")) {
+            for (JsonNode transaction : contract.path("transactions")) {
+                for (JsonNode tag : transaction.path("tags")) {
+                    if ("EVALUATE".equalsIgnoreCase(tag.asText())) {
+                        evaluated.add(transaction.path("name").asText());
+                    }
+                }
+            }
+        }
+        return new TransactionIntents(evaluated);
+    }
+
+    public boolean isEvaluated(String transaction) {
+        return evaluated.contains(transaction);
+    }
+}
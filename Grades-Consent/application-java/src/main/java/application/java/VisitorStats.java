@@ -0,0 +1,60 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class VisitorStats {
+    @JsonProperty("count")
+    private Integer count;
+    @JsonProperty("lastAccess")
+    private Long lastAccess;
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public Long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void setLastAccess(Long lastAccess) {
+        this.lastAccess = lastAccess;
+    }
+
+    public VisitorStats() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        VisitorStats that = (VisitorStats) o;
+
+        return Objects.equals(count, that.count)
+                && Objects.equals(lastAccess, that.lastAccess);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getCount(), getLastAccess());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[count = " + count
+                + ", lastAccess = " + lastAccess + "]";
+    }
+
+}
@@ -1,4 +1,5 @@
-import application.java.FileHandler;
+import application.java.AccessRecording;
+import application.java.GatewayPool;
 import application.java.GradeController;
 import application.java.Organizations;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,7 +11,7 @@ import org.hyperledger.fabric.gateway.Wallet;
 import org.hyperledger.fabric.gateway.Wallets;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
+import org.springframework.mock.web.MockHttpSession;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -23,16 +24,16 @@ import static org.mockito.Mockito.*;
 
 public class TimeTests {
     private static GradeController tested;
+    private final MockHttpSession session = new MockHttpSession();
 
     @BeforeAll
     static void logAsUser() throws Exception {
-        tested = new GradeController();
+        tested = new GradeController(new GatewayPool(), AccessRecording.SUBMIT);
 
     }
 
     @Test
     public void timeOfAdding() throws Exception {
-        MockedStatic<FileHandler> fh = mockStatic(FileHandler.class);
         Contract contract;
         byte[] result;
         final ObjectMapper objectMapper = new ObjectMapper();
@@ -48,10 +49,12 @@ public class TimeTests {
         } catch (Exception e) {
             System.out.println("No such user as " + currentUser);
         }
+        session.setAttribute(GradeController.USER_ATTRIBUTE, currentUser);
+        session.setAttribute(GradeController.ORGANIZATION_ATTRIBUTE, currentOrganization);
         List<Long> listOfTimesWriting = new ArrayList<>();
         for (int i = 0; i <= 99; i++) {
             Instant start = Instant.now();
-            tested.addGrade(2.0, "Math", "teacher", "student");
+            tested.addGrade(2.0, "Math", "teacher", "student", session);
             Instant finish = Instant.now();
             Long timeElapsed = Duration.between(start, finish).toMillis();
             System.out.println("Time elapsed: " + timeElapsed);
@@ -62,7 +65,7 @@ public class TimeTests {
         List<Long> listOfTimesReading = new ArrayList<>();
         for (int i = 0; i <= 99; i++) {
             Instant start = Instant.now();
-            tested.getGrade("student" + i);
+            tested.getGrade("student" + i, session);
             Instant finish = Instant.now();
             Long timeElapsed = Duration.between(start, finish).toMillis();
             System.out.println("Time elapsed: " + timeElapsed);
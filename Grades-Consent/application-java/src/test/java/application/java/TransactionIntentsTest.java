@@ -0,0 +1,47 @@
+package application.java;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TransactionIntentsTest {
+
+    // org.hyperledger.fabric:GetMetadata response of the grades contract, as written by MetadataBuilder of the shim
+    private static byte[] metadata() throws IOException {
+        try (InputStream in = TransactionIntentsTest.class.getResourceAsStream("/contract-metadata.json")) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void shouldEvaluateTransactionsTaggedEvaluate() throws Exception {
+        TransactionIntents intents = TransactionIntents.parse(metadata());
+
+        assertThat(intents.isEvaluated("getGradeHistory")).isTrue();
+        assertThat(intents.isEvaluated("queryGrades")).isTrue();
+        // Reads of grades record access in Consent, so they are submitted
+        assertThat(intents.isEvaluated("ReadGrade")).isFalse();
+        assertThat(intents.isEvaluated("addGrade")).isFalse();
+        assertThat(intents.isEvaluated("gradeExists")).isFalse();
+        assertThat(intents.isEvaluated("unknown")).isFalse();
+    }
+
+    @Test
+    public void shouldLoadMetadataFromContract() throws Exception {
+        Contract contract = mock(Contract.class);
+        when(contract.evaluateTransaction(TransactionIntents.GET_METADATA)).thenReturn(metadata());
+
+        assertThat(TransactionIntents.load(contract).isEvaluated("getGradeHistory")).isTrue();
+    }
+
+    @Test
+    public void shouldSubmitEverythingWithoutMetadata() {
+        assertThat(TransactionIntents.NONE.isEvaluated("ReadGrade")).isFalse();
+    }
+}
@@ -0,0 +1,71 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares compiled GradePolicy with role checks it replaced, which split
+ * serialized roles and intersected them with new set on every check.
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GradePolicyBenchmark {
+
+    private final String serializedRoles = "Student;Professor";
+
+    private final Set<String> roles = new HashSet<>(Arrays.asList(serializedRoles.split(";")));
+
+    private final Permissions permissions = GradePolicy.get().compile(serializedRoles);
+
+    /**
+     * Checks roles of author the way validators did, roles already deserialized.
+     *
+     * @return true if author may update grades
+     */
+    @Benchmark
+    public boolean roleSet() {
+        return CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"));
+    }
+
+    /**
+     * Checks roles of author the way transactions did, with deserialization of roles.
+     *
+     * @return true if author may update grades
+     */
+    @Benchmark
+    public boolean serializedRoleSet() {
+        return CollectionUtils.containsAny(new HashSet<>(Arrays.asList(serializedRoles.split(";"))), Set.of("Admin", "Professor"));
+    }
+
+    /**
+     * Checks compiled permissions of author.
+     *
+     * @return true if author may update grades
+     */
+    @Benchmark
+    public boolean policy() {
+        return permissions.allows(Operation.UPDATE, false);
+    }
+
+    /**
+     * Compiles permissions of author, done once per certificate.
+     *
+     * @return permissions of author
+     */
+    @Benchmark
+    public Permissions compile() {
+        return GradePolicy.get().compile(serializedRoles);
+    }
+}
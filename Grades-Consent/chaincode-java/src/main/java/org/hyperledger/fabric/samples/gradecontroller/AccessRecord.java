@@ -0,0 +1,96 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Single access to grades of one student, stored under its own
+ * access~student~txId composite key so it is never rewritten.
+ */
+@DataType()
+public final class AccessRecord {
+
+    @Property()
+    private final String author;
+
+    @Property()
+    private final String operation;
+
+    @Property()
+    private final List<String> gradeIds;
+
+    @Property()
+    private final String txId;
+
+    @Property()
+    private final Long timestamp;
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public List<String> getGradeIds() {
+        return gradeIds;
+    }
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public AccessRecord(@JsonProperty("author") final String author, @JsonProperty("operation") final String operation,
+                        @JsonProperty("gradeIds") final List<String> gradeIds, @JsonProperty("txId") final String txId,
+                        @JsonProperty("timestamp") final Long timestamp) {
+        this.author = author;
+        this.operation = operation;
+        this.gradeIds = gradeIds;
+        this.txId = txId;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        AccessRecord that = (AccessRecord) obj;
+
+        return Objects.equals(getAuthor(), that.getAuthor())
+                && Objects.equals(getOperation(), that.getOperation())
+                && Objects.equals(getGradeIds(), that.getGradeIds())
+                && Objects.equals(getTxId(), that.getTxId())
+                && Objects.equals(getTimestamp(), that.getTimestamp());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getAuthor(), getOperation(), getGradeIds(), getTxId(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[author = " + author
+                + ", operation = " + operation
+                + ", gradeIds = " + gradeIds
+                + ", txId = " + txId
+                + ", timestamp = " + timestamp + "]";
+    }
+}
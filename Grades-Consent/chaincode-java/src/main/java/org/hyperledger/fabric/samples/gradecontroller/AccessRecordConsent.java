@@ -0,0 +1,153 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.ACCESS_INDEX;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.SCAN_INDEX;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.VISITOR_INDEX;
+
+/**
+ * Records accesses under keys of their own, so the grades themselves are
+ * not rewritten when they are read. Access to grades of one student is
+ * one access record and one visitor counter per grade and transaction,
+ * query over grades of many students is one scan record.
+ */
+public final class AccessRecordConsent implements ConsentStrategy {
+
+    private final Genson genson = new Genson();
+    private final BiConsumer<Context, Grade> putGrade;
+
+    /**
+     * @param putGrade Writes grade in configured state format
+     */
+    public AccessRecordConsent(final BiConsumer<Context, Grade> putGrade) {
+        this.putGrade = putGrade;
+    }
+
+    @Override
+    public Grade recordCreation(final Context ctx, final String author, final Grade grade) {
+        recordVisit(ctx, author, grade.getGradeId());
+        return grade;
+    }
+
+    @Override
+    public Grade recordAccess(final Context ctx, final String author, final String operation, final Grade grade) {
+        Grade migrated = migrateVisitors(ctx, grade);
+        recordAccess(ctx, author, operation, migrated.getStudent(), List.of(migrated.getGradeId()));
+        return migrated;
+    }
+
+    @Override
+    public void recordAccess(final Context ctx, final String author, final String operation, final List<Grade> grades) {
+        groupByStudent(grades).forEach((student, gradeIds) -> recordAccess(ctx, author, operation, student, gradeIds));
+    }
+
+    /**
+     * Write set of scan does not grow with number of grades read and does
+     * not collide with concurrent reads of the same grades.
+     */
+    @Override
+    public void recordScan(final Context ctx, final String author, final String operation,
+                           final String startKey, final String endKey, final List<Grade> grades) {
+        ChaincodeStub stub = ctx.getStub();
+        Map<String, List<String>> gradeIds = startKey == null ? groupByStudent(grades) : null;
+        ScanRecord record = new ScanRecord(author, operation, startKey, endKey, gradeIds, stub.getTxId(), stub.getTxTimestamp().toEpochMilli());
+        String recordKey = stub.createCompositeKey(SCAN_INDEX, record.getTxId()).toString();
+        GradeContext.state(ctx).putStringState(recordKey, genson.serialize(record));
+    }
+
+    private static Map<String, List<String>> groupByStudent(final List<Grade> grades) {
+        Map<String, List<String>> gradeIdsByStudent = new LinkedHashMap<>();
+        for (Grade grade : grades) {
+            gradeIdsByStudent.computeIfAbsent(grade.getStudent(), student -> new ArrayList<>()).add(grade.getGradeId());
+        }
+        return gradeIdsByStudent;
+    }
+
+    /**
+     * Each transaction performs one operation as one author, so grades of
+     * the same student accessed several times in one transaction, e.g. in
+     * batch update, are merged into one record.
+     *
+     * @param ctx       Context of app
+     * @param author    Author of query
+     * @param operation Operation performed on grades
+     * @param student   Student owning accessed grades
+     * @param gradeIds  Ids of accessed grades
+     */
+    private void recordAccess(final Context ctx, final String author, final String operation, final String student, final List<String> gradeIds) {
+        ChaincodeStub stub = ctx.getStub();
+        StateCache state = GradeContext.state(ctx);
+        String txId = stub.getTxId();
+        String recordKey = stub.createCompositeKey(ACCESS_INDEX, student, txId).toString();
+        List<String> recordedIds = new ArrayList<>();
+        String recordJSON = state.getStringState(recordKey);
+        if (!recordJSON.isEmpty()) {
+            recordedIds.addAll(genson.deserialize(recordJSON, AccessRecord.class).getGradeIds());
+        }
+        recordedIds.addAll(gradeIds);
+        AccessRecord record = new AccessRecord(author, operation, recordedIds, txId, stub.getTxTimestamp().toEpochMilli());
+        state.putStringState(recordKey, genson.serialize(record));
+        for (String gradeId : gradeIds) {
+            recordVisit(ctx, author, gradeId);
+        }
+    }
+
+    /**
+     * Every transaction counts visits under key of its own, so concurrent
+     * accesses never conflict, not even of the same visitor to the same
+     * grade. Keys of transactions are summed up by getGradeVisitors and
+     * folded by compactAggregates.
+     *
+     * @param ctx     Context of app
+     * @param visitor Author of access
+     * @param gradeId Id of accessed grade
+     */
+    private void recordVisit(final Context ctx, final String visitor, final String gradeId) {
+        updateVisitorStats(ctx, visitor, gradeId, stats -> stats.visit(ctx.getStub().getTxTimestamp().toEpochMilli()));
+    }
+
+    private void updateVisitorStats(final Context ctx, final String visitor, final String gradeId, final UnaryOperator<VisitorStats> change) {
+        StateCache state = GradeContext.state(ctx);
+        ChaincodeStub stub = ctx.getStub();
+        String key = stub.createCompositeKey(VISITOR_INDEX, gradeId, visitor, stub.getTxId()).toString();
+        String statsJSON = state.getStringState(key);
+        VisitorStats stats = statsJSON.isEmpty() ? VisitorStats.none() : genson.deserialize(statsJSON, VisitorStats.class);
+        state.putStringState(key, genson.serialize(change.apply(stats)));
+    }
+
+    /**
+     * Grades written before visitor stats were kept hold every access as
+     * another entry of visitors list. Entries are counted into visitor
+     * stats and grade is rewritten without the list, so it stops growing
+     * and is migrated only once.
+     *
+     * @param ctx   Context of app
+     * @param grade Grade read from world state
+     * @return Grade without visitors list
+     */
+    private Grade migrateVisitors(final Context ctx, final Grade grade) {
+        if (grade.getVisitors() == null) {
+            return grade;
+        }
+        Map<String, Integer> visits = new LinkedHashMap<>();
+        for (String visitor : grade.getVisitors()) {
+            if (visitor != null) {
+                visits.merge(visitor, 1, Integer::sum);
+            }
+        }
+        visits.forEach((visitor, count) -> updateVisitorStats(ctx, visitor, grade.getGradeId(), stats -> stats.plus(count)));
+        Grade migrated = new Grade(grade.getGradeId(), grade.getGrade(), null, grade.getSubject(), grade.getTeacher(), grade.getStudent());
+        putGrade.accept(ctx, migrated);
+        return migrated;
+    }
+}
@@ -0,0 +1,85 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.Objects;
+
+/**
+ * Read access granted by student to viewer, stored under
+ * consent~student~viewer~scope composite key. Scope is grade:gradeId for
+ * single grade or subject:subject for all grades in subject.
+ */
+@DataType()
+public final class ConsentGrant {
+
+    @Property()
+    private final String student;
+
+    @Property()
+    private final String viewer;
+
+    @Property()
+    private final String scope;
+
+    @Property()
+    private final Long timestamp;
+
+    public String getStudent() {
+        return student;
+    }
+
+    public String getViewer() {
+        return viewer;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public ConsentGrant(@JsonProperty("student") final String student, @JsonProperty("viewer") final String viewer,
+                        @JsonProperty("scope") final String scope, @JsonProperty("timestamp") final Long timestamp) {
+        this.student = student;
+        this.viewer = viewer;
+        this.scope = scope;
+        this.timestamp = timestamp;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        ConsentGrant that = (ConsentGrant) obj;
+
+        return Objects.equals(getStudent(), that.getStudent())
+                && Objects.equals(getViewer(), that.getViewer())
+                && Objects.equals(getScope(), that.getScope())
+                && Objects.equals(getTimestamp(), that.getTimestamp());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getStudent(), getViewer(), getScope(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[student = " + student
+                + ", viewer = " + viewer
+                + ", scope = " + scope
+                + ", timestamp = " + timestamp + "]";
+    }
+}
@@ -0,0 +1,71 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emits accesses as chaincode event instead of writing them to world
+ * state, so reads have empty write set. Audit has to be collected by
+ * client listening to block events. Every access is described as scan
+ * record, since it names students of accessed grades. Transaction can
+ * carry only one event, so every access replaces it with list of all
+ * accesses so far.
+ */
+public final class EventConsent implements ConsentStrategy {
+
+    static final String EVENT_NAME = "GradesAccessed";
+
+    private final Genson genson = new Genson();
+
+    @Override
+    public Grade recordCreation(final Context ctx, final String author, final Grade grade) {
+        publish(ctx, author, "ADD", null, null, List.of(grade));
+        return grade;
+    }
+
+    @Override
+    public Grade recordAccess(final Context ctx, final String author, final String operation, final Grade grade) {
+        publish(ctx, author, operation, null, null, List.of(grade));
+        return grade;
+    }
+
+    @Override
+    public void recordAccess(final Context ctx, final String author, final String operation, final List<Grade> grades) {
+        publish(ctx, author, operation, null, null, grades);
+    }
+
+    @Override
+    public void recordScan(final Context ctx, final String author, final String operation,
+                           final String startKey, final String endKey, final List<Grade> grades) {
+        publish(ctx, author, operation, startKey, endKey, grades);
+    }
+
+    /**
+     * Range scans are described by their bounds only, so event does not
+     * grow with number of scanned grades.
+     */
+    private void publish(final Context ctx, final String author, final String operation,
+                         final String startKey, final String endKey, final List<Grade> grades) {
+        ChaincodeStub stub = ctx.getStub();
+        Map<String, List<String>> gradeIdsByStudent = null;
+        if (startKey == null) {
+            if (grades.isEmpty()) {
+                return;
+            }
+            gradeIdsByStudent = new LinkedHashMap<>();
+            for (Grade grade : grades) {
+                gradeIdsByStudent.computeIfAbsent(grade.getStudent(), student -> new ArrayList<>()).add(grade.getGradeId());
+            }
+        }
+        List<ScanRecord> events = GradeContext.accessEvents(ctx);
+        events.add(new ScanRecord(author, operation, startKey, endKey, gradeIdsByStudent, stub.getTxId(), stub.getTxTimestamp().toEpochMilli()));
+        stub.setEvent(EVENT_NAME, genson.serialize(events).getBytes(StandardCharsets.UTF_8));
+    }
+}
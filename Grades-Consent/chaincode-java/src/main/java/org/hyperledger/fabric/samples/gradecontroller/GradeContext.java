@@ -0,0 +1,106 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transaction context of grades contract, keeps besides state cache and
+ * author accesses already put into chaincode event and permissions of author.
+ */
+public class GradeContext extends CachingContext {
+
+    private final List<ScanRecord> accessEvents = new ArrayList<>();
+    private Permissions permissions;
+
+    public GradeContext(final ChaincodeStub stub) {
+        super(stub);
+    }
+
+    /**
+     * @return Accesses in chaincode event of this transaction
+     */
+    public List<ScanRecord> getAccessEvents() {
+        return accessEvents;
+    }
+
+    /**
+     * @return Permissions compiled by grade policy from roles in certificate of author
+     */
+    public Permissions getPermissions() {
+        if (permissions == null) {
+            permissions = PermissionCache.of(getClientIdentity(), policy(this));
+        }
+        return permissions;
+    }
+
+    /**
+     * @param claimedAuthor Author passed as argument of transaction
+     * @throws ChaincodeException when transaction was signed by someone else
+     */
+    public void checkAuthor(final String claimedAuthor) {
+        checkSigner(getAuthor(), claimedAuthor);
+    }
+
+    /**
+     * @param ctx Context of app
+     * @return Accesses in chaincode event of transaction, empty list if context was not created by contract
+     */
+    static List<ScanRecord> accessEvents(final Context ctx) {
+        if (ctx instanceof GradeContext) {
+            return ((GradeContext) ctx).getAccessEvents();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Author is passed by app as argument, so it is checked against signer
+     * of transaction before its permissions are used.
+     *
+     * @param ctx    Context of app
+     * @param author Author passed as argument of transaction
+     * @return Permissions of author of transaction
+     */
+    static Permissions permissions(final Context ctx, final String author) {
+        checkAuthor(ctx, author);
+        if (ctx instanceof GradeContext) {
+            return ((GradeContext) ctx).getPermissions();
+        }
+        return PermissionCache.of(ctx.getClientIdentity(), policy(ctx));
+    }
+
+    /**
+     * Policy is read from world state of transaction, so change of policy
+     * conflicts with transactions endorsed under the previous one.
+     *
+     * @param ctx Context of app
+     * @return Grade policy of transaction
+     */
+    static GradePolicy policy(final Context ctx) {
+        return GradePolicy.of(state(ctx).getStringState(GradeController.gradePolicyKey(ctx)));
+    }
+
+    /**
+     * @param ctx    Context of app
+     * @param author Author passed as argument of transaction
+     * @throws ChaincodeException when transaction was signed by someone else
+     */
+    static void checkAuthor(final Context ctx, final String author) {
+        if (ctx instanceof GradeContext) {
+            ((GradeContext) ctx).checkAuthor(author);
+        } else {
+            checkSigner(authorOf(ctx.getClientIdentity()), author);
+        }
+    }
+
+    private static void checkSigner(final String signer, final String claimedAuthor) {
+        if (!signer.equals(claimedAuthor)) {
+            String errorMessage = String.format("Insufficient privileges of %s", claimedAuthor);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+        }
+    }
+}
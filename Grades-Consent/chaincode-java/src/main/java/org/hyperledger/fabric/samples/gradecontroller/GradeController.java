@@ -1,7 +1,5 @@
 package org.hyperledger.fabric.samples.gradecontroller;
 
-import com.google.common.annotations.VisibleForTesting;
-import org.apache.commons.collections.CollectionUtils;
 import org.hyperledger.fabric.contract.Context;
 import com.owlike.genson.Genson;
 import org.hyperledger.fabric.contract.ContractInterface;
@@ -13,12 +11,14 @@ import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
-import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Arrays;
+import java.util.function.Predicate;
 import java.util.HashSet;
 
 import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkIfGradeDoesNotExists;
@@ -26,10 +26,22 @@ import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.chec
 import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkIfGradeExists;
 import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkIfGradeValueIsCorrect;
 import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesForReading;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesForReadingStudent;
 import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesForDeletion;
 import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesForAdding;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesForConfiguration;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesForAuditing;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.canReadGrade;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkConsentScope;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkConsentScopeOfStudent;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.checkRolesOrConsentForReading;
 
 
+/**
+ * Contract keeps no fields that change between calls, everything single
+ * transaction needs lives in its context, so one instance can serve many
+ * transactions executed by the shim at the same time.
+ */
 @Contract(
         name = "grades",
         info = @Info(
@@ -43,14 +55,85 @@ import static org.hyperledger.fabric.samples.gradecontroller.GradeValidator.chec
 @Default
 public class GradeController implements ContractInterface {
 
-    private final Genson genson = new Genson();
-    private List<String> currentVisitors = new ArrayList<>();
+    static final String ACCESS_INDEX = "access~student~txId";
+    static final String VISITOR_INDEX = "visitor~gradeId~visitor~txId";
+    static final String SCAN_INDEX = "scan~txId";
+    static final String CONSENT_INDEX = "consent~student~viewer~scope";
+    static final String GRADE_SCOPE = "grade:";
+    static final String SUBJECT_SCOPE = "subject:";
+    static final String CONSENT_STRATEGY = "consentStrategy";
+    static final String GRADE_POLICY = "gradePolicy";
+
+    private final Genson genson = GradeCodec.genson();
 
     public enum GradeControllerErrors {
         GRADE_ALREADY_EXISTS,
         GRADE_NOT_FOUND,
         WRONG_GRADE_VALUE,
-        INSUFFICIENT_PERMISSIONS
+        INSUFFICIENT_PERMISSIONS,
+        WRONG_SELECTOR,
+        WRONG_GRADES_FORMAT,
+        WRONG_STATE_FORMAT,
+        WRONG_LIMIT,
+        WRONG_CONSENT_STRATEGY,
+        WRONG_CONSENT_SCOPE,
+        WRONG_GRADE_POLICY
+    }
+
+    public enum Consent {
+        NONE,
+        VISITORS,
+        EVENTS,
+        RECORDS
+    }
+
+    private final GradeStore store = new GradeStore(this::consent);
+
+    private final ConsentStrategy noConsent = new NoConsent();
+    private final ConsentStrategy visitorListConsent = new VisitorListConsent(store::putGrade);
+    private final ConsentStrategy eventConsent = new EventConsent();
+    private final ConsentStrategy accessRecordConsent = new AccessRecordConsent(store::putGrade);
+
+    /**
+     * @param stub Stub of transaction
+     * @return Context caching state reads for the whole transaction
+     */
+    @Override
+    public Context createContext(final ChaincodeStub stub) {
+        return new GradeContext(stub);
+    }
+
+    /**
+     * Chooses how accesses are kept for consent audit, meant to be called
+     * as init function when chaincode is deployed with --init-required.
+     * Strategy can be chosen only once and only by author allowed to
+     * configure chaincode, RECORDS is used until then.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of change
+     * @param strategy NONE, VISITORS, EVENTS or RECORDS
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void initConsent(final Context ctx,
+                            final String author,
+                            final String strategy) {
+        checkRolesForConfiguration(GradeContext.permissions(ctx, author), author);
+        StateCache state = GradeContext.state(ctx);
+        String current = state.getStringState(consentStrategyKey(ctx));
+        if (!current.isEmpty()) {
+            String errorMessage = String.format("Consent strategy is already set to %s", current);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_CONSENT_STRATEGY.toString());
+        }
+        Consent consent;
+        try {
+            consent = Consent.valueOf(strategy);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = String.format("Bad consent strategy %s", strategy);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_CONSENT_STRATEGY.toString());
+        }
+        state.putStringState(consentStrategyKey(ctx), consent.name());
     }
 
     /**
@@ -58,212 +141,728 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public void initGrades(final Context ctx) {
-
-        addGradeWithId(ctx, "admin", "Admin", "Filip Piwowarczyk0", GradeValue.TWO.value, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
-        addGradeWithId(ctx, "admin", "Admin", "Filip Piwowarczyk1", GradeValue.FIVE.value, "WF", "Adam Mickiewicz", "Filip Piwowarczyk");
-        addGradeWithId(ctx, "admin", "Admin", "Filip Piwowarczyk2", GradeValue.FOUR.value, "IT", "Adam Mickiewicz", "Filip Piwowarczyk");
-        addGradeWithId(ctx, "admin", "Admin", "Filip Piwowarczyk3", GradeValue.THREEPLUS.value, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+        String author = GradeContext.author(ctx);
+        addGradeWithId(ctx, author, "Filip Piwowarczyk0", GradeValue.TWO.value, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+        addGradeWithId(ctx, author, "Filip Piwowarczyk1", GradeValue.FIVE.value, "WF", "Adam Mickiewicz", "Filip Piwowarczyk");
+        addGradeWithId(ctx, author, "Filip Piwowarczyk2", GradeValue.FOUR.value, "IT", "Adam Mickiewicz", "Filip Piwowarczyk");
+        addGradeWithId(ctx, author, "Filip Piwowarczyk3", GradeValue.THREEPLUS.value, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
 
     }
 
     /**
-     * @param ctx             App context
-     * @param author          Author of query
-     * @param serializedRoles Roles of that author
-     * @param gradeValue      Value of grade
-     * @param subject         Subject taught by teacher
-     * @param teacher         Teacher
-     * @param student         Student that have new grade
+     * @param ctx        App context
+     * @param author     Author of query
+     * @param gradeValue Value of grade
+     * @param subject    Subject taught by teacher
+     * @param teacher    Teacher
+     * @param student    Student that have new grade
      * @return Full grade value
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Grade addGrade(final Context ctx,
                           final String author,
-                          final String serializedRoles,
                           final Double gradeValue,
                           final String subject,
                           final String teacher,
                           final String student) {
-        ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
+        Permissions permissions = GradeContext.permissions(ctx, author);
         checkIfGradeValueIsCorrect(gradeValue);
-        checkRolesForAdding(roles, author);
-
-        String gradeId = getGradeId(ctx, student);
-        Grade grade = new Grade(gradeId, gradeValue, List.of(author), subject, teacher, student);
-        String gradeJSON = genson.serialize(grade);
-        stub.putStringState(gradeId, gradeJSON);
+        checkRolesForAdding(permissions, author);
 
-        return grade;
+        String gradeId = store.nextGradeId(ctx, student);
+        return store.addGrade(ctx, author, new Grade(gradeId, gradeValue, null, subject, teacher, student));
     }
 
     /**
-     * @param ctx             Context of app
-     * @param author          Author of query
-     * @param serializedRoles Serialized roles of author
-     * @param gradeId         Id of grade Name of student + index
-     * @param gradeValue      Value of grade
-     * @param subject         Subject taught by teacher
-     * @param teacher         Teacher
-     * @param student         Student
+     * @param ctx        Context of app
+     * @param author     Author of query
+     * @param gradeId    Id of grade Name of student + index
+     * @param gradeValue Value of grade
+     * @param subject    Subject taught by teacher
+     * @param teacher    Teacher
+     * @param student    Student
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public void addGradeWithId(final Context ctx,
                                final String author,
-                               final String serializedRoles,
                                final String gradeId,
                                final Double gradeValue,
                                final String subject,
                                final String teacher,
                                final String student) {
-        ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
+        Permissions permissions = GradeContext.permissions(ctx, author);
         checkIfGradeValueIsCorrect(gradeValue);
         checkIfGradeExists(ctx, gradeId);
-        checkRolesForAdding(roles, author);
+        checkRolesForAdding(permissions, author);
 
-        Grade grade = new Grade(gradeId, gradeValue, List.of(author), subject, teacher, student);
-        String gradeJSON = genson.serialize(grade);
-        stub.putStringState(gradeId, gradeJSON);
+        store.addGrade(ctx, author, new Grade(gradeId, gradeValue, null, subject, teacher, student));
     }
 
     /**
-     * @param ctx             Context of app
-     * @param author          Author of query
-     * @param serializedRoles Serialized roles of author
-     * @param gradeId         Id of grade
+     * Adds all grades in one transaction. Rejected grades are reported in
+     * results and do not stop the other grades from being added.
+     *
+     * @param ctx        Context of app
+     * @param author     Author of query
+     * @param gradesJSON JSON array of grades, ids are assigned by chaincode
+     * @return Results for grades in order of array
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String addGrades(final Context ctx,
+                            final String author,
+                            final String gradesJSON) {
+        checkRolesForAdding(GradeContext.permissions(ctx, author), author);
+        List<GradeResult> results = new ArrayList<>();
+        for (Grade grade : store.parseGrades(gradesJSON, false)) {
+            try {
+                results.add(GradeResult.success(addGrade(ctx, author, grade.getGrade(),
+                        grade.getSubject(), grade.getTeacher(), grade.getStudent())));
+            } catch (ChaincodeException e) {
+                results.add(GradeStore.failure(null, e));
+            }
+        }
+        return genson.serialize(results);
+    }
+
+    /**
+     * Owner of grade is only known after reading it, but nothing is written
+     * before author is allowed to see it.
+     *
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param gradeId Id of grade
      * @return Grade with given gradeId
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Grade ReadGrade(final Context ctx,
                            final String author,
-                           final String serializedRoles,
                            final String gradeId) {
-        ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
+        StateCache state = GradeContext.state(ctx);
+        Permissions permissions = GradeContext.permissions(ctx, author);
         checkIfGradeDoesNotExists(ctx, gradeId);
-        String gradeJSON = stub.getStringState(gradeId);
-        Grade grade = genson.deserialize(gradeJSON, Grade.class);
-        updateGradeVisitors(stub, author, gradeId, grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent());
+        Grade grade = GradeCodec.decode(state.getState(gradeId));
+        checkRolesOrConsentForReading(ctx, permissions, author, grade);
+        return consent(ctx).recordAccess(ctx, author, "READ", grade);
+    }
 
-        if (grade.getStudent().equals(author) || CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"))) {
-            return grade;
-        } else {
-            String errorMessage = String.format("Insufficient privileges of %s", author);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+    /**
+     * Reads many grades in one transaction. Missing grades and grades the
+     * author may not see are reported per id, access to the returned
+     * grades is recorded once per student.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param gradeIds Ids of grades
+     * @return Result for every id in order of ids
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String ReadGrades(final Context ctx,
+                             final String author,
+                             final String[] gradeIds) {
+        StateCache state = GradeContext.state(ctx);
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        List<GradeResult> results = new ArrayList<>();
+        List<Grade> grades = new ArrayList<>();
+        for (String gradeId : gradeIds) {
+            byte[] gradeValue = state.getState(gradeId);
+            if (gradeValue.length == 0) {
+                results.add(GradeStore.notFound(gradeId));
+                continue;
+            }
+            Grade grade = GradeCodec.decode(gradeValue);
+            if (canReadGrade(ctx, permissions, author, grade)) {
+                grades.add(grade);
+                results.add(GradeResult.success(grade));
+            } else {
+                results.add(GradeResult.failure(gradeId, GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString(),
+                        String.format("Insufficient privileges of %s", author)));
+            }
         }
+        consent(ctx).recordAccess(ctx, author, "READ", grades);
+        return genson.serialize(results);
     }
 
     /**
-     * @param ctx             Context of app
-     * @param author          Author of query
-     * @param serializedRoles Serialized roles of author
-     * @param studentName     Student's name
+     * Permission is checked once before the scan, viewers without role see
+     * only grades student gave consent for. Ids of other students may fall
+     * into the range when their names start with studentName followed by
+     * digits, such grades are skipped.
+     *
+     * @param ctx         Context of app
+     * @param author      Author of query
+     * @param studentName Student's name
      * @return All grades for student
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public String getGradesForStudent(final Context ctx,
                                       final String author,
-                                      final String serializedRoles,
                                       final String studentName) {
-        ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
-        List<Grade> queryResults = new ArrayList<>();
+        Predicate<Grade> readable = readableGrades(ctx, GradeContext.permissions(ctx, author), author, studentName);
+        List<Grade> queryResults = store.readRange(ctx, studentName + "0", studentName + "999999");
+        queryResults.removeIf(grade -> !grade.getStudent().equals(studentName) || !readable.test(grade));
+        consent(ctx).recordAccess(ctx, author, "READ", queryResults);
+        return GradeCodec.encodeAll(queryResults);
+    }
 
-        QueryResultsIterator<KeyValue> results = stub.getStateByRange(studentName + "0", studentName + "999999");
+    /**
+     * @param ctx    Context of app
+     * @param author Author of query
+     * @return All grades in system
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String getAllGrades(final Context ctx,
+                               final String author) {
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        checkRolesForReading(permissions, author);
+        //To get all grades we are using getStateByRange with empty strings
+        // as arguments. It is interpreted as get all keys from beginning to end.
+        List<Grade> queryResults = store.readRange(ctx, "", "");
+        consent(ctx).recordScan(ctx, author, "READ", "", "", queryResults);
+        return GradeCodec.encodeAll(queryResults);
+    }
 
-        for (KeyValue result : results) {
-            Grade grade = genson.deserialize(result.getStringValue(), Grade.class);
-            updateGradeVisitors(stub, author, grade.getGradeId(), grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent());
-            if (grade.getStudent().equals(author) || CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"))) {
-                queryResults.add(grade);
-            } else {
-                String errorMessage = String.format("Insufficient privileges of %s", author);
-                System.out.println(errorMessage);
-                throw new ChaincodeException(errorMessage, GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+    /**
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param subject Subject of grades
+     * @return All grades in subject
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String getGradesBySubject(final Context ctx,
+                                     final String author,
+                                     final String subject) {
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        checkRolesForReading(permissions, author);
+        List<Grade> queryResults = store.readIndexedGrades(ctx, GradeStore.SUBJECT_INDEX, subject);
+        consent(ctx).recordScan(ctx, author, "READ", null, null, queryResults);
+        return GradeCodec.encodeAll(queryResults);
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param teacher Teacher that gave grades
+     * @return All grades given by teacher
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String getGradesByTeacher(final Context ctx,
+                                     final String author,
+                                     final String teacher) {
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        checkRolesForReading(permissions, author);
+        List<Grade> queryResults = store.readIndexedGrades(ctx, GradeStore.TEACHER_INDEX, teacher);
+        consent(ctx).recordScan(ctx, author, "READ", null, null, queryResults);
+        return GradeCodec.encodeAll(queryResults);
+    }
+
+    /**
+     * History is only available in read-only transactions, so access to
+     * the grade has to be recorded with recordGradesAccess. History of
+     * deleted grades is still returned.
+     *
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param gradeId Id of grade
+     * @param limit   Maximal number of returned modifications
+     * @return Modifications of grade, newest first
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradeHistory(final Context ctx,
+                                  final String author,
+                                  final String gradeId,
+                                  final int limit) {
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        List<GradeModification> history = store.readHistory(ctx, gradeId, limit);
+        for (GradeModification modification : history) {
+            Grade grade = modification.getGrade();
+            if (grade != null) {
+                checkRolesForReadingStudent(permissions, author, grade.getStudent());
             }
         }
-        return genson.serialize(queryResults);
+        return genson.serialize(history);
     }
 
     /**
-     * @param ctx             Context of app
-     * @param author          Author of query
-     * @param serializedRoles Serialized roles of author
-     * @return All grades in system
+     * Summaries hold no single grade, so reading them is not recorded as
+     * access to grades.
+     *
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param student Student
+     * @return Count, sum and histogram of grades of student
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getStudentSummary(final Context ctx,
+                                    final String author,
+                                    final String student) {
+        checkRolesForReadingStudent(GradeContext.permissions(ctx, author), author, student);
+        return genson.serialize(store.readSummary(ctx, GradeStore.STUDENT, student));
+    }
+
+    /**
+     * Summaries hold no single grade, so reading them is not recorded as
+     * access to grades.
+     *
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param subject Subject
+     * @return Count, sum and histogram of grades in subject
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getSubjectSummary(final Context ctx,
+                                    final String author,
+                                    final String subject) {
+        checkRolesForReading(GradeContext.permissions(ctx, author), author);
+        return genson.serialize(store.readSummary(ctx, GradeStore.SUBJECT, subject));
+    }
+
+    /**
+     * Recomputes all summaries from grades, needed once for grades added
+     * before summaries were kept.
+     *
+     * @param ctx    Context of app
+     * @param author Author of change
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
-    public String getAllGrades(final Context ctx,
+    public void rebuildSummaries(final Context ctx,
+                                 final String author) {
+        checkRolesForConfiguration(GradeContext.permissions(ctx, author), author);
+        store.rebuildSummaries(ctx);
+    }
+
+    /**
+     * Folds summary deltas into summaries and visitor counters of all
+     * transactions into one per visitor of grade. Writes started meanwhile
+     * add new deltas and counters, which makes this transaction fail
+     * phantom read check instead of them, so it is safe to retry at any time.
+     *
+     * @param ctx    Context of app
+     * @param author Author of change
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void compactAggregates(final Context ctx,
+                                  final String author) {
+        checkRolesForConfiguration(GradeContext.permissions(ctx, author), author);
+        store.compactSummaries(ctx);
+
+        ChaincodeStub stub = ctx.getStub();
+        StateCache state = GradeContext.state(ctx);
+        Map<String, VisitorStats> visits = new LinkedHashMap<>();
+        for (KeyValue visit : stub.getStateByPartialCompositeKey(stub.createCompositeKey(VISITOR_INDEX))) {
+            List<String> attributes = stub.splitCompositeKey(visit.getKey()).getAttributes();
+            String key = stub.createCompositeKey(VISITOR_INDEX, attributes.get(0), attributes.get(1), stub.getTxId()).toString();
+            visits.merge(key, genson.deserialize(visit.getStringValue(), VisitorStats.class), VisitorStats::plus);
+            state.delState(visit.getKey());
+        }
+        visits.forEach((key, stats) -> state.putStringState(key, genson.serialize(stats)));
+    }
+
+    /**
+     * Paginated queries are only allowed in read-only transactions, so access
+     * to returned grades has to be recorded with recordGradesAccess.
+     *
+     * @param ctx         Context of app
+     * @param author      Author of query
+     * @param studentName Student's name
+     * @param pageSize    Maximal number of grades in page
+     * @param bookmark    Bookmark returned with previous page, empty for first page
+     * @return Page of grades for student
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradesForStudentPage(final Context ctx,
+                                          final String author,
+                                          final String studentName,
+                                          final int pageSize,
+                                          final String bookmark) {
+        Predicate<Grade> readable = readableGrades(ctx, GradeContext.permissions(ctx, author), author, studentName);
+
+        GradePage page = store.readRangePage(ctx, studentName + "0", studentName + "999999", pageSize, bookmark);
+        page.getRecords().removeIf(grade -> !grade.getStudent().equals(studentName) || !readable.test(grade));
+        return genson.serialize(page);
+    }
+
+    /**
+     * Paginated queries are only allowed in read-only transactions, so access
+     * to returned grades has to be recorded with recordGradesAccess.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param pageSize Maximal number of grades in page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of all grades in system
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getAllGradesPage(final Context ctx,
+                                   final String author,
+                                   final int pageSize,
+                                   final String bookmark) {
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        checkRolesForReading(permissions, author);
+
+        return genson.serialize(store.readRangePage(ctx, "", "", pageSize, bookmark));
+    }
+
+    /**
+     * Paginated queries are only allowed in read-only transactions, so access
+     * to returned grades has to be recorded with recordGradesAccess.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param selector CouchDB selector, e.g. {"subject":"Math","grade":{"$gte":4.0}}
+     * @param pageSize Maximal number of grades in page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of grades matching selector
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String queryGrades(final Context ctx,
+                              final String author,
+                              final String selector,
+                              final int pageSize,
+                              final String bookmark) {
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        GradePage page = store.queryGrades(ctx, selector, pageSize, bookmark);
+        checkRolesForPage(page, permissions, author);
+        return genson.serialize(page);
+    }
+
+    /**
+     * Queries over grades of many students are not counted, they are kept
+     * in scan log instead.
+     *
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param gradeId Id of grade
+     * @return Access count and last access of every visitor of grade
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradeVisitors(final Context ctx,
+                                   final String author,
+                                   final String gradeId) {
+        ChaincodeStub stub = ctx.getStub();
+        checkIfGradeDoesNotExists(ctx, gradeId);
+        Grade grade = GradeCodec.decode(GradeContext.state(ctx).getState(gradeId));
+        checkRolesForAuditing(GradeContext.permissions(ctx, author), author, grade.getStudent());
+
+        Map<String, VisitorStats> visitors = new LinkedHashMap<>();
+        for (KeyValue result : stub.getStateByPartialCompositeKey(VISITOR_INDEX, gradeId)) {
+            String visitor = stub.splitCompositeKey(result.getKey()).getAttributes().get(1);
+            visitors.merge(visitor, genson.deserialize(result.getStringValue(), VisitorStats.class), VisitorStats::plus);
+        }
+        if (grade.getVisitors() != null) {
+            for (String visitor : grade.getVisitors()) {
+                if (visitor != null) {
+                    visitors.put(visitor, visitors.getOrDefault(visitor, VisitorStats.none()).plus(1));
+                }
+            }
+        }
+        return genson.serialize(visitors);
+    }
+
+    /**
+     * Reads access records of all grades of student without recording new
+     * access. Records are kept in txId order, so records older than since
+     * are skipped within page instead of being excluded from the scan.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param student  Student whose grades were accessed
+     * @param since    Earliest timestamp of returned records in epoch milliseconds
+     * @param pageSize Maximal number of records scanned for page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of access records
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getAccessLog(final Context ctx,
                                final String author,
-                               final String serializedRoles) {
+                               final String student,
+                               final long since,
+                               final int pageSize,
+                               final String bookmark) {
         ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
-        List<Grade> queryResults = new ArrayList<>();
-        checkRolesForReading(roles, author);
-        //To get all grades we are using getStateByRange with empty strings
-        // as arguments. It is interpreted as get all keys from beginning to end.
-        QueryResultsIterator<KeyValue> results = stub.getStateByRange("", "");
+        checkRolesForAuditing(GradeContext.permissions(ctx, author), author, student);
+
+        QueryResultsIteratorWithMetadata<KeyValue> results =
+                stub.getStateByPartialCompositeKeyWithPagination(stub.createCompositeKey(ACCESS_INDEX, student), pageSize, bookmark);
+        List<AccessRecord> records = new ArrayList<>();
         for (KeyValue result : results) {
-            Grade grade = genson.deserialize(result.getStringValue(), Grade.class);
-            updateGradeVisitors(stub, author, grade.getGradeId(), grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent());
-            queryResults.add(grade);
+            AccessRecord record = genson.deserialize(result.getStringValue(), AccessRecord.class);
+            if (record.getTimestamp() >= since) {
+                records.add(record);
+            }
         }
-        return genson.serialize(queryResults);
+        return genson.serialize(new AccessPage(records, results.getMetadata().getFetchedRecordsCount(), results.getMetadata().getBookmark()));
     }
 
     /**
-     * @param ctx             Context of app
-     * @param author          Author of update
-     * @param serializedRoles Serialized roles of author
-     * @param gradeId         Id of grade to update
-     * @param gradeValue      Value of grade
-     * @param subject         Subject of grade
-     * @param teacher         Teacher that taught tht subject
-     * @param student         Students name
+     * Lists queries that read grades of student together with grades of
+     * other students, which are not in access log of student. Scans are
+     * kept in one log for all students, so every page is filtered.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param student  Student whose grades could have been read
+     * @param since    Earliest timestamp of returned records in epoch milliseconds
+     * @param pageSize Maximal number of records scanned for page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of scan records
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getScanLog(final Context ctx,
+                             final String author,
+                             final String student,
+                             final long since,
+                             final int pageSize,
+                             final String bookmark) {
+        ChaincodeStub stub = ctx.getStub();
+        checkRolesForAuditing(GradeContext.permissions(ctx, author), author, student);
+
+        QueryResultsIteratorWithMetadata<KeyValue> results =
+                stub.getStateByPartialCompositeKeyWithPagination(stub.createCompositeKey(SCAN_INDEX), pageSize, bookmark);
+        List<ScanRecord> records = new ArrayList<>();
+        for (KeyValue result : results) {
+            ScanRecord record = genson.deserialize(result.getStringValue(), ScanRecord.class);
+            if (record.getTimestamp() >= since && record.covers(student)) {
+                records.add(record.forStudent(student));
+            }
+        }
+        return genson.serialize(new ScanPage(records, results.getMetadata().getFetchedRecordsCount(), results.getMetadata().getBookmark()));
+    }
+
+    /**
+     * Lets viewer read grades of author without role. Only grades author
+     * owns and subjects author has grades of can be granted. Author has to
+     * be the student signing transaction.
+     *
+     * @param ctx    Context of app
+     * @param author Student granting consent
+     * @param viewer User allowed to read grades
+     * @param scope  grade:gradeId or subject:subject
+     * @return Stored consent
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public ConsentGrant grantConsent(final Context ctx,
+                                     final String author,
+                                     final String viewer,
+                                     final String scope) {
+        GradeContext.checkAuthor(ctx, author);
+        checkConsentScopeOfStudent(ctx, author, scope);
+        ConsentGrant grant = new ConsentGrant(author, viewer, scope, ctx.getStub().getTxTimestamp().toEpochMilli());
+        GradeContext.state(ctx).putStringState(consentKey(ctx, author, viewer, scope), genson.serialize(grant));
+        return grant;
+    }
+
+    /**
+     * Consent of deleted grade can still be revoked. Author has to be the
+     * student signing transaction.
+     *
+     * @param ctx    Context of app
+     * @param author Student revoking consent
+     * @param viewer User no longer allowed to read grades
+     * @param scope  grade:gradeId or subject:subject
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void revokeConsent(final Context ctx,
+                              final String author,
+                              final String viewer,
+                              final String scope) {
+        GradeContext.checkAuthor(ctx, author);
+        checkConsentScope(scope);
+        GradeContext.state(ctx).delState(consentKey(ctx, author, viewer, scope));
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param author  Author of query
+     * @param student Student who granted consents
+     * @return Consents granted by student
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getConsents(final Context ctx,
+                              final String author,
+                              final String student) {
+        checkRolesForAuditing(GradeContext.permissions(ctx, author), author, student);
+        List<ConsentGrant> grants = new ArrayList<>();
+        for (KeyValue result : ctx.getStub().getStateByPartialCompositeKey(CONSENT_INDEX, student)) {
+            grants.add(genson.deserialize(result.getStringValue(), ConsentGrant.class));
+        }
+        return genson.serialize(grants);
+    }
+
+    /**
+     * Records access to grades returned by read-only queries. Grades that
+     * were deleted in the meantime are skipped. Author has to sign the
+     * transaction and be allowed to read every recorded grade, so nobody
+     * can record accesses in the name of others.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param gradeIds Ids of grades that were read
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void recordGradesAccess(final Context ctx,
+                                   final String author,
+                                   final String[] gradeIds) {
+        StateCache state = GradeContext.state(ctx);
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        List<Grade> grades = new ArrayList<>();
+        for (String gradeId : gradeIds) {
+            byte[] gradeValue = state.getState(gradeId);
+            if (gradeValue.length != 0) {
+                Grade grade = GradeCodec.decode(gradeValue);
+                checkRolesOrConsentForReading(ctx, permissions, author, grade);
+                grades.add(grade);
+            }
+        }
+        consent(ctx).recordAccess(ctx, author, "READ", grades);
+    }
+
+    /**
+     * Records scan answered by read-only getAllGrades, getGradesBySubject or
+     * getGradesByTeacher as one scan record of returned grades, the same
+     * single record those queries keep when submitted. Grades that were
+     * deleted in the meantime are skipped. Author has to sign the
+     * transaction and be allowed to read grades of all students.
+     *
+     * @param ctx      Context of app
+     * @param author   Author of query
+     * @param gradeIds Ids of grades returned by query
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void recordGradesScan(final Context ctx,
+                                 final String author,
+                                 final String[] gradeIds) {
+        StateCache state = GradeContext.state(ctx);
+        checkRolesForReading(GradeContext.permissions(ctx, author), author);
+        List<Grade> grades = new ArrayList<>();
+        for (String gradeId : gradeIds) {
+            byte[] gradeValue = state.getState(gradeId);
+            if (gradeValue.length != 0) {
+                grades.add(GradeCodec.decode(gradeValue));
+            }
+        }
+        consent(ctx).recordScan(ctx, author, "READ", null, null, grades);
+    }
+
+    /**
+     * @param ctx        Context of app
+     * @param author     Author of update
+     * @param gradeId    Id of grade to update
+     * @param gradeValue Value of grade
+     * @param subject    Subject of grade
+     * @param teacher    Teacher that taught tht subject
+     * @param student    Students name
      * @return Updated grade
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Grade UpdateGrade(final Context ctx,
                              final String author,
-                             final String serializedRoles,
                              final String gradeId,
                              final Double gradeValue,
                              final String subject,
                              final String teacher,
                              final String student) {
-        ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
+        Permissions permissions = GradeContext.permissions(ctx, author);
         checkIfGradeDoesNotExists(ctx, gradeId);
         checkIfGradeValueIsCorrect(gradeValue);
-        checkRolesForUpdate(roles, author);
-        updateGradeVisitors(stub, author, gradeId, gradeValue, subject, teacher, student);
-        Grade newGrade = new Grade(gradeId, gradeValue, currentVisitors, subject, teacher, student);
-        String newGradeJSON = genson.serialize(newGrade);
-        stub.putStringState(gradeId, newGradeJSON);
+        checkRolesForUpdate(permissions, author);
+        return store.updateGrade(ctx, author, new Grade(gradeId, gradeValue, null, subject, teacher, student));
+    }
 
-        return newGrade;
+    /**
+     * Updates all grades in one transaction. Rejected grades are reported in
+     * results and do not stop the other grades from being updated.
+     *
+     * @param ctx        Context of app
+     * @param author     Author of update
+     * @param gradesJSON JSON array of grades with ids
+     * @return Results for grades in order of array
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String updateGrades(final Context ctx,
+                               final String author,
+                               final String gradesJSON) {
+        checkRolesForUpdate(GradeContext.permissions(ctx, author), author);
+        List<GradeResult> results = new ArrayList<>();
+        for (Grade grade : store.parseGrades(gradesJSON, true)) {
+            try {
+                results.add(GradeResult.success(UpdateGrade(ctx, author,
+                        grade.getGradeId(), grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent())));
+            } catch (ChaincodeException e) {
+                results.add(GradeStore.failure(grade.getGradeId(), e));
+            }
+        }
+        return genson.serialize(results);
     }
 
     /**
-     * @param ctx             Context of app
-     * @param author          author of query
-     * @param serializedRoles serialized roles of query
-     * @param gradeId         id of grade to delete
+     * @param ctx     Context of app
+     * @param author  author of query
+     * @param gradeId id of grade to delete
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public void DeleteGrade(final Context ctx,
                             final String author,
-                            final String serializedRoles,
                             final String gradeId) {
-        ChaincodeStub stub = ctx.getStub();
-        Set<String> roles = deserializeRoles(serializedRoles);
+        Permissions permissions = GradeContext.permissions(ctx, author);
+        checkRolesForDeletion(permissions, author);
         checkIfGradeDoesNotExists(ctx, gradeId);
-        String gradeJSON = stub.getStringState(gradeId);
-        Grade grade = genson.deserialize(gradeJSON, Grade.class);
-        updateGradeVisitors(stub, author, gradeId, grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent());
-        checkRolesForDeletion(roles, author);
-        stub.delState(gradeId);
+        store.deleteGrade(ctx, author, gradeId);
+    }
+
+    /**
+     * Sets format of grades written from now on. Grades already in world
+     * state keep their format until they are updated, both formats are
+     * always readable. Compact grades cannot be found by CouchDB, so while
+     * compact format is set queryGrades evaluates selectors in chaincode.
+     *
+     * @param ctx    Context of app
+     * @param author Author of change
+     * @param format JSON or COMPACT
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void setStateFormat(final Context ctx,
+                               final String author,
+                               final String format) {
+        checkRolesForConfiguration(GradeContext.permissions(ctx, author), author);
+        store.setStateFormat(ctx, format);
+    }
+
+    /**
+     * Replaces grade policy for all later transactions. Policy has format of
+     * grade-policy.properties and is kept in world state, empty policy
+     * brings back the one packaged with chaincode. Policy that would take
+     * CONFIGURE away from author is rejected, so policy cannot lock out
+     * everyone who could fix it.
+     *
+     * @param ctx    Context of app
+     * @param author Author of change
+     * @param policy Grants of roles
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void setGradePolicy(final Context ctx,
+                               final String author,
+                               final String policy) {
+        checkRolesForConfiguration(GradeContext.permissions(ctx, author), author);
+        StateCache state = GradeContext.state(ctx);
+        if (policy.trim().isEmpty()) {
+            state.delState(gradePolicyKey(ctx));
+            return;
+        }
+        GradePolicy gradePolicy;
+        try {
+            gradePolicy = GradePolicy.parse(policy);
+        } catch (IllegalArgumentException e) {
+            String errorMessage = String.format("Bad grade policy: %s", e.getMessage());
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_GRADE_POLICY.toString());
+        }
+        Permissions permissions = gradePolicy.compile(GradePolicy.rolesOf(ctx.getClientIdentity()));
+        if (!permissions.allows(Operation.CONFIGURE, false)) {
+            String errorMessage = String.format("Grade policy takes CONFIGURE away from %s", author);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_GRADE_POLICY.toString());
+        }
+        state.putStringState(gradePolicyKey(ctx), policy);
     }
 
     /**
@@ -274,47 +873,91 @@ public class GradeController implements ContractInterface {
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public static boolean gradeExists(final Context ctx,
                                       final String gradeId) {
-        ChaincodeStub stub = ctx.getStub();
-        String assetJSON = stub.getStringState(gradeId);
-        return (assetJSON != null && !assetJSON.isEmpty());
+        return GradeStore.gradeExists(ctx, gradeId);
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param student Student owning grades
+     * @param viewer  User reading grades
+     * @param scope   grade:gradeId or subject:subject
+     * @return True if student let viewer read grades in scope
+     */
+    static boolean consentGranted(final Context ctx, final String student, final String viewer, final String scope) {
+        return GradeContext.state(ctx).getState(consentKey(ctx, student, viewer, scope)).length != 0;
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param student Student
+     * @param subject Subject
+     * @return True if student has any grade of subject
+     */
+    static boolean hasGradesOfSubject(final Context ctx, final String student, final String subject) {
+        return ctx.getStub().getStateByPartialCompositeKey(GradeStore.SUBJECT_INDEX, subject, student).iterator().hasNext();
     }
 
-    private String getGradeId(final Context ctx, final String student) {
-        int i = 0;
-        String output = student + i;
-        while (gradeExists(ctx, output)) {
-            i++;
-            output = student + i;
+    private void checkRolesForPage(final GradePage page, final Permissions permissions, final String author) {
+        for (Grade grade : page.getRecords()) {
+            checkRolesForReadingStudent(permissions, author, grade.getStudent());
         }
-        return output;
     }
 
+    static String gradePolicyKey(final Context ctx) {
+        return GradeStore.configKey(ctx, GRADE_POLICY);
+    }
 
     /**
-     * @param gradeId Id of grade
-     * @param author  Author of query
-     * @param stub    Stub to make call
+     * @param ctx Context of app
+     * @return Strategy recording accesses, access records until configured otherwise
      */
-    private void setNewVisitors(final String gradeId, final String author, final ChaincodeStub stub) {
-        String gradeJSON = stub.getStringState(gradeId);
-        Grade oldGrade = genson.deserialize(gradeJSON, Grade.class);
-        currentVisitors = oldGrade.getVisitors();
-        currentVisitors.add(author);
+    private ConsentStrategy consent(final Context ctx) {
+        String consent = GradeContext.state(ctx).getStringState(consentStrategyKey(ctx));
+        switch (consent.isEmpty() ? Consent.RECORDS : Consent.valueOf(consent)) {
+            case NONE:
+                return noConsent;
+            case VISITORS:
+                return visitorListConsent;
+            case EVENTS:
+                return eventConsent;
+            default:
+                return accessRecordConsent;
+        }
+    }
+
+    private String consentStrategyKey(final Context ctx) {
+        return GradeStore.configKey(ctx, CONSENT_STRATEGY);
     }
 
-    private void updateGradeVisitors(final ChaincodeStub stub, final String author, final String gradeId, final Double gradeValue, final String subject, final String teacher, final String student) {
-        setNewVisitors(gradeId, author, stub);
-        Grade newGrade = new Grade(gradeId, gradeValue, currentVisitors, subject, teacher, student);
-        String newGradeJSON = genson.serialize(newGrade);
-        stub.putStringState(gradeId, newGradeJSON);
+    private static String consentKey(final Context ctx, final String student, final String viewer, final String scope) {
+        return ctx.getStub().createCompositeKey(CONSENT_INDEX, student, viewer, scope).toString();
     }
 
     /**
-     * @param serializedRoles Serialized roles
-     * @return Deserialized roles
+     * Viewer without permission reads all own consents once, so grades
+     * found by scan are checked without further reads.
+     *
+     * @param ctx         Context of app
+     * @param permissions Permissions of author
+     * @param author      Author of query
+     * @param student     Student owning grades
+     * @return Check of grades author may read
+     * @throws ChaincodeException when author may read no grade of student
      */
-    @VisibleForTesting
-    Set<String> deserializeRoles(final String serializedRoles) {
-        return new HashSet<String>(Arrays.asList(serializedRoles.split(";")));
+    private Predicate<Grade> readableGrades(final Context ctx, final Permissions permissions, final String author, final String student) {
+        if (permissions.allows(Operation.READ, student.equals(author))) {
+            return grade -> true;
+        }
+        ChaincodeStub stub = ctx.getStub();
+        Set<String> scopes = new HashSet<>();
+        for (KeyValue result : stub.getStateByPartialCompositeKey(CONSENT_INDEX, student, author)) {
+            scopes.add(stub.splitCompositeKey(result.getKey()).getAttributes().get(2));
+        }
+        if (scopes.isEmpty()) {
+            String errorMessage = String.format("Insufficient privileges of %s", author);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+        }
+        return grade -> scopes.contains(GRADE_SCOPE + grade.getGradeId()) || scopes.contains(SUBJECT_SCOPE + grade.getSubject());
     }
 }
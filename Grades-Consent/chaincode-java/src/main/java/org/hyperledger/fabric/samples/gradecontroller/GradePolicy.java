@@ -0,0 +1,220 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.google.common.hash.Hashing;
+import org.hyperledger.fabric.contract.ClientIdentity;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Operations allowed to roles. Policy set by setGradePolicy is kept in
+ * world state, so every peer endorses with the same policy, until then
+ * grade-policy.properties packaged with chaincode is used. Every role maps
+ * to comma separated grants OPERATION:OWN for grades of author or
+ * OPERATION:ANY for all grades. Ownership means only that author is
+ * student of the grade, so rules like professor changing grades of own
+ * subjects only cannot be expressed. Grant prefixed with ! is denied even
+ * when other role of author allows it. Roles are compiled into allowed
+ * and denied bitmasks, so permissions of author with many roles are still
+ * single bitmask. Every policy has version, SHA-256 hash of its bytes, so
+ * compiled policies and permissions are cached by version instead of
+ * being parsed again in every transaction. Certificates without roles attribute, like admins
+ * enrolled by cryptogen, get Admin role when their OU is the admin
+ * NodeOU of the MSP.
+ */
+public final class GradePolicy {
+
+    static final String ROLES_ATTRIBUTE = "roles";
+    static final String RESOURCE = "/grade-policy.properties";
+    static final String ADMIN_OU = "admin";
+    static final String ADMIN_ROLE = "Admin";
+    static final int MAX_VERSIONS = 16;
+
+    private static final String ROLE_SEPARATOR = ";";
+    private static final String GRANT_SEPARATOR = ",";
+    private static final String OWNERSHIP_SEPARATOR = ":";
+    private static final String DENY = "!";
+    private static final String OWN = "OWN";
+    private static final String ANY = "ANY";
+
+    private static final GradePolicy POLICY = load(RESOURCE);
+
+    // Policy in world state changes rarely, so few versions are ever compiled
+    private static final Map<String, GradePolicy> VERSIONS = new ConcurrentHashMap<>();
+
+    private final String version;
+    private final Map<String, Long> allowed = new HashMap<>();
+    private final Map<String, Long> denied = new HashMap<>();
+
+    /**
+     * @param policy  Grants of roles
+     * @param version Hash of policy bytes
+     * @throws IllegalArgumentException when grant is malformed
+     */
+    GradePolicy(final Properties policy, final String version) {
+        this.version = version;
+        for (String role : policy.stringPropertyNames()) {
+            long allow = 0;
+            long deny = 0;
+            for (String grant : policy.getProperty(role).split(GRANT_SEPARATOR)) {
+                String trimmed = grant.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (trimmed.startsWith(DENY)) {
+                    deny |= compile(role, trimmed.substring(DENY.length()).trim());
+                } else {
+                    allow |= compile(role, trimmed);
+                }
+            }
+            allowed.put(role, allow);
+            denied.put(role, deny);
+        }
+    }
+
+    /**
+     * @return Policy packaged with chaincode
+     */
+    public static GradePolicy get() {
+        return POLICY;
+    }
+
+    /**
+     * @return Hash of policy bytes
+     */
+    public String version() {
+        return version;
+    }
+
+    /**
+     * @param policy Policy kept in world state, empty if none was set
+     * @return Compiled policy, packaged policy if none was set
+     * @throws IllegalArgumentException when policy is malformed
+     */
+    static GradePolicy of(final String policy) {
+        if (policy.isEmpty()) {
+            return POLICY;
+        }
+        String version = version(policy.getBytes(UTF_8));
+        GradePolicy compiled = VERSIONS.get(version);
+        if (compiled == null) {
+            if (VERSIONS.size() >= MAX_VERSIONS) {
+                VERSIONS.clear();
+            }
+            compiled = parse(policy);
+            VERSIONS.put(version, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * @param policy Policy in format of grade-policy.properties
+     * @return Compiled policy
+     * @throws IllegalArgumentException when policy is malformed
+     */
+    static GradePolicy parse(final String policy) {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(policy));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Cannot read grade policy: %s", e.getMessage()), e);
+        }
+        return new GradePolicy(properties, version(policy.getBytes(UTF_8)));
+    }
+
+    /**
+     * @param resource Path of policy on classpath
+     * @return Compiled policy
+     * @throws IllegalStateException when policy is missing or cannot be read
+     */
+    static GradePolicy load(final String resource) {
+        try (InputStream in = GradePolicy.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException(String.format("Missing grade policy %s", resource));
+            }
+            byte[] bytes = in.readAllBytes();
+            Properties policy = new Properties();
+            policy.load(new ByteArrayInputStream(bytes));
+            return new GradePolicy(policy, version(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("Cannot read grade policy %s", resource), e);
+        }
+    }
+
+    /**
+     * Unknown roles grant nothing.
+     *
+     * @param roles Value of roles attribute separated by semicolon, null if certificate has none
+     * @return Permissions of author with all roles
+     */
+    public Permissions compile(final String roles) {
+        if (roles == null) {
+            return Permissions.NONE;
+        }
+        long allow = 0;
+        long deny = 0;
+        for (String role : roles.split(ROLE_SEPARATOR)) {
+            allow |= allowed.getOrDefault(role.trim(), 0L);
+            deny |= denied.getOrDefault(role.trim(), 0L);
+        }
+        return new Permissions(allow & ~deny);
+    }
+
+    /**
+     * @param identity Identity of author
+     * @return Value of roles attribute, Admin if there is none and certificate
+     * has admin OU, null otherwise
+     */
+    static String rolesOf(final ClientIdentity identity) {
+        String roles = identity.getAttributeValue(ROLES_ATTRIBUTE);
+        if (roles != null) {
+            return roles;
+        }
+        try {
+            for (Rdn rdn : new LdapName(identity.getX509Certificate().getSubjectX500Principal().getName()).getRdns()) {
+                if ("OU".equalsIgnoreCase(rdn.getType()) && ADMIN_OU.equalsIgnoreCase(rdn.getValue().toString())) {
+                    return ADMIN_ROLE;
+                }
+            }
+        } catch (InvalidNameException e) {
+            throw new IllegalArgumentException("Cannot read subject of author certificate", e);
+        }
+        return null;
+    }
+
+    private static String version(final byte[] policy) {
+        return Hashing.sha256().hashBytes(policy).toString();
+    }
+
+    private static long compile(final String role, final String grant) {
+        String[] parts = grant.split(OWNERSHIP_SEPARATOR);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(String.format("Bad grant %s of role %s", grant, role));
+        }
+        Operation operation;
+        try {
+            operation = Operation.valueOf(parts[0].trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Bad grant %s of role %s", grant, role), e);
+        }
+        switch (parts[1].trim()) {
+            case OWN:
+                return Permissions.bit(operation, true);
+            case ANY:
+                return Permissions.bit(operation, true) | Permissions.bit(operation, false);
+            default:
+                throw new IllegalArgumentException(String.format("Bad grant %s of role %s", grant, role));
+        }
+    }
+}
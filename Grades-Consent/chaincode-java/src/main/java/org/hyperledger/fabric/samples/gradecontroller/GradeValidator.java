@@ -1,12 +1,13 @@
 package org.hyperledger.fabric.samples.gradecontroller;
 
-import org.apache.commons.collections.CollectionUtils;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 
-import java.util.Set;
-
-import static org.hyperledger.fabric.samples.gradecontroller.GradeController.gradeExists;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.GRADE_SCOPE;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.SUBJECT_SCOPE;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.consentGranted;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeStore.gradeExists;
+import static org.hyperledger.fabric.samples.gradecontroller.GradeController.hasGradesOfSubject;
 
 public final class GradeValidator {
     private GradeValidator() {
@@ -37,32 +38,85 @@ public final class GradeValidator {
         }
     }
 
-    public static void checkRolesForDeletion(final Set<String> roles, final String author) {
-        if (!CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"))) {
+    public static void checkRolesForDeletion(final Permissions permissions, final String author) {
+        checkPermission(permissions, Operation.DELETE, false, author);
+    }
+
+    public static void checkRolesForUpdate(final Permissions permissions, final String author) {
+        checkPermission(permissions, Operation.UPDATE, false, author);
+    }
+
+    public static void checkRolesForReading(final Permissions permissions, final String author) {
+        checkPermission(permissions, Operation.READ, false, author);
+    }
+
+    public static void checkRolesForReadingStudent(final Permissions permissions, final String author, final String student) {
+        checkPermission(permissions, Operation.READ, student.equals(author), author);
+    }
+
+    /**
+     * Viewer without permission needs consent for the grade or its subject, each
+     * is checked with single read of consent key.
+     */
+    public static boolean canReadGrade(final Context ctx, final Permissions permissions, final String author, final Grade grade) {
+        return permissions.allows(Operation.READ, grade.getStudent().equals(author))
+                || consentGranted(ctx, grade.getStudent(), author, GRADE_SCOPE + grade.getGradeId())
+                || consentGranted(ctx, grade.getStudent(), author, SUBJECT_SCOPE + grade.getSubject());
+    }
+
+    public static void checkRolesOrConsentForReading(final Context ctx, final Permissions permissions, final String author, final Grade grade) {
+        if (!canReadGrade(ctx, permissions, author, grade)) {
             String errorMessage = String.format("Insufficient privileges of %s", author);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
         }
     }
 
-    public static void checkRolesForUpdate(final Set<String> roles, final String author) {
-        if (!CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"))) {
-            String errorMessage = String.format("Insufficient privileges of %s", author);
+    public static void checkConsentScope(final String scope) {
+        if (!scope.startsWith(GRADE_SCOPE) && !scope.startsWith(SUBJECT_SCOPE)) {
+            String errorMessage = String.format("Bad consent scope %s", scope);
             System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+            throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.WRONG_CONSENT_SCOPE.toString());
         }
     }
 
-    public static void checkRolesForReading(final Set<String> roles, final String author) {
-        if (!CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"))) {
-            String errorMessage = String.format("Insufficient privileges of %s", author);
+    /**
+     * Student can only grant consent for own grade or subject of own grades.
+     */
+    public static void checkConsentScopeOfStudent(final Context ctx, final String student, final String scope) {
+        checkConsentScope(scope);
+        if (scope.startsWith(GRADE_SCOPE)) {
+            String gradeId = scope.substring(GRADE_SCOPE.length());
+            checkIfGradeDoesNotExists(ctx, gradeId);
+            if (!GradeCodec.decode(GradeContext.state(ctx).getState(gradeId)).getStudent().equals(student)) {
+                String errorMessage = String.format("Insufficient privileges of %s", student);
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+            }
+        } else if (!hasGradesOfSubject(ctx, student, scope.substring(SUBJECT_SCOPE.length()))) {
+            String errorMessage = String.format("Student %s has no grades of %s", student, scope.substring(SUBJECT_SCOPE.length()));
             System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
+            throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.WRONG_CONSENT_SCOPE.toString());
         }
     }
 
-    public static void checkRolesForAdding(final Set<String> roles, final String author) {
-        if (!CollectionUtils.containsAny(roles, Set.of("Admin", "Professor"))) {
+    public static void checkRolesForAdding(final Permissions permissions, final String author) {
+        checkPermission(permissions, Operation.ADD, false, author);
+    }
+
+    public static void checkRolesForConfiguration(final Permissions permissions, final String author) {
+        checkPermission(permissions, Operation.CONFIGURE, false, author);
+    }
+
+    public static void checkRolesForAuditing(final Permissions permissions, final String author, final String student) {
+        checkPermission(permissions, Operation.AUDIT, student.equals(author), author);
+    }
+
+    /**
+     * Checks compiled grade policy, allocates nothing when author is allowed.
+     */
+    private static void checkPermission(final Permissions permissions, final Operation operation, final boolean own, final String author) {
+        if (!permissions.allows(operation, own)) {
             String errorMessage = String.format("Insufficient privileges of %s", author);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeController.GradeControllerErrors.INSUFFICIENT_PERMISSIONS.toString());
@@ -70,12 +124,12 @@ public final class GradeValidator {
     }
 
     private static boolean checkGradeValue(final Double value) {
-        return value.equals(2.0)
+        return value != null && (value.equals(2.0)
                 || value.equals(2.5)
                 || value.equals(3.0)
                 || value.equals(3.5)
                 || value.equals(4.0)
                 || value.equals(4.5)
-                || value.equals(5.0);
+                || value.equals(5.0));
     }
 }
@@ -0,0 +1,15 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+/**
+ * Actions guarded by grade policy. READ and AUDIT distinguish grades of
+ * author from grades of other students, the other operations are always
+ * checked for any grade.
+ */
+public enum Operation {
+    ADD,
+    UPDATE,
+    DELETE,
+    READ,
+    CONFIGURE,
+    AUDIT
+}
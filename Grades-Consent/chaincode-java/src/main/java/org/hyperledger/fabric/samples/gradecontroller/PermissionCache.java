@@ -0,0 +1,78 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import org.hyperledger.fabric.contract.ClientIdentity;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Permissions of authors compiled by GradePolicy from roles of their
+ * certificates. Kept for the whole life of chaincode process and keyed by
+ * version of policy and SHA-256 fingerprint of certificate, so reissued
+ * certificate with other roles or other policy is compiled again, while
+ * policies with the same bytes share entries whichever instance parsed
+ * them. Cache is dropped when it grows over MAX_SIZE.
+ */
+public final class PermissionCache {
+
+    static final int MAX_SIZE = 10_000;
+
+    private static final String KEY_SEPARATOR = ":";
+
+    private static final Map<String, Permissions> PERMISSIONS = new ConcurrentHashMap<>();
+
+    private PermissionCache() {
+
+    }
+
+    /**
+     * @param identity Identity of author
+     * @param policy   Policy of transaction
+     * @return Permissions of author
+     */
+    public static Permissions of(final ClientIdentity identity, final GradePolicy policy) {
+        return of(identity.getX509Certificate(), policy, () -> GradePolicy.rolesOf(identity));
+    }
+
+    /**
+     * @param certificate Certificate of author
+     * @param policy      Policy of transaction
+     * @param roles       Reads roles attribute of certificate, called only on cache miss
+     * @return Permissions of author
+     */
+    static Permissions of(final X509Certificate certificate, final GradePolicy policy, final Supplier<String> roles) {
+        String key = policy.version() + KEY_SEPARATOR + fingerprint(certificate);
+        Permissions permissions = PERMISSIONS.get(key);
+        if (permissions == null) {
+            if (PERMISSIONS.size() >= MAX_SIZE) {
+                PERMISSIONS.clear();
+            }
+            permissions = policy.compile(roles.get());
+            PERMISSIONS.put(key, permissions);
+        }
+        return permissions;
+    }
+
+    @VisibleForTesting
+    static int size() {
+        return PERMISSIONS.size();
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        PERMISSIONS.clear();
+    }
+
+    private static String fingerprint(final X509Certificate certificate) {
+        try {
+            return Hashing.sha256().hashBytes(certificate.getEncoded()).toString();
+        } catch (CertificateEncodingException e) {
+            throw new IllegalArgumentException("Cannot encode certificate of author", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+/**
+ * Permissions of one author compiled by GradePolicy into bitmask, two bits
+ * for every operation: one for grades of other students and one for own
+ * grades. Checking permission allocates nothing.
+ */
+public final class Permissions {
+
+    static final Permissions NONE = new Permissions(0L);
+
+    private final long mask;
+
+    Permissions(final long mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * @param operation Operation
+     * @param own       True if author is student of the grade
+     * @return Bit of operation for grades of author or of other students
+     */
+    static long bit(final Operation operation, final boolean own) {
+        return 1L << (2 * operation.ordinal() + (own ? 1 : 0));
+    }
+
+    /**
+     * @param operation Operation
+     * @param own       True if author is student of the grade
+     * @return True if author may perform operation
+     */
+    public boolean allows(final Operation operation, final boolean own) {
+        return (mask & bit(operation, own)) != 0;
+    }
+
+    long getMask() {
+        return mask;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        Permissions that = (Permissions) obj;
+
+        return mask == that.mask;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(mask);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[mask = " + Long.toBinaryString(mask) + "]";
+    }
+}
@@ -0,0 +1,78 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One page of scan records with bookmark to pass when asking for the
+ * next page. Records filtered out by time or student still count as
+ * fetched, so page may hold fewer records than its size even if more
+ * pages follow.
+ */
+@DataType()
+public final class ScanPage {
+
+    @Property()
+    private final List<ScanRecord> records;
+
+    @Property()
+    private final Integer fetchedRecordsCount;
+
+    @Property()
+    private final String bookmark;
+
+    public List<ScanRecord> getRecords() {
+        return records;
+    }
+
+    public Integer getFetchedRecordsCount() {
+        return fetchedRecordsCount;
+    }
+
+    public String getBookmark() {
+        return bookmark;
+    }
+
+    public ScanPage(@JsonProperty("records") final List<ScanRecord> records,
+                      @JsonProperty("fetchedRecordsCount") final Integer fetchedRecordsCount,
+                      @JsonProperty("bookmark") final String bookmark) {
+        this.records = records;
+        this.fetchedRecordsCount = fetchedRecordsCount;
+        this.bookmark = bookmark;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        ScanPage that = (ScanPage) obj;
+
+        return Objects.equals(getRecords(), that.getRecords())
+                && Objects.equals(getFetchedRecordsCount(), that.getFetchedRecordsCount())
+                && Objects.equals(getBookmark(), that.getBookmark());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getRecords(), getFetchedRecordsCount(), getBookmark());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[records = " + records
+                + ", fetchedRecordsCount = " + fetchedRecordsCount
+                + ", bookmark = " + bookmark + "]";
+    }
+}
@@ -0,0 +1,146 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Single query reading grades of many students, stored under its own
+ * scan~txId composite key. Range scans keep bounds of the range, empty
+ * bound stands for open end. Queries reading chosen grades keep their
+ * ids grouped by student instead.
+ */
+@DataType()
+public final class ScanRecord {
+
+    @Property()
+    private final String author;
+
+    @Property()
+    private final String operation;
+
+    @Property()
+    private final String startKey;
+
+    @Property()
+    private final String endKey;
+
+    @Property()
+    private final Map<String, List<String>> gradeIds;
+
+    @Property()
+    private final String txId;
+
+    @Property()
+    private final Long timestamp;
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getStartKey() {
+        return startKey;
+    }
+
+    public String getEndKey() {
+        return endKey;
+    }
+
+    public Map<String, List<String>> getGradeIds() {
+        return gradeIds;
+    }
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public ScanRecord(@JsonProperty("author") final String author, @JsonProperty("operation") final String operation,
+                      @JsonProperty("startKey") final String startKey, @JsonProperty("endKey") final String endKey,
+                      @JsonProperty("gradeIds") final Map<String, List<String>> gradeIds,
+                      @JsonProperty("txId") final String txId, @JsonProperty("timestamp") final Long timestamp) {
+        this.author = author;
+        this.operation = operation;
+        this.startKey = startKey;
+        this.endKey = endKey;
+        this.gradeIds = gradeIds;
+        this.txId = txId;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Grade ids are student's name followed by number, so grades of student
+     * lie between student + "0" and student + "999999".
+     *
+     * @param student Student
+     * @return True if query could have read grades of student
+     */
+    public boolean covers(final String student) {
+        if (gradeIds != null) {
+            return gradeIds.containsKey(student);
+        }
+        return (startKey.isEmpty() || startKey.compareTo(student + "999999") <= 0)
+                && (endKey.isEmpty() || endKey.compareTo(student + "0") > 0);
+    }
+
+    /**
+     * @param student Student covered by query
+     * @return Same record showing only grade ids of student
+     */
+    public ScanRecord forStudent(final String student) {
+        if (gradeIds == null) {
+            return this;
+        }
+        return new ScanRecord(author, operation, null, null, Map.of(student, gradeIds.get(student)), txId, timestamp);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        ScanRecord that = (ScanRecord) obj;
+
+        return Objects.equals(getAuthor(), that.getAuthor())
+                && Objects.equals(getOperation(), that.getOperation())
+                && Objects.equals(getStartKey(), that.getStartKey())
+                && Objects.equals(getEndKey(), that.getEndKey())
+                && Objects.equals(getGradeIds(), that.getGradeIds())
+                && Objects.equals(getTxId(), that.getTxId())
+                && Objects.equals(getTimestamp(), that.getTimestamp());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getAuthor(), getOperation(), getStartKey(), getEndKey(), getGradeIds(), getTxId(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[author = " + author
+                + ", operation = " + operation
+                + ", startKey = " + startKey
+                + ", endKey = " + endKey
+                + ", gradeIds = " + gradeIds
+                + ", txId = " + txId
+                + ", timestamp = " + timestamp + "]";
+    }
+}
@@ -0,0 +1,55 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.contract.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Appends author of every access to visitors list of grade, so every read
+ * rewrites the grade and concurrent reads of the same grade conflict.
+ * Write set of scans is as large as the scanned range.
+ */
+public final class VisitorListConsent implements ConsentStrategy {
+
+    private final BiConsumer<Context, Grade> putGrade;
+
+    /**
+     * @param putGrade Writes grade in configured state format
+     */
+    public VisitorListConsent(final BiConsumer<Context, Grade> putGrade) {
+        this.putGrade = putGrade;
+    }
+
+    @Override
+    public Grade recordCreation(final Context ctx, final String author, final Grade grade) {
+        return withVisitor(grade, author);
+    }
+
+    @Override
+    public Grade recordAccess(final Context ctx, final String author, final String operation, final Grade grade) {
+        Grade visited = withVisitor(grade, author);
+        putGrade.accept(ctx, visited);
+        return visited;
+    }
+
+    @Override
+    public void recordAccess(final Context ctx, final String author, final String operation, final List<Grade> grades) {
+        for (Grade grade : grades) {
+            recordAccess(ctx, author, operation, grade);
+        }
+    }
+
+    @Override
+    public void recordScan(final Context ctx, final String author, final String operation,
+                           final String startKey, final String endKey, final List<Grade> grades) {
+        recordAccess(ctx, author, operation, grades);
+    }
+
+    private static Grade withVisitor(final Grade grade, final String author) {
+        List<String> visitors = grade.getVisitors() == null ? new ArrayList<>() : new ArrayList<>(grade.getVisitors());
+        visitors.add(author);
+        return new Grade(grade.getGradeId(), grade.getGrade(), visitors, grade.getSubject(), grade.getTeacher(), grade.getStudent());
+    }
+}
@@ -0,0 +1,100 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.Objects;
+
+/**
+ * Accesses of one visitor to one grade made by one transaction, stored
+ * under its own visitor~gradeId~visitor~txId composite key and summed up
+ * when read. Last access is transaction timestamp in epoch milliseconds,
+ * null when all accesses were migrated from visitors list that kept no
+ * time.
+ */
+@DataType()
+public final class VisitorStats {
+
+    @Property()
+    private final Integer count;
+
+    @Property()
+    private final Long lastAccess;
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public Long getLastAccess() {
+        return lastAccess;
+    }
+
+    public VisitorStats(@JsonProperty("count") final Integer count, @JsonProperty("lastAccess") final Long lastAccess) {
+        this.count = count;
+        this.lastAccess = lastAccess;
+    }
+
+    /**
+     * @return Stats of visitor that has not accessed grade
+     */
+    public static VisitorStats none() {
+        return new VisitorStats(0, null);
+    }
+
+    /**
+     * @param timestamp Timestamp of access in epoch milliseconds
+     * @return Stats including access
+     */
+    public VisitorStats visit(final long timestamp) {
+        return new VisitorStats(count + 1, lastAccess == null ? timestamp : Math.max(lastAccess, timestamp));
+    }
+
+    /**
+     * @param visits Number of accesses with unknown time
+     * @return Stats including accesses
+     */
+    public VisitorStats plus(final int visits) {
+        return new VisitorStats(count + visits, lastAccess);
+    }
+
+    /**
+     * @param other Stats of other accesses of the same visitor
+     * @return Stats including accesses of both
+     */
+    public VisitorStats plus(final VisitorStats other) {
+        if (other.lastAccess == null) {
+            return plus(other.count);
+        }
+        return new VisitorStats(count + other.count, lastAccess == null ? other.lastAccess : Math.max(lastAccess, other.lastAccess));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        VisitorStats that = (VisitorStats) obj;
+
+        return Objects.equals(getCount(), that.getCount())
+                && Objects.equals(getLastAccess(), that.getLastAccess());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getCount(), getLastAccess());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[count = " + count
+                + ", lastAccess = " + lastAccess + "]";
+    }
+}
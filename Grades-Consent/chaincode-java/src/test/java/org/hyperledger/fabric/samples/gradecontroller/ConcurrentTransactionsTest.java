@@ -0,0 +1,174 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs many transactions through one contract instance at once, the way
+ * the shim does when chaincode concurrency is above one. Every transaction
+ * gets its own simulated stub over shared world state, writes are applied
+ * when transaction finishes.
+ */
+public class ConcurrentTransactionsTest {
+
+    private static final int STUDENTS = 16;
+    private static final int TRANSACTIONS = 4000;
+    private static final int THREADS = 8;
+    private static final double[] VALUES = {2.0, 3.0, 3.5, 4.0, 4.5, 5.0};
+
+    private final Map<String, byte[]> world = new ConcurrentHashMap<>();
+
+    private static String student(final int i) {
+        return "Student " + i;
+    }
+
+    /**
+     * @param txId   Id of transaction
+     * @param writes Write set of transaction, null value stands for delete
+     * @return Stub reading shared world state and writing to write set
+     */
+    private ChaincodeStub simulatedStub(final String txId, final Map<String, byte[]> writes) {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getTxId()).thenReturn(txId);
+        when(stub.getCreator()).thenReturn(TestIdentities.creator("professor"));
+        when(stub.getTxTimestamp()).thenReturn(Instant.ofEpochMilli(1600000000000L));
+        when(stub.getState(anyString())).thenAnswer(invocation -> world.get(invocation.<String>getArgument(0)));
+        when(stub.getStringState(anyString())).thenAnswer(invocation -> {
+            byte[] value = world.get(invocation.<String>getArgument(0));
+            return value == null ? "" : new String(value, StandardCharsets.UTF_8);
+        });
+        doAnswer(invocation -> writes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(stub).putState(anyString(), ArgumentMatchers.any());
+        doAnswer(invocation -> writes.put(invocation.getArgument(0),
+                invocation.<String>getArgument(1).getBytes(StandardCharsets.UTF_8)))
+                .when(stub).putStringState(anyString(), anyString());
+        doAnswer(invocation -> writes.put(invocation.getArgument(0), null)).when(stub).delState(anyString());
+        when(stub.createCompositeKey(anyString(), ArgumentMatchers.<String>any())).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            String[] attributes = Arrays.copyOfRange(arguments, 1, arguments.length, String[].class);
+            return new CompositeKey((String) arguments[0], attributes);
+        });
+        when(stub.splitCompositeKey(anyString())).thenAnswer(invocation -> CompositeKey.parseCompositeKey(invocation.getArgument(0)));
+        return stub;
+    }
+
+    private void commit(final Map<String, byte[]> writes) {
+        writes.forEach((key, value) -> {
+            if (value == null) {
+                world.remove(key);
+            } else {
+                world.put(key, value);
+            }
+        });
+    }
+
+    private static boolean indexesGrade(final String key, final String gradeId) {
+        if (!key.startsWith(CompositeKey.NAMESPACE)) {
+            return false;
+        }
+        List<String> attributes = CompositeKey.parseCompositeKey(key).getAttributes();
+        return attributes.get(attributes.size() - 1).equals(gradeId);
+    }
+
+    // Subject summaries are shared by students, so only student summary can be tied to transaction
+    private static boolean summarizesGrade(final String key, final String student, final String txId) {
+        if (!key.startsWith(CompositeKey.NAMESPACE)) {
+            return false;
+        }
+        CompositeKey compositeKey = CompositeKey.parseCompositeKey(key);
+        List<String> attributes = compositeKey.getAttributes();
+        return compositeKey.getObjectType().equals(GradeStore.SUMMARY_DELTA_INDEX)
+                && attributes.get(2).equals(txId)
+                && (attributes.subList(0, 2).equals(List.of(GradeStore.STUDENT, student)) || attributes.get(0).equals(GradeStore.SUBJECT));
+    }
+
+    private Void runTransaction(final GradeController contract, final int tx) {
+        int i = tx % STUDENTS;
+        String student = student(i);
+        String gradeId = student + "0";
+        String txId = "tx" + tx;
+        Map<String, byte[]> writes = new HashMap<>();
+        GradeContext ctx = (GradeContext) contract.createContext(simulatedStub(txId, writes));
+
+        if (tx % 3 == 0) {
+            double value = VALUES[tx % VALUES.length];
+            String subject = "Subject " + tx;
+            Grade grade = contract.UpdateGrade(ctx, "Adam Mickiewicz", gradeId, value, subject, "Adam Mickiewicz", student);
+
+            assertThat(grade).isEqualTo(new Grade(gradeId, value, null, subject, "Adam Mickiewicz", student));
+            assertThat(GradeCodec.decode(writes.get(gradeId))).isEqualTo(grade);
+        } else {
+            Grade grade = contract.ReadGrade(ctx, "Adam Mickiewicz", gradeId);
+
+            assertThat(grade.getGradeId()).isEqualTo(gradeId);
+            assertThat(grade.getStudent()).isEqualTo(student);
+            assertThat(writes).doesNotContainKey(gradeId);
+        }
+        String accessKey = new CompositeKey(GradeController.ACCESS_INDEX, student, txId).toString();
+        assertThat(new String(writes.get(accessKey), StandardCharsets.UTF_8))
+                .contains("\"gradeIds\":[\"" + gradeId + "\"]", "\"txId\":\"" + txId + "\"");
+        for (String key : writes.keySet()) {
+            assertThat(key.equals(gradeId) || key.equals(accessKey) || indexesGrade(key, gradeId) || summarizesGrade(key, student, txId)
+                    || key.equals(new CompositeKey(GradeController.VISITOR_INDEX, gradeId, "Adam Mickiewicz", txId).toString()))
+                    .as("key %s written by %s", key, txId).isTrue();
+        }
+        commit(writes);
+        return null;
+    }
+
+    @Test
+    public void shouldKeepTransactionsApartWhenRunConcurrently() throws Exception {
+        GradeController contract = new GradeController();
+        for (int i = 0; i < STUDENTS; i++) {
+            Grade grade = new Grade(student(i) + "0", 3.0, null, "Math", "Adam Mickiewicz", student(i));
+            world.put(grade.getGradeId(), GradeCodec.encode(grade).getBytes(StandardCharsets.UTF_8));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int tx = 0; tx < TRANSACTIONS; tx++) {
+            int id = tx;
+            results.add(executor.submit(() -> {
+                start.await();
+                return runTransaction(contract, id);
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        for (Future<Void> result : results) {
+            result.get();
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            Grade grade = GradeCodec.decode(world.get(student(i) + "0"));
+            assertThat(grade.getStudent()).isEqualTo(student(i));
+            assertThat(grade.getVisitors()).isNull();
+            String visitsOfGrade = new CompositeKey(GradeController.VISITOR_INDEX, grade.getGradeId(), "Adam Mickiewicz").toString();
+            assertThat(world.keySet()).anyMatch(key -> key.startsWith(visitsOfGrade));
+        }
+    }
+}
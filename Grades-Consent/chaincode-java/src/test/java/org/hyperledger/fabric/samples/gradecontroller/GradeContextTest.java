@@ -0,0 +1,93 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public final class GradeContextTest {
+
+    private static ChaincodeStub signedBy(final String identity) {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getCreator()).thenReturn(TestIdentities.creator(identity));
+        when(stub.createCompositeKey(GradeStore.CONFIG, GradeController.GRADE_POLICY))
+                .thenReturn(new CompositeKey(GradeStore.CONFIG, GradeController.GRADE_POLICY));
+        return stub;
+    }
+
+    @Test
+    public void shouldReadAuthorFromEnrollmentId() {
+        GradeContext ctx = new GradeContext(signedBy("professor"));
+
+        assertThat(ctx.getAuthor()).isEqualTo("Adam Mickiewicz");
+    }
+
+    @Test
+    public void shouldReadAuthorFromCommonNameWithoutEnrollmentId() {
+        GradeContext ctx = new GradeContext(signedBy("subject-only"));
+
+        assertThat(ctx.getAuthor()).isEqualTo("Ola Piwowarczyk");
+    }
+
+    @Test
+    public void shouldReturnPermissionsOfSigner() {
+        GradeContext ctx = new GradeContext(signedBy("student"));
+
+        Permissions permissions = GradeContext.permissions(ctx, "Filip Piwowarczyk");
+
+        assertThat(permissions.allows(Operation.READ, true)).isTrue();
+        assertThat(permissions.allows(Operation.READ, false)).isFalse();
+    }
+
+    @Test
+    public void shouldGiveAdminRoleToAdminOuWithoutRoles() {
+        GradeContext ctx = new GradeContext(signedBy("org-admin"));
+
+        Permissions permissions = GradeContext.permissions(ctx, "Admin@org1.example.com");
+
+        assertThat(permissions.allows(Operation.CONFIGURE, false)).isTrue();
+    }
+
+    @Test
+    public void shouldReturnPermissionsOfPolicyInWorldState() {
+        ChaincodeStub stub = signedBy("student");
+        when(stub.getStringState(new CompositeKey(GradeStore.CONFIG, GradeController.GRADE_POLICY).toString()))
+                .thenReturn("Student = READ:ANY");
+        GradeContext ctx = new GradeContext(stub);
+
+        Permissions permissions = GradeContext.permissions(ctx, "Filip Piwowarczyk");
+
+        assertThat(permissions.allows(Operation.READ, false)).isTrue();
+    }
+
+    @Test
+    public void whenAuthorIsNotSigner() {
+        GradeContext ctx = new GradeContext(signedBy("student"));
+
+        Throwable thrown = catchThrowable(() -> GradeContext.permissions(ctx, "admin"));
+
+        assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                .hasMessage("Insufficient privileges of admin");
+        assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+    }
+
+    @Test
+    public void whenStudentClaimsToBeAdmin() {
+        GradeController contract = new GradeController();
+        ChaincodeStub stub = signedBy("student");
+
+        Throwable thrown = catchThrowable(() -> contract.DeleteGrade(new GradeContext(stub), "admin", "Ola Piwowarczyk0"));
+
+        assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                .hasMessage("Insufficient privileges of admin");
+        verify(stub, never()).delState(anyString());
+    }
+}
@@ -3,26 +3,167 @@ package org.hyperledger.fabric.samples.gradecontroller;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.eq;
 
 public final class GradeControllerTest {
 
+    private static final long TX_TIMESTAMP = 1600000000000L;
+
+    private static ChaincodeStub mockStub() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getTxId()).thenReturn("tx1");
+        when(stub.getTxTimestamp()).thenReturn(Instant.ofEpochMilli(TX_TIMESTAMP));
+        when(stub.createCompositeKey(anyString(), ArgumentMatchers.<String>any())).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            String[] attributes = Arrays.copyOfRange(arguments, 1, arguments.length, String[].class);
+            return new CompositeKey((String) arguments[0], attributes);
+        });
+        when(stub.splitCompositeKey(anyString())).thenAnswer(invocation -> CompositeKey.parseCompositeKey(invocation.getArgument(0)));
+        // Shim reads strings through getState, so string values stubbed in tests are also returned as bytes
+        when(stub.getState(anyString())).thenAnswer(invocation -> {
+            String value = stub.getStringState(invocation.getArgument(0));
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        });
+        return stub;
+    }
+
+    private static GradeContext mockContext(final ChaincodeStub stub) {
+        GradeContext ctx = mock(GradeContext.class);
+        StateCache state = new StateCache(stub);
+        when(ctx.getStub()).thenReturn(stub);
+        when(ctx.getState()).thenReturn(state);
+        return ctx;
+    }
+
+    private static GradeContext mockContext(final ChaincodeStub stub, final String roles) {
+        GradeContext ctx = mockContext(stub);
+        when(ctx.getPermissions()).thenReturn(GradePolicy.get().compile(roles));
+        return ctx;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryResultsIteratorWithMetadata<KeyValue> mockPage(final List<KeyValue> records, final String bookmark) throws Exception {
+        QueryResultsIteratorWithMetadata<KeyValue> results = mock(QueryResultsIteratorWithMetadata.class);
+        when(results.iterator()).thenReturn(records.iterator());
+        // protobuf package of the metadata differs between shim versions
+        Class<?> metadataType = QueryResultsIteratorWithMetadata.class.getMethod("getMetadata").getReturnType();
+        Object builder = metadataType.getMethod("newBuilder").invoke(null);
+        builder.getClass().getMethod("setFetchedRecordsCount", int.class).invoke(builder, records.size());
+        builder.getClass().getMethod("setBookmark", String.class).invoke(builder, bookmark);
+        Object metadata = builder.getClass().getMethod("build").invoke(builder);
+        when(results.getMetadata()).thenAnswer(invocation -> metadata);
+        return results;
+    }
+
+    private static String accessKey(final String student) {
+        return new CompositeKey(GradeController.ACCESS_INDEX, student, "tx1").toString();
+    }
+
+    // Plain iterator instead of mock, so results can be created while other stubbing is in progress
+    private static QueryResultsIterator<KeyValue> mockResults(final List<KeyValue> records) {
+        return new QueryResultsIterator<KeyValue>() {
+            @Override
+            public Iterator<KeyValue> iterator() {
+                return records.iterator();
+            }
+
+            @Override
+            public void close() {
+
+            }
+        };
+    }
+
+    private static String subjectKey(final String subject, final String student, final String gradeId) {
+        return new CompositeKey(GradeStore.SUBJECT_INDEX, subject, student, gradeId).toString();
+    }
+
+    private static String teacherKey(final String teacher, final String gradeId) {
+        return new CompositeKey(GradeStore.TEACHER_INDEX, teacher, gradeId).toString();
+    }
+
+    private static String sequenceKey(final String student) {
+        return new CompositeKey(GradeStore.GRADE_SEQUENCE, student).toString();
+    }
+
+    private static String summaryKey(final String type, final String name) {
+        return new CompositeKey(GradeStore.SUMMARY_INDEX, type, name).toString();
+    }
+
+    private static KeyModification mockModification(final String txId, final long timestamp, final String value) {
+        KeyModification modification = mock(KeyModification.class);
+        when(modification.getTxId()).thenReturn(txId);
+        when(modification.getTimestamp()).thenReturn(Instant.ofEpochMilli(timestamp));
+        when(modification.isDeleted()).thenReturn(value.isEmpty());
+        when(modification.getValue()).thenReturn(value.getBytes(StandardCharsets.UTF_8));
+        when(modification.getStringValue()).thenReturn(value);
+        return modification;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryResultsIterator<KeyModification> mockHistory(final Iterator<KeyModification> modifications) {
+        QueryResultsIterator<KeyModification> results = mock(QueryResultsIterator.class);
+        when(results.iterator()).thenReturn(modifications);
+        return results;
+    }
+
+    private static String visitorKey(final String gradeId, final String visitor) {
+        return new CompositeKey(GradeController.VISITOR_INDEX, gradeId, visitor, "tx1").toString();
+    }
+
+    private static String summaryDeltaKey(final String type, final String name) {
+        return new CompositeKey(GradeStore.SUMMARY_DELTA_INDEX, type, name, "tx1").toString();
+    }
+
+    private static String scanKey(final String txId) {
+        return new CompositeKey(GradeController.SCAN_INDEX, txId).toString();
+    }
+
+    private static String consentKey() {
+        return new CompositeKey(GradeStore.CONFIG, GradeController.CONSENT_STRATEGY).toString();
+    }
+
+    private static String grantKey(final String student, final String viewer, final String scope) {
+        return new CompositeKey(GradeController.CONSENT_INDEX, student, viewer, scope).toString();
+    }
+
+    private static String stateFormatKey() {
+        return new CompositeKey(GradeStore.CONFIG, GradeStore.STATE_FORMAT).toString();
+    }
+
+    private static String gradePolicyKey() {
+        return new CompositeKey(GradeStore.CONFIG, GradeController.GRADE_POLICY).toString();
+    }
+
     private final class MockKeyValue implements KeyValue {
 
         private final String key;
@@ -137,27 +278,59 @@ public final class GradeControllerTest {
         @Test
         public void whenGradeExists() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0,\"visitors\":[\"Adam Mickiewicz\"], \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
 
-            Grade grade = contract.ReadGrade(ctx, "Filip Piwowarczyk", "Professor", "Filip Piwowarczyk0");
+            Grade grade = contract.ReadGrade(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
 
-            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 2.0, List.of("Adam Mickiewicz"), "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 2.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+        }
+
+        @Test
+        public void shouldRecordAccessWithoutRewritingGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            contract.ReadGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0");
+
+            verify(stub).putStringState(accessKey("Filip Piwowarczyk"),
+                    "{\"author\":\"Adam Mickiewicz\",\"gradeIds\":[\"Filip Piwowarczyk0\"],\"operation\":\"READ\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+            verify(stub).putStringState(visitorKey("Filip Piwowarczyk0", "Adam Mickiewicz"), "{\"count\":1,\"lastAccess\":1600000000000}");
+            verify(stub, never()).putStringState(eq("Filip Piwowarczyk0"), anyString());
+        }
+
+        @Test
+        public void shouldMigrateVisitorsListOnFirstRead() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0,\"visitors\":[\"Adam Mickiewicz\", \"Ola Piwowarczyk\", \"Adam Mickiewicz\"], \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            Grade grade = contract.ReadGrade(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
+
+            assertThat(grade.getVisitors()).isNull();
+            verify(stub).putStringState("Filip Piwowarczyk0",
+                    "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
+            verify(stub).putStringState(visitorKey("Filip Piwowarczyk0", "Adam Mickiewicz"), "{\"count\":2,\"lastAccess\":null}");
+            verify(stub).putStringState(visitorKey("Filip Piwowarczyk0", "Ola Piwowarczyk"), "{\"count\":1,\"lastAccess\":null}");
+            verify(stub).putStringState(visitorKey("Filip Piwowarczyk0", "Filip Piwowarczyk"), "{\"count\":1,\"lastAccess\":1600000000000}");
         }
 
         @Test
         public void whenGradeDoesNotExist() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
             when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.ReadGrade(ctx, "Filip Piwowarczyk", "Student", "Filip Piwowarczyk0");
+                contract.ReadGrade(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
@@ -168,19 +341,20 @@ public final class GradeControllerTest {
         @Test
         void whenWrongRoleAssigned() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\",\"visitors\":[\"Adam Mickiewicz\"], \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.ReadGrade(ctx, "John Doe", "Student", "Filip Piwowarczyk0");
+                contract.ReadGrade(ctx, "John Doe", "Filip Piwowarczyk0");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
                     .hasMessage("Insufficient privileges of John Doe");
             assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+            verify(stub, never()).putStringState(anyString(), anyString());
+            verify(stub, never()).putState(anyString(), any());
         }
 
     }
@@ -188,25 +362,23 @@ public final class GradeControllerTest {
     @Test
     void invokeInitGradesTransaction() {
         GradeController contract = new GradeController();
-        Context ctx = mock(Context.class);
-        ChaincodeStub stub = mock(ChaincodeStub.class);
-        when(ctx.getStub()).thenReturn(stub);
+        ChaincodeStub stub = mockStub();
+        when(stub.getCreator()).thenReturn(TestIdentities.creator("admin"));
 
-        contract.initGrades(ctx);
+        contract.initGrades(new GradeContext(stub));
 
         InOrder inOrder = inOrder(stub);
-        inOrder.verify(stub).putStringState("Filip Piwowarczyk0", "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"admin\"]}");
-        inOrder.verify(stub).putStringState("Filip Piwowarczyk1", "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"WF\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"admin\"]}");
-        inOrder.verify(stub).putStringState("Filip Piwowarczyk2", "{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"IT\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"admin\"]}");
-        inOrder.verify(stub).putStringState("Filip Piwowarczyk3", "{\"grade\":3.5,\"gradeId\":\"Filip Piwowarczyk3\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"admin\"]}");
+        inOrder.verify(stub).putStringState("Filip Piwowarczyk0", "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
+        inOrder.verify(stub).putStringState("Filip Piwowarczyk1", "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"WF\",\"teacher\":\"Adam Mickiewicz\"}");
+        inOrder.verify(stub).putStringState("Filip Piwowarczyk2", "{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"IT\",\"teacher\":\"Adam Mickiewicz\"}");
+        inOrder.verify(stub).putStringState("Filip Piwowarczyk3", "{\"grade\":3.5,\"gradeId\":\"Filip Piwowarczyk3\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
     }
 
     @Test
     void shouldGenerateId() {
         GradeController controller = new GradeController();
-        Context ctx = mock(Context.class);
-        ChaincodeStub stub = mock(ChaincodeStub.class);
-        when(ctx.getStub()).thenReturn(stub);
+        ChaincodeStub stub = mockStub();
+        GradeContext ctx = mockContext(stub, "Professor");
         when(stub.getStringState("Filip Piwowarczyk0"))
                 .thenReturn("smth");
         when(stub.getStringState("Filip Piwowarczyk1"))
@@ -214,28 +386,25 @@ public final class GradeControllerTest {
         when(stub.getStringState("Filip Piwowarczyk2"))
                 .thenReturn("cos");
 
-        Grade grade = controller.addGrade(ctx, "John Doe", "Professor", 3.0, "Math", "John Doe", "Filip Piwowarczyk");
-
-        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk3", 3.0, List.of("John Doe"), "Math", "John Doe", "Filip Piwowarczyk"));
+        Grade grade = controller.addGrade(ctx, "John Doe", 3.0, "Math", "John Doe", "Filip Piwowarczyk");
 
+        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk3", 3.0, null, "Math", "John Doe", "Filip Piwowarczyk"));
+        verify(stub).putStringState(sequenceKey("Filip Piwowarczyk"), "4");
     }
 
     @Test
-    void shouldDeserializeRoles() {
-        String serializedRoles = "Student;Professor;Teacher";
-        GradeController gradeController = new GradeController();
-
-        Set<String> output = gradeController.deserializeRoles(serializedRoles);
-        assertThat(output).isEqualTo(Set.of("Student", "Professor", "Teacher"));
-    }
+    void shouldGenerateIdFromSequence() {
+        GradeController controller = new GradeController();
+        ChaincodeStub stub = mockStub();
+        GradeContext ctx = mockContext(stub, "Professor");
+        when(stub.getStringState(sequenceKey("Filip Piwowarczyk")))
+                .thenReturn("7");
 
-    @Test
-    void shouldDeserializeOneRole() {
-        String serializedRole = "Student";
-        GradeController gradeController = new GradeController();
+        Grade grade = controller.addGrade(ctx, "John Doe", 3.0, "Math", "John Doe", "Filip Piwowarczyk");
 
-        Set<String> output = gradeController.deserializeRoles(serializedRole);
-        assertThat(output).isEqualTo(Set.of("Student"));
+        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk7", 3.0, null, "Math", "John Doe", "Filip Piwowarczyk"));
+        verify(stub, never()).getStringState("Filip Piwowarczyk0");
+        verify(stub).putStringState(sequenceKey("Filip Piwowarczyk"), "8");
     }
 
     @Nested
@@ -244,14 +413,13 @@ public final class GradeControllerTest {
         @Test
         public void whenGradeExists() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"stuednt\": \"Filip Piwowarczyk\"}");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.addGradeWithId(ctx, "Adam Mickiewicz", "Professor", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+                contract.addGradeWithId(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
@@ -262,14 +430,13 @@ public final class GradeControllerTest {
         @Test
         public void whenWrongRole() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.addGradeWithId(ctx, "Filip Piwowarczyk", "Student", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+                contract.addGradeWithId(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
@@ -280,14 +447,13 @@ public final class GradeControllerTest {
         @Test
         public void whenAssignWrongValue() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.addGrade(ctx, "Adam Mickiewicz", "Professor", 3.2, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+                contract.addGrade(ctx, "Adam Mickiewicz", 3.2, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
@@ -298,44 +464,33 @@ public final class GradeControllerTest {
         @Test
         void invokeGetAllGradesTransaction() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
             when(stub.getStateByRange("", "")).thenReturn(new MockGradeResultsIteratorDifferentStudents());
-            when(stub.getStringState("Ola Piwowarczyk0"))
-                    .thenReturn("{\"grade\":4.0,\"visitors\":[\"Adam Mickiewicz\"],\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
-            when(stub.getStringState("Filip Piwowarczyk0"))
-                    .thenReturn("{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}");
-            when(stub.getStringState("Filip Piwowarczyk1"))
-                    .thenReturn("{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\"]}");
-            when(stub.getStringState("Filip Piwowarczyk2"))
-                    .thenReturn("{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"History\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\"]}");
-            when(stub.getStringState("Filip Piwowarczyk3"))
-                    .thenReturn("{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk3\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"Filip Piwowarczyk\"]}");
-            when(stub.getStringState("Filip Piwowarczyk4"))
-                    .thenReturn("{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk4\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\"]}");
 
-            String grades = contract.getAllGrades(ctx, "admin", "Admin");
+            String grades = contract.getAllGrades(ctx, "admin");
 
-            assertThat(grades).isEqualTo("[{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\"]},"
-                    + "{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\",\"admin\"]},"
-                    + "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"History\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\",\"admin\"]},"
-                    + "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk3\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"Filip Piwowarczyk\",\"admin\"]},"
-                    + "{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk4\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\",\"admin\"]},"
-                    + "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\"]}]");
+            assertThat(grades).isEqualTo("[{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
+                    + "{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
+                    + "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"History\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
+                    + "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk3\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
+                    + "{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk4\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
+                    + "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"Ola Piwowarczyk\"]}]");
+            verify(stub).putStringState(scanKey("tx1"),
+                    "{\"author\":\"admin\",\"endKey\":\"\",\"gradeIds\":null,\"operation\":\"READ\",\"startKey\":\"\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+            verify(stub, times(1)).putStringState(anyString(), anyString());
         }
 
         @Test
         void whenInvokeGetAllGradesTransactionWithBadRole() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
             when(stub.getStateByRange("", "")).thenReturn(new MockGradeResultsIteratorDifferentStudents());
 
 
             Throwable thrown = catchThrowable(() -> {
-                contract.getAllGrades(ctx, "John Doe", "Student");
+                contract.getAllGrades(ctx, "John Doe");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
@@ -347,14 +502,11 @@ public final class GradeControllerTest {
         @Test
         void invokeGetGradesForStudent() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
             when(stub.getStateByRange("Filip Piwowarczyk0", "Filip Piwowarczyk999999")).thenReturn(new MockGradeResultsIteratorOneStudent());
-            when(stub.getStringState(anyString()))
-                    .thenReturn("{\"grade\":2.0,\"visitors\":[\"Adam Mickiewicz\"],\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
 
-            String grades = contract.getGradesForStudent(ctx, "Filip Piwowarczyk", "Student", "Filip Piwowarczyk");
+            String grades = contract.getGradesForStudent(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk");
 
             assertThat(grades).isEqualTo("[{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
                     + "{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
@@ -366,113 +518,1467 @@ public final class GradeControllerTest {
         @Test
         void whenInvokeGradesForStudentWithDifferentName() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
             when(stub.getStateByRange("Filip Piwowarczyk0", "Filip Piwowarczyk999999")).thenReturn(new MockGradeResultsIteratorOneStudent());
-            when(stub.getStringState(anyString()))
-                    .thenReturn("{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk4\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}]");
+            when(stub.getStateByPartialCompositeKey(GradeController.CONSENT_INDEX, "Filip Piwowarczyk", "John Doe")).thenReturn(mockResults(List.of()));
 
             Throwable thrown = catchThrowable(() -> {
-                contract.getGradesForStudent(ctx, "John Doe", "Student", "Filip Piwowarczyk");
+                contract.getGradesForStudent(ctx, "John Doe", "Filip Piwowarczyk");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
                     .hasMessage("Insufficient privileges of John Doe");
             assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+            verify(stub, never()).getStateByRange(anyString(), anyString());
+            verify(stub, never()).putStringState(anyString(), anyString());
         }
     }
 
     @Nested
-    class UpdateGradeTransaction {
+    class PaginatedQueries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String filip1 = "{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
 
         @Test
-        public void whenGradeExists() {
+        void invokeGetAllGradesPage() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("Filip Piwowarczyk0"))
-                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0,  \"visitors\":[\"Adam Mickiewicz\"], \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk0", filip0), new MockKeyValue("Filip Piwowarczyk1", filip1)), "Filip Piwowarczyk2");
+            when(stub.getStateByRangeWithPagination("", "", 2, "")).thenReturn(results);
 
-            Grade grade = contract.UpdateGrade(ctx, "Adam Mickiewicz", "Professor", "Filip Piwowarczyk0", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+            String page = contract.getAllGradesPage(ctx, "admin", 2, "");
 
-            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 4.0, List.of("Adam Mickiewicz", "Adam Mickiewicz"), "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            assertThat(page).isEqualTo("{\"bookmark\":\"Filip Piwowarczyk2\",\"fetchedRecordsCount\":2,\"records\":[" + filip0 + "," + filip1 + "]}");
+            verify(stub, never()).putStringState(anyString(), anyString());
         }
 
         @Test
-        public void whenGradeDoesNotExists() {
+        void whenInvokeGetAllGradesPageWithBadRole() {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.UpdateGrade(ctx, "Adam Mickiewicz", "Professor", "Filip Piwowarczyk0", 3.0, "Math", "Adam Dabrowski", "Filip Piwowarczyk");
+                contract.getAllGradesPage(ctx, "John Doe", 2, "");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
-                    .hasMessage("Grade Filip Piwowarczyk0 does not exist");
-            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("GRADE_NOT_FOUND".getBytes());
+                    .hasMessage("Insufficient privileges of John Doe");
         }
 
         @Test
-        void whenAssignWrongGradeValue() {
+        void invokeGetGradesForStudentPage() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("Filip Piwowarczyk0"))
-                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk1", filip1)), "");
+            when(stub.getStateByRangeWithPagination("Filip Piwowarczyk0", "Filip Piwowarczyk999999", 1, "Filip Piwowarczyk1"))
+                    .thenReturn(results);
 
-            Throwable thrown = catchThrowable(() -> {
-                contract.UpdateGrade(ctx, "Adam Mickiewicz", "Professor", "Filip Piwowarczyk0", 3.2, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
-            });
+            String page = contract.getGradesForStudentPage(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk", 1, "Filip Piwowarczyk1");
 
-            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
-                    .hasMessage("Bad grade value 3.2");
-            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_GRADE_VALUE".getBytes());
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + filip1 + "]}");
         }
 
         @Test
-        void whenUpdatingWithBadRole() {
+        void whenInvokeGetGradesForStudentPageWithDifferentName() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("John Doe0"))
-                    .thenReturn("{ \"gradeId\": \"John Doe0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"John Doe\"}");
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk0", filip0)), "");
+            when(stub.getStateByRangeWithPagination("Filip Piwowarczyk0", "Filip Piwowarczyk999999", 1, "")).thenReturn(results);
+            when(stub.getStateByPartialCompositeKey(GradeController.CONSENT_INDEX, "Filip Piwowarczyk", "John Doe")).thenReturn(mockResults(List.of()));
 
             Throwable thrown = catchThrowable(() -> {
-                contract.UpdateGrade(ctx, "John Doe", "Student", "John Doe0", 3.0, "Math", "Adam Mickiewicz", "John Doe");
+                contract.getGradesForStudentPage(ctx, "John Doe", "Filip Piwowarczyk", 1, "");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
                     .hasMessage("Insufficient privileges of John Doe");
+            verify(stub, never()).getStateByRangeWithPagination(anyString(), anyString(), anyInt(), anyString());
+        }
+
+        @Test
+        void invokeRecordGradesAccess() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Filip Piwowarczyk1")).thenReturn(filip1);
+
+            contract.recordGradesAccess(ctx, "admin", new String[]{"Filip Piwowarczyk0", "Filip Piwowarczyk1", "Deleted0"});
+
+            verify(stub).putStringState(accessKey("Filip Piwowarczyk"),
+                    "{\"author\":\"admin\",\"gradeIds\":[\"Filip Piwowarczyk0\",\"Filip Piwowarczyk1\"],\"operation\":\"READ\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+        }
+
+        @Test
+        void whenRecordingAccessToGradeOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            Throwable thrown = catchThrowable(() -> contract.recordGradesAccess(ctx, "Ola Piwowarczyk", new String[]{"Filip Piwowarczyk0"}));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void invokeRecordGradesScan() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Filip Piwowarczyk1")).thenReturn(filip1);
+
+            contract.recordGradesScan(ctx, "admin", new String[]{"Filip Piwowarczyk0", "Filip Piwowarczyk1", "Deleted0"});
+
+            verify(stub).putStringState(scanKey("tx1"),
+                    "{\"author\":\"admin\",\"endKey\":null,\"gradeIds\":{\"Filip Piwowarczyk\":[\"Filip Piwowarczyk0\",\"Filip Piwowarczyk1\"]},"
+                            + "\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+            verify(stub, times(1)).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenRecordingScanWithoutReadingAllGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            Throwable thrown = catchThrowable(() -> contract.recordGradesScan(ctx, "Filip Piwowarczyk", new String[]{"Filip Piwowarczyk0"}));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Filip Piwowarczyk");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenRecordingAccessInNameOfOtherUser() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            when(stub.getCreator()).thenReturn(TestIdentities.creator("student"));
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            Throwable thrown = catchThrowable(() -> contract.recordGradesAccess(new GradeContext(stub), "Adam Mickiewicz", new String[]{"Filip Piwowarczyk0"}));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Adam Mickiewicz");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+    }
+
+    @Nested
+    class AccessLog {
+
+        private final String oldRead = "{\"author\":\"Adam Mickiewicz\",\"gradeIds\":[\"Filip Piwowarczyk0\"],\"operation\":\"READ\",\"timestamp\":1500000000000,\"txId\":\"tx0\"}";
+        private final String newRead = "{\"author\":\"admin\",\"gradeIds\":[\"Filip Piwowarczyk0\",\"Filip Piwowarczyk1\"],\"operation\":\"READ\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}";
+
+        private void mockAccessPage(final ChaincodeStub stub, final String bookmark) throws Exception {
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue(new CompositeKey(GradeController.ACCESS_INDEX, "Filip Piwowarczyk", "tx0").toString(), oldRead),
+                    new MockKeyValue(accessKey("Filip Piwowarczyk"), newRead)), "tx2");
+            CompositeKey studentKey = new CompositeKey(GradeController.ACCESS_INDEX, "Filip Piwowarczyk");
+            when(stub.getStateByPartialCompositeKeyWithPagination(
+                    ArgumentMatchers.argThat(key -> key.toString().equals(studentKey.toString())), eq(2), eq(bookmark)))
+                    .thenReturn(results);
+        }
+
+        @Test
+        void invokeGetAccessLog() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            mockAccessPage(stub, "");
+
+            String page = contract.getAccessLog(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk", 0, 2, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"tx2\",\"fetchedRecordsCount\":2,\"records\":[" + oldRead + "," + newRead + "]}");
+            verify(stub, never()).putStringState(anyString(), anyString());
+            verify(stub, never()).putState(anyString(), any());
+        }
+
+        @Test
+        void shouldSkipRecordsBeforeSince() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            mockAccessPage(stub, "tx0");
+
+            String page = contract.getAccessLog(ctx, "admin", "Filip Piwowarczyk", 1550000000000L, 2, "tx0");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"tx2\",\"fetchedRecordsCount\":2,\"records\":[" + newRead + "]}");
+        }
+
+        @Test
+        void invokeGetGradeVisitors() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Ola Piwowarczyk\"]}");
+            QueryResultsIterator<KeyValue> visitors = mockResults(List.of(
+                    new MockKeyValue(new CompositeKey(GradeController.VISITOR_INDEX, "Filip Piwowarczyk0", "Adam Mickiewicz", "tx0").toString(),
+                            "{\"count\":2,\"lastAccess\":1500000000000}"),
+                    new MockKeyValue(visitorKey("Filip Piwowarczyk0", "Adam Mickiewicz"), "{\"count\":1,\"lastAccess\":1600000000000}")));
+            when(stub.getStateByPartialCompositeKey(GradeController.VISITOR_INDEX, "Filip Piwowarczyk0")).thenReturn(visitors);
+
+            String result = contract.getGradeVisitors(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
+
+            assertThat(result).isEqualTo("{\"Adam Mickiewicz\":{\"count\":3,\"lastAccess\":1600000000000},\"Ola Piwowarczyk\":{\"count\":1,\"lastAccess\":null}}");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void invokeGetScanLog() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            String allGrades = "{\"author\":\"admin\",\"endKey\":\"\",\"gradeIds\":null,\"operation\":\"READ\",\"startKey\":\"\",\"timestamp\":1600000000000,\"txId\":\"tx0\"}";
+            String otherRange = "{\"author\":\"admin\",\"endKey\":\"Ola Piwowarczyk999999\",\"gradeIds\":null,\"operation\":\"READ\",\"startKey\":\"Ola Piwowarczyk0\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}";
+            String math = "{\"author\":\"Adam Mickiewicz\",\"endKey\":null,\"gradeIds\":{\"Filip Piwowarczyk\":[\"Filip Piwowarczyk0\"],\"Ola Piwowarczyk\":[\"Ola Piwowarczyk0\"]},"
+                    + "\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx2\"}";
+            String oldScan = "{\"author\":\"admin\",\"endKey\":\"\",\"gradeIds\":null,\"operation\":\"READ\",\"startKey\":\"\",\"timestamp\":1500000000000,\"txId\":\"tx3\"}";
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue(scanKey("tx0"), allGrades),
+                    new MockKeyValue(scanKey("tx1"), otherRange),
+                    new MockKeyValue(scanKey("tx2"), math),
+                    new MockKeyValue(scanKey("tx3"), oldScan)), "tx4");
+            CompositeKey scansKey = new CompositeKey(GradeController.SCAN_INDEX);
+            when(stub.getStateByPartialCompositeKeyWithPagination(
+                    ArgumentMatchers.argThat(key -> key.toString().equals(scansKey.toString())), eq(4), eq("")))
+                    .thenReturn(results);
+
+            String page = contract.getScanLog(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk", 1550000000000L, 4, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"tx4\",\"fetchedRecordsCount\":4,\"records\":[" + allGrades + ","
+                    + "{\"author\":\"Adam Mickiewicz\",\"endKey\":null,\"gradeIds\":{\"Filip Piwowarczyk\":[\"Filip Piwowarczyk0\"]},\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx2\"}]}");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenReadingScanLogOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+
+            Throwable thrown = catchThrowable(() -> contract.getScanLog(ctx, "Ola Piwowarczyk", "Filip Piwowarczyk", 0, 2, ""));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            verify(stub, never()).getStateByPartialCompositeKeyWithPagination(any(CompositeKey.class), anyInt(), anyString());
+        }
+
+        @Test
+        void whenReadingAccessLogOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+
+            Throwable thrown = catchThrowable(() -> contract.getAccessLog(ctx, "Adam Mickiewicz", "Filip Piwowarczyk", 0, 2, ""));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Adam Mickiewicz");
             assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
         }
+    }
+
+    @Nested
+    class IndexedQueries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String ola0 = "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+
+        @Test
+        void invokeGetGradesBySubject() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIterator<KeyValue> results = mockResults(List.of(
+                    new MockKeyValue(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE),
+                    new MockKeyValue(subjectKey("Math", "Ola Piwowarczyk", "Ola Piwowarczyk0"), GradeStore.INDEX_VALUE)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUBJECT_INDEX, "Math")).thenReturn(results);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Ola Piwowarczyk0")).thenReturn(ola0);
+
+            String grades = contract.getGradesBySubject(ctx, "admin", "Math");
+
+            assertThat(grades).isEqualTo("[" + filip0 + "," + ola0 + "]");
+            verify(stub).putStringState(scanKey("tx1"),
+                    "{\"author\":\"admin\",\"endKey\":null,\"gradeIds\":{\"Filip Piwowarczyk\":[\"Filip Piwowarczyk0\"],\"Ola Piwowarczyk\":[\"Ola Piwowarczyk0\"]},"
+                            + "\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+            verify(stub, times(1)).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void invokeGetGradesByTeacher() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIterator<KeyValue> results = mockResults(List.of(
+                    new MockKeyValue(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE),
+                    new MockKeyValue(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk9"), GradeStore.INDEX_VALUE)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.TEACHER_INDEX, "Adam Mickiewicz")).thenReturn(results);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Filip Piwowarczyk9")).thenReturn("");
+
+            String grades = contract.getGradesByTeacher(ctx, "admin", "Adam Mickiewicz");
+
+            assertThat(grades).isEqualTo("[" + filip0 + "]");
+        }
+
+        @Test
+        void shouldIndexAddedGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            contract.addGrade(ctx, "admin", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putStringState(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE);
+            verify(stub).putStringState(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE);
+        }
+
+        @Test
+        void shouldMoveChangedIndexOnUpdate() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.UpdateGrade(ctx, "admin", "Filip Piwowarczyk0", 3.0, "Math", "Adam Dabrowski", "Filip Piwowarczyk");
+
+            verify(stub).delState(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"));
+            verify(stub).putStringState(teacherKey("Adam Dabrowski", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE);
+            verify(stub, never()).delState(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"));
+            verify(stub, never()).putStringState(eq(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0")), anyString());
+        }
+
+        @Test
+        void shouldRemoveIndexOnDelete() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
 
+            contract.DeleteGrade(ctx, "admin", "Filip Piwowarczyk0");
+
+            verify(stub).delState("Filip Piwowarczyk0");
+            verify(stub).delState(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"));
+            verify(stub).delState(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"));
+        }
     }
 
     @Nested
-    class DeleteGradeTransaction {
+    class RichQueries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String filip1 = "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String filip2 = "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String ola0 = "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
 
         @Test
-        public void whenGradeDoesNotExist() {
+        void invokeQueryGradesInCouchDB() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
-            when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk0", filip0)), "g1AAAA");
+            when(stub.getQueryResultWithPagination(anyString(), eq(1), eq(""))).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "admin", "{\"subject\":\"Math\"}", 1, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"g1AAAA\",\"fetchedRecordsCount\":1,\"records\":[" + filip0 + "]}");
+            verify(stub).getQueryResultWithPagination(
+                    "{\"selector\":{\"subject\":\"Math\",\"gradeId\":{\"$exists\":true},\"grade\":{\"$exists\":true}}}", 1, "");
+        }
+
+        @Test
+        void invokeQueryGradesInLevelDB() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getQueryResultWithPagination(anyString(), eq(3), eq("")))
+                    .thenThrow(new RuntimeException("ExecuteQuery not supported for leveldb"));
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue("Filip Piwowarczyk0", filip0),
+                    new MockKeyValue("Filip Piwowarczyk1", filip1),
+                    new MockKeyValue("Filip Piwowarczyk2", filip2)), "Ola Piwowarczyk0");
+            when(stub.getStateByRangeWithPagination("", "", 3, "")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "admin", "{\"subject\":\"Math\",\"grade\":{\"$gte\":4}}", 3, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"range:Ola Piwowarczyk0\",\"fetchedRecordsCount\":3,\"records\":[" + filip2 + "]}");
+        }
+
+        @Test
+        void shouldContinueRangeBookmarkInChaincode() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue("Ola Piwowarczyk0", ola0)), "");
+            when(stub.getStateByRangeWithPagination("", "", 3, "Ola Piwowarczyk0")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "admin", "{\"subject\":\"Math\",\"grade\":{\"$gte\":4}}", 3, "range:Ola Piwowarczyk0");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + ola0 + "]}");
+            verify(stub, never()).getQueryResultWithPagination(anyString(), anyInt(), anyString());
+        }
+
+        @Test
+        void shouldSkipConsentGrantsInChaincode() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getQueryResultWithPagination(anyString(), eq(4), eq("")))
+                    .thenThrow(new RuntimeException("ExecuteQuery not supported for leveldb"));
+            String grant = "{\"scope\":\"subject:Math\",\"student\":\"Filip Piwowarczyk\",\"timestamp\":1600000000000,\"viewer\":\"Jan Kowalski\"}";
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue(grantKey("Filip Piwowarczyk", "Jan Kowalski", "subject:Math"), grant),
+                    new MockKeyValue(consentKey(), "VISITORS"),
+                    new MockKeyValue("Filip Piwowarczyk0", filip0),
+                    new MockKeyValue("Filip Piwowarczyk1", filip1)), "");
+            when(stub.getStateByRangeWithPagination("", "", 4, "")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "admin", "{\"student\":\"Filip Piwowarczyk\"}", 4, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":4,\"records\":[" + filip0 + "," + filip1 + "]}");
+        }
+
+        @Test
+        void whenQueryGradesWithUnsupportedOperator() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
 
             Throwable thrown = catchThrowable(() -> {
-                contract.DeleteGrade(ctx, "Filip Piwowarczyk", "Professor", "Filip Piwowarczyk0");
+                contract.queryGrades(ctx, "admin", "{\"subject\":{\"$regex\":\"^M\"}}", 1, "");
             });
 
             assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
-                    .hasMessage("Grade Filip Piwowarczyk0 does not exist");
-            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("GRADE_NOT_FOUND".getBytes());
+                    .hasMessage("Bad selector {\"subject\":{\"$regex\":\"^M\"}}: Unsupported operator $regex");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_SELECTOR".getBytes());
+        }
+
+        @Test
+        void whenQueryReturnsGradesOfOtherStudent() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Ola Piwowarczyk0", ola0)), "");
+            when(stub.getQueryResultWithPagination(anyString(), eq(10), eq(""))).thenReturn(results);
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.queryGrades(ctx, "Filip Piwowarczyk", "{\"subject\":\"Math\"}", 10, "");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Filip Piwowarczyk");
+        }
+    }
+
+    @Nested
+    class BatchTransactions {
+
+        @Test
+        void invokeAddGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            String results = contract.addGrades(ctx, "admin", "["
+                    + "{\"grade\":4.0,\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"},"
+                    + "{\"grade\":3.2,\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"},"
+                    + "{\"grade\":5.0,\"subject\":\"IT\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"}]");
+
+            assertThat(results).isEqualTo("["
+                    + "{\"error\":null,\"grade\":{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null},"
+                    + "{\"error\":\"WRONG_GRADE_VALUE\",\"grade\":null,\"gradeId\":null,\"message\":\"Bad grade value 3.2\"},"
+                    + "{\"error\":null,\"grade\":{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"IT\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk1\",\"message\":null}]");
+            verify(stub, times(1)).getStringState(sequenceKey("Filip Piwowarczyk"));
+            verify(stub).putStringState(sequenceKey("Filip Piwowarczyk"), "2");
+        }
+
+        @Test
+        void invokeUpdateGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}");
+
+            String results = contract.updateGrades(ctx, "admin", "[{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk9\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}]");
+
+            assertThat(results).isEqualTo("["
+                    + "{\"error\":null,\"grade\":{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null},"
+                    + "{\"error\":\"GRADE_NOT_FOUND\",\"grade\":null,\"gradeId\":\"Filip Piwowarczyk9\",\"message\":\"Grade Filip Piwowarczyk9 does not exist\"}]");
+        }
+
+        @Test
+        void whenGradesAreMalformed() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.updateGrades(ctx, "admin", "[{\"grade\":4.0,\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"}]");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause();
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_GRADES_FORMAT".getBytes());
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenAddGradesWithBadRole() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.addGrades(ctx, "John Doe", "[]");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of John Doe");
+        }
+
+        @Test
+        void shouldRecordOneAccessPerStudentInUpdateGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}");
+            when(stub.getStringState("Filip Piwowarczyk1")).thenReturn("{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}");
+
+            contract.updateGrades(ctx, "admin", "[{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\"}]");
+
+            verify(stub).putStringState(accessKey("Filip Piwowarczyk"),
+                    "{\"author\":\"admin\",\"gradeIds\":[\"Filip Piwowarczyk0\",\"Filip Piwowarczyk1\"],\"operation\":\"UPDATE\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+        }
+    }
+
+    @Nested
+    class ReadGradesTransaction {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String ola0 = "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+
+        @Test
+        void invokeReadGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Ola Piwowarczyk0")).thenReturn(ola0);
+
+            String results = contract.ReadGrades(ctx, "admin", new String[]{"Filip Piwowarczyk0", "Filip Piwowarczyk9", "Ola Piwowarczyk0"});
+
+            assertThat(results).isEqualTo("[{\"error\":null,\"grade\":" + filip0 + ",\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null},"
+                    + "{\"error\":\"GRADE_NOT_FOUND\",\"grade\":null,\"gradeId\":\"Filip Piwowarczyk9\",\"message\":\"Grade Filip Piwowarczyk9 does not exist\"},"
+                    + "{\"error\":null,\"grade\":" + ola0 + ",\"gradeId\":\"Ola Piwowarczyk0\",\"message\":null}]");
+            verify(stub).putStringState(accessKey("Filip Piwowarczyk"),
+                    "{\"author\":\"admin\",\"gradeIds\":[\"Filip Piwowarczyk0\"],\"operation\":\"READ\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+            verify(stub).putStringState(accessKey("Ola Piwowarczyk"),
+                    "{\"author\":\"admin\",\"gradeIds\":[\"Ola Piwowarczyk0\"],\"operation\":\"READ\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+        }
+
+        @Test
+        void whenReadingGradesOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Ola Piwowarczyk0")).thenReturn(ola0);
+
+            String results = contract.ReadGrades(ctx, "Ola Piwowarczyk", new String[]{"Filip Piwowarczyk0", "Ola Piwowarczyk0"});
+
+            assertThat(results).isEqualTo("[{\"error\":\"INSUFFICIENT_PERMISSIONS\",\"grade\":null,\"gradeId\":\"Filip Piwowarczyk0\",\"message\":\"Insufficient privileges of Ola Piwowarczyk\"},"
+                    + "{\"error\":null,\"grade\":" + ola0 + ",\"gradeId\":\"Ola Piwowarczyk0\",\"message\":null}]");
+            verify(stub, never()).putStringState(eq(accessKey("Filip Piwowarczyk")), anyString());
+            verify(stub).putStringState(eq(accessKey("Ola Piwowarczyk")), anyString());
+        }
+    }
+
+    @Nested
+    class UpdateGradeTransaction {
+
+        @Test
+        public void whenGradeExists() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0,  \"visitors\":[\"Adam Mickiewicz\"], \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            Grade grade = contract.UpdateGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 4.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            verify(stub).putStringState(accessKey("Filip Piwowarczyk"),
+                    "{\"author\":\"Adam Mickiewicz\",\"gradeIds\":[\"Filip Piwowarczyk0\"],\"operation\":\"UPDATE\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}");
+        }
+
+        @Test
+        public void whenGradeDoesNotExists() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.UpdateGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 3.0, "Math", "Adam Dabrowski", "Filip Piwowarczyk");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Grade Filip Piwowarczyk0 does not exist");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("GRADE_NOT_FOUND".getBytes());
+        }
+
+        @Test
+        void whenAssignWrongGradeValue() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.UpdateGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 3.2, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad grade value 3.2");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_GRADE_VALUE".getBytes());
+        }
+
+        @Test
+        void whenUpdatingWithBadRole() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("John Doe0"))
+                    .thenReturn("{ \"gradeId\": \"John Doe0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"John Doe\"}");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.UpdateGrade(ctx, "John Doe", "John Doe0", 3.0, "Math", "Adam Mickiewicz", "John Doe");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of John Doe");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+        }
+
+    }
+
+    @Nested
+    class StateFormatTransactions {
+
+        private final Grade filip0 = new Grade("Filip Piwowarczyk0", 2.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+        private final String filip0JSON = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        private KeyValue compactKeyValue(final Grade grade) {
+            KeyValue keyValue = mock(KeyValue.class);
+            when(keyValue.getKey()).thenReturn(grade.getGradeId());
+            when(keyValue.getValue()).thenReturn(CompactGradeCodec.encode(grade));
+            return keyValue;
+        }
+
+        @Test
+        void invokeSetStateFormat() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            contract.setStateFormat(ctx, "admin", "COMPACT");
+
+            verify(stub).putStringState(stateFormatKey(), "COMPACT");
+        }
+
+        @Test
+        void whenStateFormatIsUnknown() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Throwable thrown = catchThrowable(() -> contract.setStateFormat(ctx, "admin", "XML"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad state format XML");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_STATE_FORMAT".getBytes());
+            verify(stub, never()).putStringState(eq(stateFormatKey()), anyString());
+        }
+
+        @Test
+        void whenSettingStateFormatWithoutAdminRole() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+
+            Throwable thrown = catchThrowable(() -> contract.setStateFormat(ctx, "Adam Mickiewicz", "COMPACT"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Adam Mickiewicz");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+        }
+
+        @Test
+        void shouldWriteJsonByDefault() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            contract.addGradeWithId(ctx, "admin", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putStringState("Filip Piwowarczyk0", filip0JSON);
+            verify(stub, never()).putState(eq("Filip Piwowarczyk0"), any());
+        }
+
+        @Test
+        void shouldWriteCompactGradesWhenConfigured() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState(stateFormatKey())).thenReturn("COMPACT");
+
+            contract.addGradeWithId(ctx, "admin", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putState("Filip Piwowarczyk0", CompactGradeCodec.encode(filip0));
+            verify(stub, never()).putStringState(eq("Filip Piwowarczyk0"), anyString());
+        }
+
+        @Test
+        void shouldReadCompactAndJsonGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            doReturn(CompactGradeCodec.encode(filip0)).when(stub).getState("Filip Piwowarczyk0");
+            when(stub.getStringState("Filip Piwowarczyk1")).thenReturn(filip0JSON.replace("Filip Piwowarczyk0", "Filip Piwowarczyk1"));
+
+            Grade compact = contract.ReadGrade(ctx, "admin", "Filip Piwowarczyk0");
+            Grade json = contract.ReadGrade(ctx, "admin", "Filip Piwowarczyk1");
+
+            assertThat(compact).isEqualTo(filip0);
+            assertThat(json.getGradeId()).isEqualTo("Filip Piwowarczyk1");
+        }
+
+        @Test
+        void shouldReturnJsonOfCompactGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIterator<KeyValue> results = mockResults(List.of(compactKeyValue(filip0)));
+            when(stub.getStateByRange("Filip Piwowarczyk0", "Filip Piwowarczyk999999")).thenReturn(results);
+
+            String grades = contract.getGradesForStudent(ctx, "admin", "Filip Piwowarczyk");
+
+            assertThat(grades).isEqualTo("[" + filip0JSON + "]");
+        }
+
+        @Test
+        void shouldFilterCompactGradesInChaincode() throws Exception {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState(stateFormatKey())).thenReturn("COMPACT");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(compactKeyValue(filip0)), "");
+            when(stub.getStateByRangeWithPagination("", "", 1, "")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "admin", "{\"subject\":\"Math\"}", 1, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + filip0JSON + "]}");
+            verify(stub, never()).getQueryResultWithPagination(anyString(), anyInt(), anyString());
+        }
+    }
+
+    @Nested
+    class GradeHistory {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String filip0Updated = "{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+
+        @Test
+        void invokeGetGradeHistory() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            QueryResultsIterator<KeyModification> history = mockHistory(List.of(
+                    mockModification("tx3", 1600000003000L, ""),
+                    mockModification("tx2", 1600000002000L, filip0Updated),
+                    mockModification("tx1", 1600000001000L, filip0)).iterator());
+            when(stub.getHistoryForKey("Filip Piwowarczyk0")).thenReturn(history);
+
+            String result = contract.getGradeHistory(ctx, "admin", "Filip Piwowarczyk0", 10);
+
+            assertThat(result).isEqualTo("[{\"grade\":null,\"isDelete\":true,\"timestamp\":1600000003000,\"txId\":\"tx3\"},"
+                    + "{\"grade\":" + filip0Updated + ",\"isDelete\":false,\"timestamp\":1600000002000,\"txId\":\"tx2\"},"
+                    + "{\"grade\":" + filip0 + ",\"isDelete\":false,\"timestamp\":1600000001000,\"txId\":\"tx1\"}]");
+        }
+
+        @Test
+        void shouldStopReadingHistoryAtLimit() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            Iterator<KeyModification> modifications = List.of(
+                    mockModification("tx2", 1600000002000L, filip0Updated),
+                    mockModification("tx1", 1600000001000L, filip0)).iterator();
+            QueryResultsIterator<KeyModification> history = mockHistory(modifications);
+            when(stub.getHistoryForKey("Filip Piwowarczyk0")).thenReturn(history);
+
+            String result = contract.getGradeHistory(ctx, "admin", "Filip Piwowarczyk0", 1);
+
+            assertThat(result).isEqualTo("[{\"grade\":" + filip0Updated + ",\"isDelete\":false,\"timestamp\":1600000002000,\"txId\":\"tx2\"}]");
+            assertThat(modifications.hasNext()).isTrue();
+        }
+
+        @Test
+        void whenLimitIsNotPositive() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Throwable thrown = catchThrowable(() -> contract.getGradeHistory(ctx, "admin", "Filip Piwowarczyk0", 0));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Limit 0 is not positive");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_LIMIT".getBytes());
+            verify(stub, never()).getHistoryForKey(anyString());
+        }
+
+        @Test
+        void whenReadingHistoryOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            QueryResultsIterator<KeyModification> history = mockHistory(List.of(mockModification("tx1", 1600000001000L, filip0)).iterator());
+            when(stub.getHistoryForKey("Filip Piwowarczyk0")).thenReturn(history);
+
+            Throwable thrown = catchThrowable(() -> contract.getGradeHistory(ctx, "Ola Piwowarczyk", "Filip Piwowarczyk0", 10));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+        }
+    }
+
+    @Nested
+    class GradeSummaries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String filip1 = "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String oneTwo = "{\"count\":1,\"histogram\":[1,0,0,0,0,0,0],\"sum\":2.0}";
+        private final String oneFour = "{\"count\":1,\"histogram\":[0,0,0,0,1,0,0],\"sum\":4.0}";
+        private final String minusTwo = "{\"count\":-1,\"histogram\":[-1,0,0,0,0,0,0],\"sum\":-2.0}";
+
+        @Test
+        void shouldAddGradeToSummaries() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            contract.addGradeWithId(ctx, "admin", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), oneTwo);
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "Math"), oneTwo);
+            verify(stub, never()).getStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"));
+            verify(stub, never()).getStringState(summaryKey(GradeStore.SUBJECT, "Math"));
+        }
+
+        @Test
+        void shouldMoveGradeBetweenBucketsOnUpdate() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.UpdateGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 4.0, "PE", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            InOrder inOrder = inOrder(stub);
+            inOrder.verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), minusTwo);
+            inOrder.verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"),
+                    "{\"count\":0,\"histogram\":[-1,0,0,0,1,0,0],\"sum\":2.0}");
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "Math"), minusTwo);
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "PE"), oneFour);
+        }
+
+        @Test
+        void shouldRemoveGradeFromSummariesOnDelete() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.DeleteGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0");
+
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), minusTwo);
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "Math"), minusTwo);
+        }
+
+        @Test
+        void shouldDropDeltaWhichCancelsOut() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.UpdateGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).delState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"));
+            verify(stub).delState(summaryDeltaKey(GradeStore.SUBJECT, "Math"));
+        }
+
+        @Test
+        void invokeGetSummaries() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            when(stub.getStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"))).thenReturn(oneTwo);
+            QueryResultsIterator<KeyValue> studentDeltas = mockResults(List.of(
+                    new MockKeyValue(new CompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT, "Filip Piwowarczyk", "tx0").toString(), minusTwo),
+                    new MockKeyValue(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), oneFour)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT, "Filip Piwowarczyk"))
+                    .thenReturn(studentDeltas);
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.SUBJECT, "Math"))
+                    .thenReturn(mockResults(List.of()));
+
+            assertThat(contract.getStudentSummary(ctx, "admin", "Filip Piwowarczyk")).isEqualTo(oneFour);
+            assertThat(contract.getSubjectSummary(ctx, "admin", "Math"))
+                    .isEqualTo("{\"count\":0,\"histogram\":[0,0,0,0,0,0,0],\"sum\":0.0}");
+        }
+
+        @Test
+        void whenReadingSummaryOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+
+            Throwable thrown = catchThrowable(() -> contract.getStudentSummary(ctx, "Ola Piwowarczyk", "Filip Piwowarczyk"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+        }
+
+        @Test
+        void invokeRebuildSummaries() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            String staleKey = summaryKey(GradeStore.SUBJECT, "History");
+            QueryResultsIterator<KeyValue> students = mockResults(List.of());
+            QueryResultsIterator<KeyValue> subjects = mockResults(List.of(new MockKeyValue(staleKey, oneTwo)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_INDEX, GradeStore.STUDENT)).thenReturn(students);
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_INDEX, GradeStore.SUBJECT)).thenReturn(subjects);
+            String staleDeltaKey = summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk");
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(staleDeltaKey, minusTwo))));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.SUBJECT))
+                    .thenReturn(mockResults(List.of()));
+            QueryResultsIterator<KeyValue> grades = mockResults(List.of(
+                    new MockKeyValue("Filip Piwowarczyk0", filip0),
+                    new MockKeyValue("Filip Piwowarczyk1", filip1)));
+            when(stub.getStateByRange("", "")).thenReturn(grades);
+
+            contract.rebuildSummaries(ctx, "admin");
+
+            verify(stub).delState(staleKey);
+            verify(stub).delState(staleDeltaKey);
+            verify(stub).putStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"),
+                    "{\"count\":2,\"histogram\":[1,0,0,0,0,1,0],\"sum\":6.5}");
+            verify(stub).putStringState(summaryKey(GradeStore.SUBJECT, "Math"), oneTwo);
+            verify(stub).putStringState(summaryKey(GradeStore.SUBJECT, "PE"),
+                    "{\"count\":1,\"histogram\":[0,0,0,0,0,1,0],\"sum\":4.5}");
+        }
+
+        @Test
+        void invokeCompactAggregates() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Admin");
+            String studentDelta0 = new CompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT, "Filip Piwowarczyk", "tx0").toString();
+            String studentDelta1 = summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk");
+            String subjectDelta = summaryDeltaKey(GradeStore.SUBJECT, "Math");
+            when(stub.getStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"))).thenReturn(oneTwo);
+            when(stub.getStringState(summaryKey(GradeStore.SUBJECT, "Math"))).thenReturn(oneTwo);
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(studentDelta0, minusTwo), new MockKeyValue(studentDelta1, oneFour))));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.SUBJECT))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(subjectDelta, minusTwo))));
+            String visit0 = new CompositeKey(GradeController.VISITOR_INDEX, "Filip Piwowarczyk0", "Adam Mickiewicz", "tx0").toString();
+            String visit1 = new CompositeKey(GradeController.VISITOR_INDEX, "Filip Piwowarczyk0", "Adam Mickiewicz", "tx2").toString();
+            CompositeKey visitorsKey = new CompositeKey(GradeController.VISITOR_INDEX);
+            when(stub.getStateByPartialCompositeKey(ArgumentMatchers.<CompositeKey>argThat(key -> key.toString().equals(visitorsKey.toString()))))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(visit0, "{\"count\":2,\"lastAccess\":null}"),
+                            new MockKeyValue(visit1, "{\"count\":1,\"lastAccess\":1500000000000}"))));
+
+            contract.compactAggregates(ctx, "admin");
+
+            verify(stub).delState(studentDelta0);
+            verify(stub).delState(studentDelta1);
+            verify(stub).delState(subjectDelta);
+            verify(stub).putStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"), oneFour);
+            verify(stub).delState(summaryKey(GradeStore.SUBJECT, "Math"));
+            verify(stub).delState(visit0);
+            verify(stub).delState(visit1);
+            verify(stub).putStringState(visitorKey("Filip Piwowarczyk0", "Adam Mickiewicz"), "{\"count\":3,\"lastAccess\":1500000000000}");
+        }
+    }
+
+    @Nested
+    class CachedState {
+
+        @Test
+        void shouldReadGradeOnceInReadGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0,\"visitors\":[\"Adam Mickiewicz\"], \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            contract.ReadGrade(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
+
+            verify(stub, times(1)).getStringState("Filip Piwowarczyk0");
+        }
+
+        @Test
+        void shouldReadGradeOnceInUpdateGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0,\"visitors\":[\"Adam Mickiewicz\"], \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            contract.UpdateGrade(ctx, "Adam Mickiewicz", "Filip Piwowarczyk0", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub, times(1)).getStringState("Filip Piwowarczyk0");
+        }
+
+        @Test
+        void shouldSeeOwnWritesWhenAddingGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+
+            Grade first = contract.addGrade(ctx, "John Doe", 3.0, "Math", "John Doe", "Filip Piwowarczyk");
+            Grade second = contract.addGrade(ctx, "John Doe", 4.0, "Math", "John Doe", "Filip Piwowarczyk");
+
+            assertThat(first.getGradeId()).isEqualTo("Filip Piwowarczyk0");
+            assertThat(second.getGradeId()).isEqualTo("Filip Piwowarczyk1");
+            verify(stub, times(1)).getStringState(sequenceKey("Filip Piwowarczyk"));
+        }
+    }
+
+    @Nested
+    class ConsentGrants {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String mathGrant = "{\"scope\":\"subject:Math\",\"student\":\"Filip Piwowarczyk\",\"timestamp\":1600000000000,\"viewer\":\"Jan Kowalski\"}";
+
+        @Test
+        void invokeGrantConsent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            QueryResultsIterator<KeyValue> mathGrades = mockResults(List.of(
+                    new MockKeyValue(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUBJECT_INDEX, "Math", "Filip Piwowarczyk")).thenReturn(mathGrades);
+
+            ConsentGrant grant = contract.grantConsent(ctx, "Filip Piwowarczyk", "Jan Kowalski", "subject:Math");
+
+            assertThat(grant).isEqualTo(new ConsentGrant("Filip Piwowarczyk", "Jan Kowalski", "subject:Math", TX_TIMESTAMP));
+            verify(stub).putStringState(grantKey("Filip Piwowarczyk", "Jan Kowalski", "subject:Math"), mathGrant);
+        }
+
+        @Test
+        void whenGrantingConsentForGradeOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            Throwable thrown = catchThrowable(() -> contract.grantConsent(ctx, "Ola Piwowarczyk", "Jan Kowalski", "grade:Filip Piwowarczyk0"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenGrantingConsentForSubjectWithoutGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUBJECT_INDEX, "WF", "Filip Piwowarczyk")).thenReturn(mockResults(List.of()));
+
+            Throwable thrown = catchThrowable(() -> contract.grantConsent(ctx, "Filip Piwowarczyk", "Jan Kowalski", "subject:WF"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Student Filip Piwowarczyk has no grades of WF");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_CONSENT_SCOPE".getBytes());
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenGrantingConsentInNameOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            when(stub.getCreator()).thenReturn(TestIdentities.creator("student"));
+
+            Throwable thrown = catchThrowable(() -> contract.grantConsent(new GradeContext(stub), "Ola Piwowarczyk", "Jan Kowalski", "subject:Math"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenRevokingConsentInNameOfOtherStudent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            when(stub.getCreator()).thenReturn(TestIdentities.creator("student"));
+
+            Throwable thrown = catchThrowable(() -> contract.revokeConsent(new GradeContext(stub), "Ola Piwowarczyk", "Jan Kowalski", "subject:Math"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Ola Piwowarczyk");
+            verify(stub, never()).delState(anyString());
+        }
+
+        @Test
+        void whenConsentScopeIsUnknown() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+
+            Throwable thrown = catchThrowable(() -> contract.grantConsent(ctx, "Filip Piwowarczyk", "Jan Kowalski", "all"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad consent scope all");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_CONSENT_SCOPE".getBytes());
+        }
+
+        @Test
+        void invokeRevokeConsent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+
+            contract.revokeConsent(ctx, "Filip Piwowarczyk", "Jan Kowalski", "grade:Filip Piwowarczyk0");
+
+            verify(stub).delState(grantKey("Filip Piwowarczyk", "Jan Kowalski", "grade:Filip Piwowarczyk0"));
+        }
+
+        @Test
+        void shouldReadGradeWithConsent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState(grantKey("Filip Piwowarczyk", "Jan Kowalski", "subject:Math"))).thenReturn(mathGrant);
+
+            Grade grade = contract.ReadGrade(ctx, "Jan Kowalski", "Filip Piwowarczyk0");
+
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 2.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            verify(stub, never()).getStateByPartialCompositeKey(anyString(), ArgumentMatchers.<String>any());
+        }
+
+        @Test
+        void shouldReturnOnlyGradesWithConsent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStateByRange("Filip Piwowarczyk0", "Filip Piwowarczyk999999")).thenReturn(new MockGradeResultsIteratorOneStudent());
+            when(stub.getStateByPartialCompositeKey(GradeController.CONSENT_INDEX, "Filip Piwowarczyk", "Jan Kowalski")).thenReturn(mockResults(List.of(
+                    new MockKeyValue(grantKey("Filip Piwowarczyk", "Jan Kowalski", "grade:Filip Piwowarczyk1"), "{}"),
+                    new MockKeyValue(grantKey("Filip Piwowarczyk", "Jan Kowalski", "subject:History"), "{}"))));
+
+            String grades = contract.getGradesForStudent(ctx, "Jan Kowalski", "Filip Piwowarczyk");
+
+            assertThat(grades).isEqualTo("[{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]},"
+                    + "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"History\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}]");
+        }
+
+        @Test
+        void invokeGetConsents() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+            when(stub.getStateByPartialCompositeKey(GradeController.CONSENT_INDEX, "Filip Piwowarczyk")).thenReturn(mockResults(List.of(
+                    new MockKeyValue(grantKey("Filip Piwowarczyk", "Jan Kowalski", "subject:Math"), mathGrant))));
+
+            String grants = contract.getConsents(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk");
+
+            assertThat(grants).isEqualTo("[" + mathGrant + "]");
+        }
+    }
+
+    @Nested
+    class ConsentStrategies {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\"]}";
+        private final String ola0 = "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        private ChaincodeStub stubWithConsent(final String consent) {
+            ChaincodeStub stub = mockStub();
+            when(stub.getStringState(consentKey())).thenReturn(consent);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Ola Piwowarczyk0")).thenReturn(ola0);
+            return stub;
+        }
+
+        @Test
+        void invokeInitConsent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("");
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            contract.initConsent(ctx, "admin", "EVENTS");
+
+            verify(stub).putStringState(consentKey(), "EVENTS");
+        }
+
+        @Test
+        void whenConsentStrategyIsAlreadySet() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("NONE");
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Throwable thrown = catchThrowable(() -> contract.initConsent(ctx, "admin", "RECORDS"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Consent strategy is already set to NONE");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_CONSENT_STRATEGY".getBytes());
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void whenConsentStrategyIsUnknown() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("");
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Throwable thrown = catchThrowable(() -> contract.initConsent(ctx, "admin", "ALL"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad consent strategy ALL");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_CONSENT_STRATEGY".getBytes());
+        }
+
+        @Test
+        void whenConsentStrategyIsSetWithoutConfigurePermission() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("");
+            GradeContext ctx = mockContext(stub, "Professor");
+
+            Throwable thrown = catchThrowable(() -> contract.initConsent(ctx, "Adam Mickiewicz", "NONE"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Adam Mickiewicz");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void shouldWriteNothingWithoutConsent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("NONE");
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Grade grade = contract.ReadGrade(ctx, "admin", "Filip Piwowarczyk0");
+
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 2.0, List.of("Adam Mickiewicz"), "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            verify(stub, never()).putStringState(anyString(), anyString());
+            verify(stub, never()).putState(anyString(), any());
+            verify(stub, never()).setEvent(anyString(), any());
+        }
+
+        @Test
+        void shouldAppendVisitorToGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("VISITORS");
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Grade grade = contract.ReadGrade(ctx, "admin", "Filip Piwowarczyk0");
+
+            assertThat(grade.getVisitors()).containsExactly("Adam Mickiewicz", "admin");
+            verify(stub).putStringState("Filip Piwowarczyk0", "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\","
+                    + "\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"visitors\":[\"Adam Mickiewicz\",\"admin\"]}");
+            verify(stub, times(1)).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void shouldKeepVisitorsOfUpdatedGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("VISITORS");
+            GradeContext ctx = mockContext(stub, "Admin");
+
+            Grade grade = contract.UpdateGrade(ctx, "admin", "Filip Piwowarczyk0", 3.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 3.0, List.of("Adam Mickiewicz", "admin"), "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+        }
+
+        @Test
+        void shouldPutAllAccessesOfTransactionIntoEvent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("EVENTS");
+            when(stub.getCreator()).thenReturn(TestIdentities.creator("admin"));
+            GradeContext ctx = new GradeContext(stub);
+
+            contract.ReadGrade(ctx, "admin", "Filip Piwowarczyk0");
+            contract.ReadGrade(ctx, "admin", "Ola Piwowarczyk0");
+
+            InOrder inOrder = inOrder(stub);
+            inOrder.verify(stub).setEvent(EventConsent.EVENT_NAME, ("[{\"author\":\"admin\",\"endKey\":null,\"gradeIds\":{\"Filip Piwowarczyk\":[\"Filip Piwowarczyk0\"]},"
+                    + "\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx1\"}]").getBytes(StandardCharsets.UTF_8));
+            inOrder.verify(stub).setEvent(EventConsent.EVENT_NAME, ("[{\"author\":\"admin\",\"endKey\":null,\"gradeIds\":{\"Filip Piwowarczyk\":[\"Filip Piwowarczyk0\"]},"
+                    + "\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx1\"},"
+                    + "{\"author\":\"admin\",\"endKey\":null,\"gradeIds\":{\"Ola Piwowarczyk\":[\"Ola Piwowarczyk0\"]},"
+                    + "\"operation\":\"READ\",\"startKey\":null,\"timestamp\":1600000000000,\"txId\":\"tx1\"}]").getBytes(StandardCharsets.UTF_8));
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        void shouldPutRangeOfScanIntoEvent() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = stubWithConsent("EVENTS");
+            when(stub.getCreator()).thenReturn(TestIdentities.creator("admin"));
+            GradeContext ctx = new GradeContext(stub);
+            when(stub.getStateByRange("", "")).thenReturn(new MockGradeResultsIteratorDifferentStudents());
+
+            contract.getAllGrades(ctx, "admin");
+
+            verify(stub).setEvent(EventConsent.EVENT_NAME,
+                    "[{\"author\":\"admin\",\"endKey\":\"\",\"gradeIds\":null,\"operation\":\"READ\",\"startKey\":\"\",\"timestamp\":1600000000000,\"txId\":\"tx1\"}]".getBytes(StandardCharsets.UTF_8));
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+    }
+
+    @Nested
+    class GradePolicyTransactions {
+
+        private static final String DEAN_POLICY = "Admin = CONFIGURE:ANY\nDean = READ:ANY";
+
+        private GradeContext adminContext(final ChaincodeStub stub) {
+            when(stub.getCreator()).thenReturn(TestIdentities.creator("admin"));
+            return new GradeContext(stub);
+        }
+
+        @Test
+        void invokeSetGradePolicy() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+
+            contract.setGradePolicy(adminContext(stub), "admin", DEAN_POLICY);
+
+            verify(stub).putStringState(gradePolicyKey(), DEAN_POLICY);
+        }
+
+        @Test
+        void shouldCheckPermissionsWithPolicyInWorldState() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            when(stub.getStringState(gradePolicyKey())).thenReturn("Admin = READ:ANY");
+
+            Throwable thrown = catchThrowable(() -> contract.setStateFormat(adminContext(stub), "admin", "COMPACT"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of admin");
+        }
+
+        @Test
+        void shouldRestorePackagedPolicy() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+
+            contract.setGradePolicy(adminContext(stub), "admin", "");
+
+            verify(stub).delState(gradePolicyKey());
+        }
+
+        @Test
+        void whenGradePolicyIsMalformed() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+
+            Throwable thrown = catchThrowable(() -> contract.setGradePolicy(adminContext(stub), "admin", "Dean = READ:ALL"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad grade policy: Bad grant READ:ALL of role Dean");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_GRADE_POLICY".getBytes());
+            verify(stub, never()).putStringState(eq(gradePolicyKey()), anyString());
+        }
+
+        @Test
+        void whenGradePolicyTakesConfigurationFromAuthor() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+
+            Throwable thrown = catchThrowable(() -> contract.setGradePolicy(adminContext(stub), "admin", "Dean = READ:ANY"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Grade policy takes CONFIGURE away from admin");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_GRADE_POLICY".getBytes());
+            verify(stub, never()).putStringState(eq(gradePolicyKey()), anyString());
+        }
+
+        @Test
+        void whenSettingGradePolicyWithoutAdminRole() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+
+            Throwable thrown = catchThrowable(() -> contract.setGradePolicy(ctx, "Adam Mickiewicz", DEAN_POLICY));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Adam Mickiewicz");
+            verify(stub, never()).putStringState(eq(gradePolicyKey()), anyString());
+        }
+    }
+
+    @Nested
+    class DeleteGradeTransaction {
+
+        @Test
+        public void whenGradeDoesNotExist() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Professor");
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.DeleteGrade(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Grade Filip Piwowarczyk0 does not exist");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("GRADE_NOT_FOUND".getBytes());
+        }
+
+        @Test
+        public void whenWrongRoleAssigned() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub, "Student");
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.DeleteGrade(ctx, "Filip Piwowarczyk", "Filip Piwowarczyk0");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Insufficient privileges of Filip Piwowarczyk");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INSUFFICIENT_PERMISSIONS".getBytes());
+            verify(stub, never()).getState(anyString());
+            verify(stub, never()).getStringState(anyString());
+            verify(stub, never()).delState(anyString());
         }
 
     }
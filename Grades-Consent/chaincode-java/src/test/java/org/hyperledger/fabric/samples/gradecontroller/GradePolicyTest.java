@@ -0,0 +1,104 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+public class GradePolicyTest {
+
+    private static GradePolicy policy(final String... roles) {
+        Properties properties = new Properties();
+        for (int i = 0; i < roles.length; i += 2) {
+            properties.setProperty(roles[i], roles[i + 1]);
+        }
+        return new GradePolicy(properties, String.join(",", roles));
+    }
+
+    @Test
+    public void shouldLoadPackagedPolicy() {
+        GradePolicy policy = GradePolicy.get();
+
+        assertThat(policy.compile("Admin").allows(Operation.CONFIGURE, false)).isTrue();
+        assertThat(policy.compile("Professor").allows(Operation.UPDATE, false)).isTrue();
+        assertThat(policy.compile("Professor").allows(Operation.AUDIT, false)).isFalse();
+        assertThat(policy.compile("Student").allows(Operation.READ, true)).isTrue();
+        assertThat(policy.compile("Student").allows(Operation.READ, false)).isFalse();
+    }
+
+    @Test
+    public void shouldIncludeOwnGradesInAnyGrades() {
+        Permissions permissions = policy("Dean", "READ:ANY").compile("Dean");
+
+        assertThat(permissions.allows(Operation.READ, false)).isTrue();
+        assertThat(permissions.allows(Operation.READ, true)).isTrue();
+        assertThat(permissions.allows(Operation.AUDIT, true)).isFalse();
+    }
+
+    @Test
+    public void shouldJoinPermissionsOfAllRoles() {
+        GradePolicy policy = policy("Student", "READ:OWN", "Auditor", "AUDIT:ANY");
+
+        Permissions permissions = policy.compile("Student;Auditor;Teacher");
+
+        assertThat(permissions.allows(Operation.READ, true)).isTrue();
+        assertThat(permissions.allows(Operation.AUDIT, false)).isTrue();
+        assertThat(permissions.allows(Operation.READ, false)).isFalse();
+    }
+
+    @Test
+    public void shouldDenyEvenWhenOtherRoleAllows() {
+        GradePolicy policy = policy("Professor", "UPDATE:ANY, DELETE:ANY", "Assistant", "!DELETE:ANY");
+
+        Permissions permissions = policy.compile("Professor;Assistant");
+
+        assertThat(permissions.allows(Operation.UPDATE, false)).isTrue();
+        assertThat(permissions.allows(Operation.DELETE, false)).isFalse();
+    }
+
+    @Test
+    public void shouldGrantNothingWithoutRoles() {
+        GradePolicy policy = GradePolicy.get();
+
+        assertThat(policy.compile(null)).isEqualTo(Permissions.NONE);
+        assertThat(policy.compile("Janitor")).isEqualTo(Permissions.NONE);
+    }
+
+    @Test
+    public void shouldParsePolicyKeptInWorldState() {
+        GradePolicy policy = GradePolicy.parse("Admin = CONFIGURE:ANY\nDean = READ:ANY, AUDIT:ANY");
+
+        assertThat(policy.compile("Dean").allows(Operation.AUDIT, false)).isTrue();
+        assertThat(policy.compile("Professor")).isEqualTo(Permissions.NONE);
+    }
+
+    @Test
+    public void shouldUsePackagedPolicyUntilOtherIsSet() {
+        assertThat(GradePolicy.of("")).isSameAs(GradePolicy.get());
+    }
+
+    @Test
+    public void shouldKeepPolicyCompiledByVersion() {
+        String policy = "Dean = READ:ANY";
+
+        assertThat(GradePolicy.of(policy)).isSameAs(GradePolicy.of(policy));
+        assertThat(GradePolicy.of(policy).version()).isEqualTo(GradePolicy.parse(policy).version());
+        assertThat(GradePolicy.of(policy).version()).isNotEqualTo(GradePolicy.of("Dean = AUDIT:ANY").version());
+    }
+
+    @Test
+    public void whenGrantIsMalformed() {
+        Throwable thrown = catchThrowable(() -> policy("Dean", "READ:ALL"));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessage("Bad grant READ:ALL of role Dean");
+    }
+
+    @Test
+    public void whenOperationIsUnknown() {
+        Throwable thrown = catchThrowable(() -> policy("Dean", "GRADE:ANY"));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessage("Bad grant GRADE:ANY of role Dean");
+    }
+}
@@ -0,0 +1,87 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public final class PermissionCacheTest {
+
+    private static X509Certificate certificate(final String encoded) throws Exception {
+        X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getEncoded()).thenReturn(encoded.getBytes());
+        return certificate;
+    }
+
+    @BeforeEach
+    public void clearCache() {
+        PermissionCache.clear();
+    }
+
+    @Test
+    public void shouldReadRolesOncePerCertificate() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+
+        PermissionCache.of(certificate("professor"), GradePolicy.get(), () -> {
+            reads.incrementAndGet();
+            return "Professor";
+        });
+        PermissionCache.of(certificate("professor"), GradePolicy.get(), () -> {
+            reads.incrementAndGet();
+            return "Professor";
+        });
+
+        assertThat(reads.get()).isEqualTo(1);
+        assertThat(PermissionCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepCertificatesApart() throws Exception {
+        assertThat(PermissionCache.of(certificate("admin"), GradePolicy.get(), () -> "Admin").allows(Operation.AUDIT, false)).isTrue();
+        assertThat(PermissionCache.of(certificate("student"), GradePolicy.get(), () -> "Student").allows(Operation.AUDIT, false)).isFalse();
+    }
+
+    @Test
+    public void shouldCompileAgainWithOtherPolicy() throws Exception {
+        GradePolicy policy = GradePolicy.parse("Professor = READ:ANY");
+
+        assertThat(PermissionCache.of(certificate("professor"), GradePolicy.get(), () -> "Professor").allows(Operation.UPDATE, false)).isTrue();
+        assertThat(PermissionCache.of(certificate("professor"), policy, () -> "Professor").allows(Operation.UPDATE, false)).isFalse();
+        assertThat(PermissionCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldShareEntriesOfSamePolicyVersion() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+
+        PermissionCache.of(certificate("professor"), GradePolicy.parse("Professor = READ:ANY"), () -> {
+            reads.incrementAndGet();
+            return "Professor";
+        });
+        PermissionCache.of(certificate("professor"), GradePolicy.parse("Professor = READ:ANY"), () -> {
+            reads.incrementAndGet();
+            return "Professor";
+        });
+
+        assertThat(reads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDropCacheWhenFull() throws Exception {
+        AtomicInteger students = new AtomicInteger();
+        X509Certificate student = mock(X509Certificate.class);
+        when(student.getEncoded()).thenAnswer(invocation -> ("student" + students.getAndIncrement()).getBytes());
+        for (int i = 0; i < PermissionCache.MAX_SIZE; i++) {
+            PermissionCache.of(student, GradePolicy.get(), () -> "Student");
+        }
+
+        PermissionCache.of(certificate("admin"), GradePolicy.get(), () -> "Admin");
+
+        assertThat(PermissionCache.size()).isEqualTo(1);
+    }
+}
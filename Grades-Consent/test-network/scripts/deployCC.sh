@@ -14,6 +14,7 @@ CC_COLL_CONFIG=${9:-"NA"}
 DELAY=${10:-"3"}
 MAX_RETRY=${11:-"5"}
 VERBOSE=${12:-"false"}
+CC_INIT_ARGS=${13:-"[]"}
 
 println "executing with the following"
 println "- CHANNEL_NAME: ${C_GREEN}${CHANNEL_NAME}${C_RESET}"
@@ -25,6 +26,7 @@ println "- CC_SEQUENCE: ${C_GREEN}${CC_SEQUENCE}${C_RESET}"
 println "- CC_END_POLICY: ${C_GREEN}${CC_END_POLICY}${C_RESET}"
 println "- CC_COLL_CONFIG: ${C_GREEN}${CC_COLL_CONFIG}${C_RESET}"
 println "- CC_INIT_FCN: ${C_GREEN}${CC_INIT_FCN}${C_RESET}"
+println "- CC_INIT_ARGS: ${C_GREEN}${CC_INIT_ARGS}${C_RESET}"
 println "- DELAY: ${C_GREEN}${DELAY}${C_RESET}"
 println "- MAX_RETRY: ${C_GREEN}${MAX_RETRY}${C_RESET}"
 println "- VERBOSE: ${C_GREEN}${VERBOSE}${C_RESET}"
@@ -246,7 +248,7 @@ chaincodeInvokeInit() {
   # peer (if join was successful), let's supply it directly as we know
   # it using the "-o" option
   set -x
-  fcn_call='{"function":"'${CC_INIT_FCN}'","Args":[]}'
+  fcn_call='{"function":"'${CC_INIT_FCN}'","Args":'${CC_INIT_ARGS}'}'
   infoln "invoke fcn call:${fcn_call}"
   peer chaincode invoke -o localhost:7050 --ordererTLSHostnameOverride orderer.example.com --tls --cafile $ORDERER_CA -C $CHANNEL_NAME -n ${CC_NAME} $PEER_CONN_PARMS --isInit -c ${fcn_call} >&log.txt
   res=$?
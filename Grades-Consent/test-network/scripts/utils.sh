@@ -62,6 +62,7 @@ function printHelp() {
     println "    -ccep <policy>  - (Optional) Chaincode endorsement policy using signature policy syntax. The default policy requires an endorsement from Org1 and Org2"
     println "    -cccg <collection-config>  - (Optional) File path to private data collections configuration file"
     println "    -cci <fcn name>  - (Optional) Name of chaincode initialization function. When a function is provided, the execution of init will be requested and the function will be invoked."
+    println "    -ccia <args>  - (Optional) JSON array of arguments of chaincode initialization function, e.g. '[\"RECORDS\"]'"
     println
     println "    -h - Print this message"
     println
@@ -102,6 +103,7 @@ function printHelp() {
     println "    -ccep <policy>  - (Optional) Chaincode endorsement policy using signature policy syntax. The default policy requires an endorsement from Org1 and Org2"
     println "    -cccg <collection-config>  - (Optional) File path to private data collections configuration file"
     println "    -cci <fcn name>  - (Optional) Name of chaincode initialization function. When a function is provided, the execution of init will be requested and the function will be invoked."
+    println "    -ccia <args>  - (Optional) JSON array of arguments of chaincode initialization function, e.g. '[\"RECORDS\"]'"
     println
     println "    -h - Print this message"
     println
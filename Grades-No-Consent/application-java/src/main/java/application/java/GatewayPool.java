@@ -0,0 +1,204 @@
+package application.java;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.Network;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one open Gateway per logged in identity, so requests reuse its gRPC
+ * channels and discovery results instead of connecting to the network every
+ * time. Connections are opened on first use, reopened when their channel was
+ * shut down and closed after being idle for IDLE_TIMEOUT. Requests hold the
+ * Gateway through a Lease, Gateway replaced by new log in, reconnect or
+ * shutdown is closed only after its last Lease is closed.
+ */
+@Component
+public class GatewayPool implements AutoCloseable {
+
+    static final String CHANNEL = "mychannel";
+    static final String CHAINCODE = "grades";
+    static final Duration IDLE_TIMEOUT = Duration.ofMinutes(10);
+    static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+    private static final Logger LOGGER = LogManager.getLogger(GatewayPool.class);
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gateway-pool-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public GatewayPool() {
+        sweeper.scheduleWithFixedDelay(() -> closeIdle(Instant.now().minus(IDLE_TIMEOUT)),
+                SWEEP_INTERVAL.toMillis(), SWEEP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets how identity connects to the network. Gateway opened with previous
+     * builder of identity is closed once requests still using it are done.
+     */
+    public void register(Organizations org, String userName, Gateway.Builder builder) {
+        Connection previous = connections.put(key(org, userName), new Connection(builder));
+        if (previous != null) {
+            previous.retire();
+        }
+    }
+
+    /**
+     * @return Lease of open Gateway of identity, it has to be closed when request is done
+     * @throws IllegalStateException when identity is not logged in
+     */
+    public Lease lease(Organizations org, String userName) {
+        Connection connection = connections.get(key(org, userName));
+        if (connection == null) {
+            throw new IllegalStateException("User " + userName + " of " + org + " is not logged in");
+        }
+        return connection.lease();
+    }
+
+    /**
+     * Closes Gateways not leased by any request and not used since given
+     * time or with shut down channel. Identities stay registered and
+     * reconnect on next use.
+     */
+    void closeIdle(Instant usedBefore) {
+        for (Map.Entry<String, Connection> entry : connections.entrySet()) {
+            if (entry.getValue().closeIfIdle(usedBefore)) {
+                LOGGER.info("Closed gateway of " + entry.getKey());
+            }
+        }
+    }
+
+    int openConnections() {
+        return (int) connections.values().stream().filter(Connection::isOpen).count();
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        connections.values().forEach(Connection::retire);
+        connections.clear();
+    }
+
+    private static String key(Organizations org, String userName) {
+        return org + "/" + userName;
+    }
+
+    /**
+     * Gateway used by one request, closing lease hands Gateway back to pool.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Session session;
+        private boolean closed;
+
+        private Lease(Session session) {
+            this.session = session;
+        }
+
+        public Contract contract() {
+            return session.contract;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                session.release();
+            }
+        }
+    }
+
+    private static final class Connection {
+        private final Gateway.Builder builder;
+        private Session session;
+        private volatile Instant lastUsed = Instant.now();
+
+        Connection(Gateway.Builder builder) {
+            this.builder = builder;
+        }
+
+        synchronized Lease lease() {
+            lastUsed = Instant.now();
+            if (session != null && !session.isHealthy()) {
+                LOGGER.warn("Channel of gateway is shut down, reconnecting");
+                retire();
+            }
+            if (session == null) {
+                session = new Session(builder.connect());
+            }
+            return session.acquire();
+        }
+
+        synchronized boolean isOpen() {
+            return session != null;
+        }
+
+        synchronized boolean closeIfIdle(Instant usedBefore) {
+            if (session == null || session.isLeased() || (!lastUsed.isBefore(usedBefore) && session.isHealthy())) {
+                return false;
+            }
+            retire();
+            return true;
+        }
+
+        synchronized void retire() {
+            if (session != null) {
+                session.retire();
+            }
+            session = null;
+        }
+    }
+
+    private static final class Session {
+        private final Gateway gateway;
+        private final Network network;
+        private final Contract contract;
+        private int leases;
+        private boolean retired;
+
+        Session(Gateway gateway) {
+            this.gateway = gateway;
+            this.network = gateway.getNetwork(CHANNEL);
+            this.contract = network.getContract(CHAINCODE);
+        }
+
+        synchronized Lease acquire() {
+            leases++;
+            return new Lease(this);
+        }
+
+        synchronized boolean isLeased() {
+            return leases > 0;
+        }
+
+        boolean isHealthy() {
+            return !network.getChannel().isShutdown();
+        }
+
+        synchronized void release() {
+            leases--;
+            if (retired && leases == 0) {
+                gateway.close();
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            if (leases == 0) {
+                gateway.close();
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.hyperledger.fabric_ca.sdk.HFCAClient;
 import org.hyperledger.fabric_ca.sdk.RegistrationRequest;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpSession;
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -29,26 +30,31 @@ public class GradeController {
     }
 
     private static Logger LOGGER = LogManager.getLogger(GradeController.class);
-    private Network network;
-    private Contract contract;
-    private byte[] result;
+    // Identity of logged in user is kept in session of each client, so requests of other users never act as them
+    public static final String USER_ATTRIBUTE = "user";
+    public static final String ORGANIZATION_ATTRIBUTE = "organization";
     private final ObjectMapper objectMapper;
-    Gateway.Builder builder;
+    private final GatewayPool gateways;
+    private volatile TransactionIntents intents;
 
 
-    public GradeController() throws IOException {
+    public GradeController(GatewayPool gateways) throws IOException {
         objectMapper = new ObjectMapper();
+        this.gateways = gateways;
     }
 
     @GetMapping("/logIn")
-    public void logIn(@RequestParam Organizations org, @RequestParam String userName) {
+    public void logIn(@RequestParam Organizations org, @RequestParam String userName, HttpSession session) {
         //Current location of connection file for organization
         Path networkConfigPath = Paths.get("../","test-network", "organizations", "peerOrganizations", org.name().toLowerCase() + ".example.com", "connection-" + org.name().toLowerCase() + ".yaml");
         try {
             Path walletPath = Paths.get(org.name().toLowerCase() + "Wallet");
             Wallet wallet = Wallets.newFileSystemWallet(walletPath);
-            builder = Gateway.createBuilder();
+            Gateway.Builder builder = Gateway.createBuilder();
             builder.identity(wallet, userName).networkConfig(networkConfigPath).discovery(true);
+            gateways.register(org, userName, builder);
+            session.setAttribute(USER_ATTRIBUTE, userName);
+            session.setAttribute(ORGANIZATION_ATTRIBUTE, org);
             String returnMsg = "Successfully logged user " + userName;
             System.out.println(returnMsg);
         } catch (Exception e) {
@@ -77,12 +83,11 @@ public class GradeController {
 
 
     @GetMapping("/grades")
-    public List<Grade> getAllGrades() throws IOException {
+    public List<Grade> getAllGrades(HttpSession session) throws IOException {
         LOGGER.info("Getting all classes");
-        try (Gateway gateway = builder.connect()) {
-            network = gateway.getNetwork("mychannel");
-            contract = network.getContract("grades");
-            result = contract.evaluateTransaction("getAllGrades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "getAllGrades");
         } catch (Exception e) {
             LOGGER.error(e);
         }
@@ -92,25 +97,51 @@ public class GradeController {
     }
 
     @GetMapping("/grades/{gradeId}")
-    public Grade getGrade(@PathVariable String gradeId) throws IOException {
-        try (Gateway gateway = builder.connect()) {
+    public Grade getGrade(@PathVariable String gradeId, HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
             LOGGER.info("Get grade with id: " + gradeId);
-            network = gateway.getNetwork("mychannel");
-            contract = network.getContract("grades");
-            result = contract.evaluateTransaction("ReadGrade", gradeId);
+            result = invoke(session, "ReadGrade", gradeId);
         } catch (Exception e) {
             System.err.println(e);
         }
         return objectMapper.readValue(result, Grade.class);
     }
 
+    @GetMapping("/grades/{gradeId}/history")
+    public List<GradeModification> getGradeHistory(@PathVariable String gradeId,
+                                                   @RequestParam(defaultValue = "10") Integer limit,
+                                                   HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
+            LOGGER.info("Get history of grade with id: " + gradeId);
+            result = invoke(session, "getGradeHistory", gradeId, limit.toString());
+        } catch (Exception e) {
+            LOGGER.error(e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<GradeModification>>() {
+        });
+    }
+
+    @GetMapping(value = "/grades", params = "ids")
+    public List<GradeResult> getGrades(@RequestParam List<String> ids, HttpSession session) throws IOException {
+        LOGGER.info("Get grades with ids: " + ids);
+        byte[] result = null;
+        try {
+            result = invoke(session, "ReadGrades", objectMapper.writeValueAsString(ids));
+        } catch (Exception e) {
+            System.err.println(e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<GradeResult>>() {
+        });
+    }
+
     @GetMapping("/student")
-    public List<Grade> getGradesForStudent(@RequestParam String studentName) throws IOException {
+    public List<Grade> getGradesForStudent(@RequestParam String studentName, HttpSession session) throws IOException {
         LOGGER.info("Getting grades for " + studentName);
-        try (Gateway gateway = builder.connect()) {
-            network = gateway.getNetwork("mychannel");
-            contract = network.getContract("grades");
-            result = contract.evaluateTransaction("getGradesForStudent", studentName);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradesForStudent", studentName);
         } catch (Exception e) {
             LOGGER.error(e);
         }
@@ -119,15 +150,85 @@ public class GradeController {
         });
     }
 
+    @GetMapping("/subject")
+    public List<Grade> getGradesBySubject(@RequestParam String subject, HttpSession session) throws IOException {
+        LOGGER.info("Getting grades in " + subject);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradesBySubject", subject);
+        } catch (Exception e) {
+            LOGGER.error(e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        });
+    }
+
+    @GetMapping("/teacher")
+    public List<Grade> getGradesByTeacher(@RequestParam String teacher, HttpSession session) throws IOException {
+        LOGGER.info("Getting grades given by " + teacher);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradesByTeacher", teacher);
+        } catch (Exception e) {
+            LOGGER.error(e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<Grade>>() {
+        });
+    }
+
+    @GetMapping(value = "/grades", params = "pageSize")
+    public GradePage getAllGradesPage(@RequestParam Integer pageSize,
+                                      @RequestParam(defaultValue = "") String bookmark,
+                                      HttpSession session) throws IOException {
+        LOGGER.info("Getting page of all grades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "getAllGradesPage", pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e);
+        }
+        return objectMapper.readValue(result, GradePage.class);
+    }
+
+    @GetMapping(value = "/student", params = "pageSize")
+    public GradePage getGradesForStudentPage(@RequestParam String studentName,
+                                             @RequestParam Integer pageSize,
+                                             @RequestParam(defaultValue = "") String bookmark,
+                                             HttpSession session) throws IOException {
+        LOGGER.info("Getting page of grades for " + studentName);
+        byte[] result = null;
+        try {
+            result = invoke(session, "getGradesForStudentPage", studentName, pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e);
+        }
+        return objectMapper.readValue(result, GradePage.class);
+    }
+
+    @GetMapping("/grades/query")
+    public GradePage queryGrades(@RequestParam String selector,
+                                 @RequestParam Integer pageSize,
+                                 @RequestParam(defaultValue = "") String bookmark,
+                                 HttpSession session) throws IOException {
+        LOGGER.info("Querying grades with " + selector);
+        byte[] result = null;
+        try {
+            result = invoke(session, "queryGrades", selector, pageSize.toString(), bookmark);
+        } catch (Exception e) {
+            LOGGER.error(e);
+        }
+        return objectMapper.readValue(result, GradePage.class);
+    }
+
     @PostMapping("/grades")
     public Grade addGrade(@RequestParam Double gradeValue,
                           @RequestParam String subject,
                           @RequestParam String teacher,
-                          @RequestParam String student) throws IOException {
-        try (Gateway gateway = builder.connect()) {
-            network = gateway.getNetwork("mychannel");
-            contract = network.getContract("grades");
-            result = contract.submitTransaction("addGrade", gradeValue.toString(), subject, teacher, student);
+                          @RequestParam String student,
+                          HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
+            result = invoke(session, "addGrade", gradeValue.toString(), subject, teacher, student);
         } catch (Exception e) {
             System.err.println(e);
         }
@@ -135,17 +236,43 @@ public class GradeController {
         return objectMapper.readValue(result, Grade.class);
     }
 
+    @PostMapping("/grades/batch")
+    public List<GradeResult> addGrades(@RequestBody List<Grade> grades, HttpSession session) throws IOException {
+        LOGGER.info("Adding " + grades.size() + " grades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "addGrades", objectMapper.writeValueAsString(grades));
+        } catch (Exception e) {
+            System.err.println(e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<GradeResult>>() {
+        });
+    }
+
+    @PutMapping("/grades/batch")
+    public List<GradeResult> updateGrades(@RequestBody List<Grade> grades, HttpSession session) throws IOException {
+        LOGGER.info("Updating " + grades.size() + " grades");
+        byte[] result = null;
+        try {
+            result = invoke(session, "updateGrades", objectMapper.writeValueAsString(grades));
+        } catch (Exception e) {
+            System.err.println(e);
+        }
+        return objectMapper.readValue(result, new TypeReference<List<GradeResult>>() {
+        });
+    }
+
     @PutMapping("/grades/{gradeId}")
     public Grade updateGrade(@PathVariable String gradeId,
                              @RequestParam Double gradeValue,
                              @RequestParam String subject,
                              @RequestParam String teacher,
-                             @RequestParam String student) throws IOException {
-        try (Gateway gateway = builder.connect()) {
+                             @RequestParam String student,
+                             HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
             LOGGER.info("Update grade with: " + gradeId);
-            network = gateway.getNetwork("mychannel");
-            contract = network.getContract("grades");
-            result = contract.submitTransaction("UpdateGrade", gradeId, gradeValue.toString(), subject, teacher, student);
+            result = invoke(session, "UpdateGrade", gradeId, gradeValue.toString(), subject, teacher, student);
         } catch (Exception e) {
             System.err.println(e);
         }
@@ -155,13 +282,12 @@ public class GradeController {
 
 
     @DeleteMapping("/grades/{gradeId}")
-    public Grade deleteGrade(@PathVariable String gradeId) throws IOException {
-        try (Gateway gateway = builder.connect()) {
+    public Grade deleteGrade(@PathVariable String gradeId, HttpSession session) throws IOException {
+        byte[] result = null;
+        try {
             LOGGER.info("Delete grade with id: " + gradeId);
-            network = gateway.getNetwork("mychannel");
-            contract = network.getContract("grades");
-            result = contract.evaluateTransaction("ReadGrade", gradeId);
-            contract.submitTransaction("DeleteGrade", gradeId);
+            result = invoke(session, "ReadGrade", gradeId);
+            invoke(session, "DeleteGrade", gradeId);
         } catch (Exception e) {
             System.err.println(e);
         }
@@ -243,4 +369,43 @@ public class GradeController {
 
         System.out.printf("Successfully enrolled user \"%s\" and imported it into the wallet%n", userName);
     }
+
+    private byte[] invoke(HttpSession session, String transaction, String... args) throws Exception {
+        try (GatewayPool.Lease lease = lease(session)) {
+            Contract contract = lease.contract();
+            if (intents(contract).isEvaluated(transaction)) {
+                return contract.evaluateTransaction(transaction, args);
+            }
+            return contract.submitTransaction(transaction, args);
+        }
+    }
+
+    // Metadata is the same for every identity, so it is read once
+    private TransactionIntents intents(Contract contract) {
+        if (intents == null) {
+            try {
+                intents = TransactionIntents.load(contract);
+            } catch (Exception e) {
+                LOGGER.error("Cannot read metadata of chaincode, submitting all transactions", e);
+                return TransactionIntents.NONE;
+            }
+        }
+        return intents;
+    }
+
+    private GatewayPool.Lease lease(HttpSession session) {
+        return gateways.lease(organization(session), user(session));
+    }
+
+    private static String user(HttpSession session) {
+        String user = (String) session.getAttribute(USER_ATTRIBUTE);
+        if (user == null) {
+            throw new IllegalStateException("No user is logged in");
+        }
+        return user;
+    }
+
+    private static Organizations organization(HttpSession session) {
+        return (Organizations) session.getAttribute(ORGANIZATION_ATTRIBUTE);
+    }
 }
@@ -0,0 +1,84 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class GradeModification {
+    @JsonProperty("txId")
+    private String txId;
+    @JsonProperty("timestamp")
+    private Long timestamp;
+    @JsonProperty("isDelete")
+    private Boolean isDelete;
+    @JsonProperty("grade")
+    private Grade grade;
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public void setTxId(String txId) {
+        this.txId = txId;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Boolean getIsDelete() {
+        return isDelete;
+    }
+
+    public void setIsDelete(Boolean isDelete) {
+        this.isDelete = isDelete;
+    }
+
+    public Grade getGrade() {
+        return grade;
+    }
+
+    public void setGrade(Grade grade) {
+        this.grade = grade;
+    }
+
+    public GradeModification() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        GradeModification that = (GradeModification) o;
+
+        return Objects.equals(txId, that.txId)
+                && Objects.equals(timestamp, that.timestamp)
+                && Objects.equals(isDelete, that.isDelete)
+                && Objects.equals(grade, that.grade);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getTxId(), getTimestamp(), getIsDelete(), getGrade());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[txId = " + txId
+                + ", timestamp = " + timestamp
+                + ", isDelete = " + isDelete
+                + ", grade = " + grade + "]";
+    }
+
+}
@@ -0,0 +1,84 @@
+package application.java;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class GradeResult {
+    @JsonProperty("gradeId")
+    private String gradeId;
+    @JsonProperty("grade")
+    private Grade grade;
+    @JsonProperty("error")
+    private String error;
+    @JsonProperty("message")
+    private String message;
+
+    public String getGradeId() {
+        return gradeId;
+    }
+
+    public void setGradeId(String gradeId) {
+        this.gradeId = gradeId;
+    }
+
+    public Grade getGrade() {
+        return grade;
+    }
+
+    public void setGrade(Grade grade) {
+        this.grade = grade;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public GradeResult() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if ((o == null) || (getClass() != o.getClass())) {
+            return false;
+        }
+
+        GradeResult that = (GradeResult) o;
+
+        return Objects.equals(gradeId, that.gradeId)
+                && Objects.equals(grade, that.grade)
+                && Objects.equals(error, that.error)
+                && Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getGradeId(), getGrade(), getError(), getMessage());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode())
+                + "[gradeId = " + gradeId
+                + ", grade = " + grade
+                + ", error = " + error
+                + ", message = " + message + "]";
+    }
+
+}
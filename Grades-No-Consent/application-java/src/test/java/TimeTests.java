@@ -1,3 +1,5 @@
+import application.java.GatewayPool;
+import application.java.Grade;
 import application.java.GradeController;
 import application.java.Organizations;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -5,6 +7,7 @@ import io.swagger.v3.oas.models.security.SecurityScheme;
 import org.hyperledger.fabric.gateway.*;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
 
 import java.io.IOException;
 import java.nio.file.Path;
@@ -16,19 +19,20 @@ import java.util.List;
 
 public class TimeTests {
     private static GradeController tested;
+    private final MockHttpSession session = new MockHttpSession();
 
     @BeforeAll
     static void logAsUser() throws Exception {
-        tested = new GradeController();
+        tested = new GradeController(new GatewayPool());
     }
 
     @Test
     public void timeOfAdding() throws Exception {
-        tested.logIn(Organizations.ORG1, "admin");
+        tested.logIn(Organizations.ORG1, "admin", session);
         List<Long> listOfTimesWriting = new ArrayList<>();
         for (int i = 0; i <= 99; i++) {
             Instant start = Instant.now();
-            tested.addGrade(2.0, "Math", "teacher", "student");
+            tested.addGrade(2.0, "Math", "teacher", "student", session);
             Instant finish = Instant.now();
             Long timeElapsed = Duration.between(start, finish).toMillis();
             System.out.println("Time elapsed: " + timeElapsed);
@@ -39,7 +43,7 @@ public class TimeTests {
         List<Long> listOfTimesReading = new ArrayList<>();
         for (int i = 0; i <= 99; i++) {
             Instant start = Instant.now();
-            tested.getGrade("student" + i);
+            tested.getGrade("student" + i, session);
             Instant finish = Instant.now();
             Long timeElapsed = Duration.between(start, finish).toMillis();
             System.out.println("Time elapsed: " + timeElapsed);
@@ -49,6 +53,19 @@ public class TimeTests {
         System.out.println(listOfTimesReading);
     }
 
+    @Test
+    public void timeOfAddingInBatch() throws Exception {
+        tested.logIn(Organizations.ORG1, "admin", session);
+        List<Grade> grades = new ArrayList<>();
+        for (int i = 0; i <= 99; i++) {
+            grades.add(new Grade(null, 2.0, "Math", "teacher", "student"));
+        }
+        Instant start = Instant.now();
+        tested.addGrades(grades, session);
+        Instant finish = Instant.now();
+        System.out.println("Time elapsed: " + Duration.between(start, finish).toMillis());
+    }
+
     @Test
     public void timeOfWritingBunch() throws Exception {
         Network network;
@@ -0,0 +1,151 @@
+package application.java;
+
+import org.hyperledger.fabric.gateway.Contract;
+import org.hyperledger.fabric.gateway.Gateway;
+import org.hyperledger.fabric.gateway.Network;
+import org.hyperledger.fabric.sdk.Channel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GatewayPoolTest {
+
+    private final GatewayPool pool = new GatewayPool();
+    private final Gateway.Builder builder = mock(Gateway.Builder.class);
+    private final Gateway gateway = mock(Gateway.class);
+    private final Network network = mock(Network.class);
+    private final Channel channel = mock(Channel.class);
+    private final Contract contract = mock(Contract.class);
+
+    public GatewayPoolTest() {
+        when(builder.connect()).thenReturn(gateway);
+        when(gateway.getNetwork(GatewayPool.CHANNEL)).thenReturn(network);
+        when(network.getContract(GatewayPool.CHAINCODE)).thenReturn(contract);
+        when(network.getChannel()).thenReturn(channel);
+    }
+
+    @AfterEach
+    public void closePool() {
+        pool.close();
+    }
+
+    private Contract use(Organizations org, String userName) {
+        try (GatewayPool.Lease lease = pool.lease(org, userName)) {
+            return lease.contract();
+        }
+    }
+
+    @Test
+    public void shouldConnectOncePerIdentity() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+
+        assertThat(use(Organizations.ORG1, "Prof")).isSameAs(contract);
+        assertThat(use(Organizations.ORG1, "Prof")).isSameAs(contract);
+
+        verify(builder, times(1)).connect();
+        assertThat(pool.openConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotConnectUntilUsed() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+
+        verify(builder, never()).connect();
+        assertThat(pool.openConnections()).isEqualTo(0);
+    }
+
+    @Test
+    public void whenIdentityIsNotLoggedIn() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+
+        assertThatThrownBy(() -> pool.lease(Organizations.ORG2, "Prof"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("User Prof of ORG2 is not logged in");
+    }
+
+    @Test
+    public void shouldReconnectWhenChannelIsShutDown() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+        use(Organizations.ORG1, "Prof");
+        when(channel.isShutdown()).thenReturn(true);
+
+        use(Organizations.ORG1, "Prof");
+
+        verify(gateway).close();
+        verify(builder, times(2)).connect();
+    }
+
+    @Test
+    public void shouldCloseIdleGateways() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+        use(Organizations.ORG1, "Prof");
+
+        pool.closeIdle(Instant.now().minus(GatewayPool.IDLE_TIMEOUT));
+        assertThat(pool.openConnections()).isEqualTo(1);
+
+        pool.closeIdle(Instant.now().plus(GatewayPool.IDLE_TIMEOUT));
+        verify(gateway).close();
+        assertThat(pool.openConnections()).isEqualTo(0);
+
+        use(Organizations.ORG1, "Prof");
+        verify(builder, times(2)).connect();
+    }
+
+    @Test
+    public void shouldNotCloseLeasedGateway() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+        GatewayPool.Lease lease = pool.lease(Organizations.ORG1, "Prof");
+
+        pool.closeIdle(Instant.now().plus(GatewayPool.IDLE_TIMEOUT));
+        verify(gateway, never()).close();
+        assertThat(pool.openConnections()).isEqualTo(1);
+
+        lease.close();
+        pool.closeIdle(Instant.now().plus(GatewayPool.IDLE_TIMEOUT));
+        verify(gateway).close();
+    }
+
+    @Test
+    public void shouldCloseGatewayOfPreviousLogIn() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+        use(Organizations.ORG1, "Prof");
+
+        pool.register(Organizations.ORG1, "Prof", mock(Gateway.Builder.class));
+
+        verify(gateway).close();
+    }
+
+    @Test
+    public void shouldCloseGatewayOfPreviousLogInWhenLeaseIsClosed() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+        GatewayPool.Lease lease = pool.lease(Organizations.ORG1, "Prof");
+
+        pool.register(Organizations.ORG1, "Prof", mock(Gateway.Builder.class));
+        verify(gateway, never()).close();
+
+        lease.close();
+        lease.close();
+        verify(gateway, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseAllGatewaysOnShutdown() {
+        pool.register(Organizations.ORG1, "Prof", builder);
+        use(Organizations.ORG1, "Prof");
+
+        pool.close();
+
+        verify(gateway).close();
+        assertThatThrownBy(() -> pool.lease(Organizations.ORG1, "Prof"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
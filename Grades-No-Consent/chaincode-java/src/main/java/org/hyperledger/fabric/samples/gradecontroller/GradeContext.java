@@ -0,0 +1,14 @@
+package org.hyperledger.fabric.samples.gradecontroller;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+/**
+ * Transaction context of grades contract, keeps state cache for the whole
+ * transaction so store and helpers share reads, and author of transaction.
+ */
+public class GradeContext extends CachingContext {
+
+    public GradeContext(final ChaincodeStub stub) {
+        super(stub);
+    }
+}
@@ -10,13 +10,16 @@ import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
-import org.hyperledger.fabric.shim.ledger.KeyValue;
-import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
 
 import java.util.ArrayList;
 import java.util.List;
 
 
+/**
+ * Contract keeps no fields that change between calls, everything single
+ * transaction needs lives in its context, so one instance can serve many
+ * transactions executed by the shim at the same time.
+ */
 @Contract(
         name = "grades",
         info = @Info(
@@ -30,7 +33,9 @@ import java.util.List;
 @Default
 public class GradeController implements ContractInterface {
 
-    private final Genson genson = new Genson();
+    private final Genson genson = GradeCodec.genson();
+
+    private final GradeStore store;
 
     private enum GradeControllerErrors {
         GRADE_ALREADY_EXISTS,
@@ -38,6 +43,28 @@ public class GradeController implements ContractInterface {
         WRONG_GRADE_VALUE
     }
 
+    public GradeController() {
+        this(new NoConsent());
+    }
+
+    /**
+     * @param consent Strategy recording accesses to grades
+     */
+    GradeController(final ConsentStrategy consent) {
+        this.store = new GradeStore(ctx -> consent);
+    }
+
+    /**
+     * Create context that caches state reads for the whole transaction
+     *
+     * @param stub the transaction stub
+     * @return the transaction context
+     */
+    @Override
+    public Context createContext(final ChaincodeStub stub) {
+        return new GradeContext(stub);
+    }
+
     /**
      * Create some initial grades for students
      *
@@ -45,8 +72,6 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public void initGrades(final Context ctx) {
-        ChaincodeStub stub = ctx.getStub();
-
         addGradeWithId(ctx, "Filip Piwowarczyk0", GradeValue.TWO.value, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
         addGradeWithId(ctx, "Filip Piwowarczyk1", GradeValue.FIVE.value, "WF", "Adam Mickiewicz", "Filip Piwowarczyk");
         addGradeWithId(ctx, "Filip Piwowarczyk2", GradeValue.FOUR.value, "IT", "Adam Mickiewicz", "Filip Piwowarczyk");
@@ -66,22 +91,15 @@ public class GradeController implements ContractInterface {
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Grade addGrade(final Context ctx, final Double gradeValue,
                           final String subject, final String teacher, final String student) {
-        ChaincodeStub stub = ctx.getStub();
-
         if (!checkGradeValue(gradeValue)) {
             String errorMessage = String.format("Bad grade value %s", gradeValue);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_GRADE_VALUE.toString());
         }
 
-        String gradeId = getGradeId(ctx, student);
-
-
-        Grade grade = new Grade(gradeId, gradeValue, subject, teacher, student);
-        String gradeJSON = genson.serialize(grade);
-        stub.putStringState(gradeId, gradeJSON);
+        String gradeId = store.nextGradeId(ctx, student);
 
-        return grade;
+        return store.addGrade(ctx, GradeContext.author(ctx), new Grade(gradeId, gradeValue, null, subject, teacher, student));
     }
 
     /**
@@ -94,25 +112,40 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Grade addGradeWithId(final Context ctx, final String gradeId, final Double gradeValue, final String subject, final String teacher, final String student) {
-        ChaincodeStub stub = ctx.getStub();
-
         if (!checkGradeValue(gradeValue)) {
             String errorMessage = String.format("Bad grade value %s", gradeValue);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_GRADE_VALUE.toString());
         }
 
-        if (gradeExists(ctx, gradeId)) {
+        if (GradeStore.gradeExists(ctx, gradeId)) {
             String errorMessage = String.format("Grade with id %s already exists", gradeId);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeControllerErrors.GRADE_ALREADY_EXISTS.toString());
         }
 
-        Grade grade = new Grade(gradeId, gradeValue, subject, teacher, student);
-        String gradeJSON = genson.serialize(grade);
-        stub.putStringState(gradeId, gradeJSON);
+        return store.addGrade(ctx, GradeContext.author(ctx), new Grade(gradeId, gradeValue, null, subject, teacher, student));
+    }
 
-        return grade;
+    /**
+     * Adds all grades in one transaction. Rejected grades are reported in
+     * results and do not stop the other grades from being added.
+     *
+     * @param ctx        Context of app
+     * @param gradesJSON JSON array of grades, ids are assigned by chaincode
+     * @return Results for grades in order of array
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String addGrades(final Context ctx, final String gradesJSON) {
+        List<GradeResult> results = new ArrayList<GradeResult>();
+        for (Grade grade : store.parseGrades(gradesJSON, false)) {
+            try {
+                results.add(GradeResult.success(addGrade(ctx, grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent())));
+            } catch (ChaincodeException e) {
+                results.add(GradeStore.failure(null, e));
+            }
+        }
+        return genson.serialize(results);
     }
 
     /**
@@ -122,18 +155,28 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public Grade ReadGrade(final Context ctx, final String gradeId) {
-        ChaincodeStub stub = ctx.getStub();
-        String assetJSON = stub.getStringState(gradeId);
+        Grade grade = store.getGrade(ctx, gradeId);
+        return store.consent(ctx).recordAccess(ctx, GradeContext.author(ctx), "READ", grade);
+    }
 
-        if (assetJSON == null || assetJSON.isEmpty()) {
-            String errorMessage = String.format("Grade %s does not exist", gradeId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, GradeControllerErrors.GRADE_NOT_FOUND.toString());
+    /**
+     * @param ctx      Context of app
+     * @param gradeIds Ids of grades
+     * @return Result for every id in order of ids, GRADE_NOT_FOUND error for missing grades
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String ReadGrades(final Context ctx, final String[] gradeIds) {
+        StateCache state = GradeContext.state(ctx);
+        List<GradeResult> results = new ArrayList<GradeResult>();
+        for (String gradeId : gradeIds) {
+            byte[] gradeValue = state.getState(gradeId);
+            if (gradeValue.length == 0) {
+                results.add(GradeStore.notFound(gradeId));
+            } else {
+                results.add(GradeResult.success(GradeCodec.decode(gradeValue)));
+            }
         }
-
-
-        Grade grade = genson.deserialize(assetJSON, Grade.class);
-        return grade;
+        return genson.serialize(results);
     }
 
     /**
@@ -143,21 +186,46 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public String getGradesForStudent(final Context ctx, final String studentName) {
-        ChaincodeStub stub = ctx.getStub();
+        List<Grade> queryResults = store.readRange(ctx, studentName + "0", studentName + "999999");
 
-        List<Grade> queryResults = new ArrayList<Grade>();
-
-        QueryResultsIterator<KeyValue> results = stub.getStateByRange(studentName + "0", studentName + "999999");
+        store.consent(ctx).recordAccess(ctx, GradeContext.author(ctx), "READ", queryResults);
+        return GradeCodec.encodeAll(queryResults);
+    }
 
-        for (KeyValue result : results) {
-            Grade grade = genson.deserialize(result.getStringValue(), Grade.class);
-            queryResults.add(grade);
-            System.out.println(grade.toString());
-        }
+    /**
+     * @param ctx         Context of app
+     * @param studentName Student's name
+     * @param pageSize    Maximal number of grades in page
+     * @param bookmark    Bookmark returned with previous page, empty for first page
+     * @return Page of grades for student
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradesForStudentPage(final Context ctx, final String studentName, final int pageSize, final String bookmark) {
+        return genson.serialize(store.readRangePage(ctx, studentName + "0", studentName + "999999", pageSize, bookmark));
+    }
 
-        final String response = genson.serialize(queryResults);
+    /**
+     * @param ctx     Context of app
+     * @param subject Subject of grades
+     * @return All grades in subject
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradesBySubject(final Context ctx, final String subject) {
+        List<Grade> grades = store.readIndexedGrades(ctx, GradeStore.SUBJECT_INDEX, subject);
+        store.consent(ctx).recordScan(ctx, GradeContext.author(ctx), "READ", null, null, grades);
+        return GradeCodec.encodeAll(grades);
+    }
 
-        return response;
+    /**
+     * @param ctx     Context of app
+     * @param teacher Teacher that gave grades
+     * @return All grades given by teacher
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradesByTeacher(final Context ctx, final String teacher) {
+        List<Grade> grades = store.readIndexedGrades(ctx, GradeStore.TEACHER_INDEX, teacher);
+        store.consent(ctx).recordScan(ctx, GradeContext.author(ctx), "READ", null, null, grades);
+        return GradeCodec.encodeAll(grades);
     }
 
     /**
@@ -171,9 +239,7 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Grade UpdateGrade(final Context ctx, final String gradeId, final Double gradeValue, final String subject, final String teacher, final String student) {
-        ChaincodeStub stub = ctx.getStub();
-
-        if (!gradeExists(ctx, gradeId)) {
+        if (!GradeStore.gradeExists(ctx, gradeId)) {
             String errorMessage = String.format("Grade %s does not exist", gradeId);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeControllerErrors.GRADE_NOT_FOUND.toString());
@@ -185,11 +251,28 @@ public class GradeController implements ContractInterface {
             throw new ChaincodeException(errorMessage, GradeControllerErrors.WRONG_GRADE_VALUE.toString());
         }
 
-        Grade newGrade = new Grade(gradeId, gradeValue, subject, teacher, student);
-        String newAssetJSON = genson.serialize(newGrade);
-        stub.putStringState(gradeId, newAssetJSON);
+        return store.updateGrade(ctx, GradeContext.author(ctx), new Grade(gradeId, gradeValue, null, subject, teacher, student));
+    }
 
-        return newGrade;
+    /**
+     * Updates all grades in one transaction. Rejected grades are reported in
+     * results and do not stop the other grades from being updated.
+     *
+     * @param ctx        Context of app
+     * @param gradesJSON JSON array of grades with ids
+     * @return Results for grades in order of array
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String updateGrades(final Context ctx, final String gradesJSON) {
+        List<GradeResult> results = new ArrayList<GradeResult>();
+        for (Grade grade : store.parseGrades(gradesJSON, true)) {
+            try {
+                results.add(GradeResult.success(UpdateGrade(ctx, grade.getGradeId(), grade.getGrade(), grade.getSubject(), grade.getTeacher(), grade.getStudent())));
+            } catch (ChaincodeException e) {
+                results.add(GradeStore.failure(grade.getGradeId(), e));
+            }
+        }
+        return genson.serialize(results);
     }
 
     /**
@@ -198,15 +281,27 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public void DeleteGrade(final Context ctx, final String gradeId) {
-        ChaincodeStub stub = ctx.getStub();
-
-        if (!gradeExists(ctx, gradeId)) {
+        if (!GradeStore.gradeExists(ctx, gradeId)) {
             String errorMessage = String.format("Grade %s does not exist", gradeId);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, GradeControllerErrors.GRADE_NOT_FOUND.toString());
         }
 
-        stub.delState(gradeId);
+        store.deleteGrade(ctx, GradeContext.author(ctx), gradeId);
+    }
+
+    /**
+     * Sets format of grades written from now on. Grades already in world
+     * state keep their format until they are updated, both formats are
+     * always readable. Compact grades cannot be found by CouchDB, so while
+     * compact format is set queryGrades evaluates selectors in chaincode.
+     *
+     * @param ctx    Context of app
+     * @param format JSON or COMPACT
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void setStateFormat(final Context ctx, final String format) {
+        store.setStateFormat(ctx, format);
     }
 
     /**
@@ -216,10 +311,63 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public boolean gradeExists(final Context ctx, final String gradeId) {
-        ChaincodeStub stub = ctx.getStub();
-        String assetJSON = stub.getStringState(gradeId);
+        return GradeStore.gradeExists(ctx, gradeId);
+    }
 
-        return (assetJSON != null && !assetJSON.isEmpty());
+    /**
+     * History of deleted grades is still returned.
+     *
+     * @param ctx     Context of app
+     * @param gradeId Id of grade
+     * @param limit   Maximal number of returned modifications
+     * @return Modifications of grade, newest first
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getGradeHistory(final Context ctx, final String gradeId, final int limit) {
+        return genson.serialize(store.readHistory(ctx, gradeId, limit));
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param student Student
+     * @return Count, sum and histogram of grades of student
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getStudentSummary(final Context ctx, final String student) {
+        return genson.serialize(store.readSummary(ctx, GradeStore.STUDENT, student));
+    }
+
+    /**
+     * @param ctx     Context of app
+     * @param subject Subject
+     * @return Count, sum and histogram of grades in subject
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getSubjectSummary(final Context ctx, final String subject) {
+        return genson.serialize(store.readSummary(ctx, GradeStore.SUBJECT, subject));
+    }
+
+    /**
+     * Recomputes all summaries from grades, needed once for grades added
+     * before summaries were kept.
+     *
+     * @param ctx Context of app
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void rebuildSummaries(final Context ctx) {
+        store.rebuildSummaries(ctx);
+    }
+
+    /**
+     * Folds summary deltas into summaries. Grade writes started meanwhile
+     * add new deltas, which makes this transaction fail phantom read check
+     * instead of them, so it is safe to retry at any time.
+     *
+     * @param ctx Context of app
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void compactAggregates(final Context ctx) {
+        store.compactSummaries(ctx);
     }
 
     /**
@@ -228,42 +376,44 @@ public class GradeController implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public String getAllGrades(final Context ctx) {
-        ChaincodeStub stub = ctx.getStub();
-
-        List<Grade> queryResults = new ArrayList<Grade>();
-
-        //To get all grades we are using getStateByRande with empty strings
+        //To get all grades we are using getStateByRange with empty strings
         // as arguments. It is interpreted as get all keys from beginning to end.
-        QueryResultsIterator<KeyValue> results = stub.getStateByRange("", "");
-
-        for (KeyValue result : results) {
-            Grade grade = genson.deserialize(result.getStringValue(), Grade.class);
-            queryResults.add(grade);
-            System.out.println(grade.toString());
-        }
+        List<Grade> queryResults = store.readRange(ctx, "", "");
 
-        final String response = genson.serialize(queryResults);
+        store.consent(ctx).recordScan(ctx, GradeContext.author(ctx), "READ", "", "", queryResults);
+        return GradeCodec.encodeAll(queryResults);
+    }
 
-        return response;
+    /**
+     * @param ctx      Context of app
+     * @param pageSize Maximal number of grades in page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of all grades
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String getAllGradesPage(final Context ctx, final int pageSize, final String bookmark) {
+        return genson.serialize(store.readRangePage(ctx, "", "", pageSize, bookmark));
     }
 
-    private String getGradeId(final Context ctx, final String student) {
-        int i = 0;
-        String output = student + i;
-        while (gradeExists(ctx, output)) {
-            i++;
-            output = student + i;
-        }
-        return output;
+    /**
+     * @param ctx      Context of app
+     * @param selector CouchDB selector, e.g. {"subject":"Math","grade":{"$gte":4.0}}
+     * @param pageSize Maximal number of grades in page
+     * @param bookmark Bookmark returned with previous page, empty for first page
+     * @return Page of grades matching selector
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String queryGrades(final Context ctx, final String selector, final int pageSize, final String bookmark) {
+        return genson.serialize(store.queryGrades(ctx, selector, pageSize, bookmark));
     }
 
     private boolean checkGradeValue(final Double value) {
-        return value.equals(2.0)
+        return value != null && (value.equals(2.0)
                 || value.equals(2.5)
                 || value.equals(3.0)
                 || value.equals(3.5)
                 || value.equals(4.0)
                 || value.equals(4.5)
-                || value.equals(5.0);
+                || value.equals(5.0));
     }
 }
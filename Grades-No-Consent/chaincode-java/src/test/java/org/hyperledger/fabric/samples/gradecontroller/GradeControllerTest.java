@@ -1,26 +1,150 @@
 package org.hyperledger.fabric.samples.gradecontroller;
 
+import org.hyperledger.fabric.contract.ClientIdentity;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.inOrder;
 
 public final class GradeControllerTest {
 
+    private static ChaincodeStub mockStub() {
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(stub.getTxId()).thenReturn("tx1");
+        when(stub.createCompositeKey(anyString(), ArgumentMatchers.<String>any())).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            String[] attributes = Arrays.copyOfRange(arguments, 1, arguments.length, String[].class);
+            return new CompositeKey((String) arguments[0], attributes);
+        });
+        when(stub.splitCompositeKey(anyString())).thenAnswer(invocation -> CompositeKey.parseCompositeKey(invocation.getArgument(0)));
+        // Shim reads strings through getState, so string values stubbed in tests are also returned as bytes
+        when(stub.getState(anyString())).thenAnswer(invocation -> {
+            String value = stub.getStringState(invocation.getArgument(0));
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        });
+        return stub;
+    }
+
+    private static GradeContext mockContext(final ChaincodeStub stub) {
+        GradeContext ctx = mock(GradeContext.class);
+        StateCache state = new StateCache(stub);
+        when(ctx.getStub()).thenReturn(stub);
+        when(ctx.getState()).thenReturn(state);
+        when(ctx.getAuthor()).thenReturn("Adam Mickiewicz");
+        return ctx;
+    }
+
+    /**
+     * @return Context of transaction signed by professor, stub is stubbed by test
+     */
+    private static Context mockSignedContext() throws Exception {
+        ChaincodeStub signer = mock(ChaincodeStub.class);
+        when(signer.getCreator()).thenReturn(TestIdentities.creator("professor"));
+        ClientIdentity identity = new ClientIdentity(signer);
+        Context ctx = mock(Context.class);
+        when(ctx.getClientIdentity()).thenReturn(identity);
+        return ctx;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryResultsIteratorWithMetadata<KeyValue> mockPage(final List<KeyValue> records, final String bookmark) throws Exception {
+        QueryResultsIteratorWithMetadata<KeyValue> results = mock(QueryResultsIteratorWithMetadata.class);
+        when(results.iterator()).thenReturn(records.iterator());
+        // protobuf package of the metadata differs between shim versions
+        Class<?> metadataType = QueryResultsIteratorWithMetadata.class.getMethod("getMetadata").getReturnType();
+        Object builder = metadataType.getMethod("newBuilder").invoke(null);
+        builder.getClass().getMethod("setFetchedRecordsCount", int.class).invoke(builder, records.size());
+        builder.getClass().getMethod("setBookmark", String.class).invoke(builder, bookmark);
+        Object metadata = builder.getClass().getMethod("build").invoke(builder);
+        when(results.getMetadata()).thenAnswer(invocation -> metadata);
+        return results;
+    }
+
+    // Plain iterator instead of mock, so results can be created while other stubbing is in progress
+    private static QueryResultsIterator<KeyValue> mockResults(final List<KeyValue> records) {
+        return new QueryResultsIterator<KeyValue>() {
+            @Override
+            public Iterator<KeyValue> iterator() {
+                return records.iterator();
+            }
+
+            @Override
+            public void close() {
+
+            }
+        };
+    }
+
+    private static String subjectKey(final String subject, final String student, final String gradeId) {
+        return new CompositeKey(GradeStore.SUBJECT_INDEX, subject, student, gradeId).toString();
+    }
+
+    private static String teacherKey(final String teacher, final String gradeId) {
+        return new CompositeKey(GradeStore.TEACHER_INDEX, teacher, gradeId).toString();
+    }
+
+    private static String sequenceKey(final String student) {
+        return new CompositeKey(GradeStore.GRADE_SEQUENCE, student).toString();
+    }
+
+    private static String summaryKey(final String type, final String name) {
+        return new CompositeKey(GradeStore.SUMMARY_INDEX, type, name).toString();
+    }
+
+    private static KeyModification mockModification(final String txId, final long timestamp, final String value) {
+        KeyModification modification = mock(KeyModification.class);
+        when(modification.getTxId()).thenReturn(txId);
+        when(modification.getTimestamp()).thenReturn(Instant.ofEpochMilli(timestamp));
+        when(modification.isDeleted()).thenReturn(value.isEmpty());
+        when(modification.getValue()).thenReturn(value.getBytes(StandardCharsets.UTF_8));
+        when(modification.getStringValue()).thenReturn(value);
+        return modification;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryResultsIterator<KeyModification> mockHistory(final Iterator<KeyModification> modifications) {
+        QueryResultsIterator<KeyModification> results = mock(QueryResultsIterator.class);
+        when(results.iterator()).thenReturn(modifications);
+        return results;
+    }
+
+    private static String summaryDeltaKey(final String type, final String name) {
+        return new CompositeKey(GradeStore.SUMMARY_DELTA_INDEX, type, name, "tx1").toString();
+    }
+
+    private static String stateFormatKey() {
+        return new CompositeKey(GradeStore.CONFIG, GradeStore.STATE_FORMAT).toString();
+    }
+
     private final class MockKeyValue implements KeyValue {
 
         private final String key;
@@ -84,9 +208,9 @@ public final class GradeControllerTest {
     }
 
     @Test
-    public void invokeUnknownTransaction() {
+    public void invokeUnknownTransaction() throws Exception {
         GradeController contract = new GradeController();
-        Context ctx = mock(Context.class);
+        Context ctx = mockSignedContext();
 
         Throwable thrown = catchThrowable(() -> {
             contract.unknownTransaction(ctx);
@@ -100,24 +224,24 @@ public final class GradeControllerTest {
     class InvokeReadGradeTransaction {
 
         @Test
-        public void whenGradeExists() {
+        public void whenGradeExists() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
 
             Grade grade = contract.ReadGrade(ctx, "Filip Piwowarczyk0");
 
-            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 2.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
         }
 
         @Test
-        public void whenGradeDoesNotExist() {
+        public void whenGradeDoesNotExist() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
 
@@ -133,10 +257,10 @@ public final class GradeControllerTest {
     }
 
     @Test
-    void invokeInitGradesTransaction() {
+    void invokeInitGradesTransaction() throws Exception {
         GradeController contract = new GradeController();
-        Context ctx = mock(Context.class);
-        ChaincodeStub stub = mock(ChaincodeStub.class);
+        Context ctx = mockSignedContext();
+        ChaincodeStub stub = mockStub();
         when(ctx.getStub()).thenReturn(stub);
 
         contract.initGrades(ctx);
@@ -149,10 +273,10 @@ public final class GradeControllerTest {
     }
 
     @Test
-    void shouldGenerateId() {
+    void shouldGenerateId() throws Exception {
         GradeController controller = new GradeController();
-        Context ctx = mock(Context.class);
-        ChaincodeStub stub = mock(ChaincodeStub.class);
+        Context ctx = mockSignedContext();
+        ChaincodeStub stub = mockStub();
         when(ctx.getStub()).thenReturn(stub);
         when(stub.getStringState("Filip Piwowarczyk0"))
                 .thenReturn("smth");
@@ -163,18 +287,49 @@ public final class GradeControllerTest {
 
         Grade grade = controller.addGrade(ctx, 3.0, "Math", "John Doe", "Filip Piwowarczyk");
 
-        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk3", 3.0, "Math", "John Doe", "Filip Piwowarczyk"));
+        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk3", 3.0, null, "Math", "John Doe", "Filip Piwowarczyk"));
+        verify(stub).putStringState(sequenceKey("Filip Piwowarczyk"), "4");
+    }
 
+    @Test
+    void shouldPassSignerToConsentStrategy() throws Exception {
+        ConsentStrategy consent = mock(ConsentStrategy.class);
+        when(consent.recordCreation(any(), any(), any())).thenAnswer(invocation -> invocation.getArgument(2));
+        GradeController controller = new GradeController(consent);
+        Context ctx = mockSignedContext();
+        ChaincodeStub stub = mockStub();
+        when(ctx.getStub()).thenReturn(stub);
+        when(stub.getStringState(anyString())).thenReturn("");
+
+        Grade grade = controller.addGrade(ctx, 3.0, "Math", "John Doe", "Filip Piwowarczyk");
+
+        verify(consent).recordCreation(ctx, "Adam Mickiewicz", grade);
+    }
+
+    @Test
+    void shouldGenerateIdFromSequence() throws Exception {
+        GradeController controller = new GradeController();
+        Context ctx = mockSignedContext();
+        ChaincodeStub stub = mockStub();
+        when(ctx.getStub()).thenReturn(stub);
+        when(stub.getStringState(sequenceKey("Filip Piwowarczyk")))
+                .thenReturn("7");
+
+        Grade grade = controller.addGrade(ctx, 3.0, "Math", "John Doe", "Filip Piwowarczyk");
+
+        assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk7", 3.0, null, "Math", "John Doe", "Filip Piwowarczyk"));
+        verify(stub, never()).getStringState("Filip Piwowarczyk0");
+        verify(stub).putStringState(sequenceKey("Filip Piwowarczyk"), "8");
     }
 
     @Nested
     class InvokeCreateGradeTransaction {
 
         @Test
-        public void whenGradeExists() {
+        public void whenGradeExists() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"stuednt\": \"Filip Piwowarczyk\"}");
@@ -189,10 +344,10 @@ public final class GradeControllerTest {
         }
 
         @Test
-        public void whenAssignWrongValue() {
+        public void whenAssignWrongValue() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("");
@@ -207,10 +362,10 @@ public final class GradeControllerTest {
         }
 
         @Test
-        void invokeGetAllAssetsTransaction() {
+        void invokeGetAllAssetsTransaction() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStateByRange("", "")).thenReturn(new MockGradeResultsIterator());
 
@@ -226,10 +381,10 @@ public final class GradeControllerTest {
 
 
         @Test
-        void invokeGetGradesForStudent() {
+        void invokeGetGradesForStudent() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStateByRange("Filip Piwowarczyk0", "Filip Piwowarczyk999999")).thenReturn(new MockGradeResultsIterator());
 
@@ -244,28 +399,640 @@ public final class GradeControllerTest {
         }
     }
 
+    @Nested
+    class StateFormatTransactions {
+
+        private final Grade filip0 = new Grade("Filip Piwowarczyk0", 2.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+        private final String filip0JSON = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        private KeyValue compactKeyValue(final Grade grade) {
+            KeyValue keyValue = mock(KeyValue.class);
+            when(keyValue.getKey()).thenReturn(grade.getGradeId());
+            when(keyValue.getValue()).thenReturn(CompactGradeCodec.encode(grade));
+            return keyValue;
+        }
+
+        @Test
+        void invokeSetStateFormat() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            contract.setStateFormat(ctx, "COMPACT");
+
+            verify(stub).putStringState(stateFormatKey(), "COMPACT");
+        }
+
+        @Test
+        void whenStateFormatIsUnknown() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            Throwable thrown = catchThrowable(() -> contract.setStateFormat(ctx, "XML"));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad state format XML");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_STATE_FORMAT".getBytes());
+            verify(stub, never()).putStringState(eq(stateFormatKey()), anyString());
+        }
+
+        @Test
+        void shouldWriteJsonByDefault() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            contract.addGradeWithId(ctx, "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putStringState("Filip Piwowarczyk0", filip0JSON);
+            verify(stub, never()).putState(eq("Filip Piwowarczyk0"), any());
+        }
+
+        @Test
+        void shouldWriteCompactGradesWhenConfigured() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState(stateFormatKey())).thenReturn("COMPACT");
+
+            contract.addGradeWithId(ctx, "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putState("Filip Piwowarczyk0", CompactGradeCodec.encode(filip0));
+            verify(stub, never()).putStringState(eq("Filip Piwowarczyk0"), anyString());
+        }
+
+        @Test
+        void shouldReadCompactAndJsonGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            doReturn(CompactGradeCodec.encode(filip0)).when(stub).getState("Filip Piwowarczyk0");
+            when(stub.getStringState("Filip Piwowarczyk1")).thenReturn(filip0JSON.replace("Filip Piwowarczyk0", "Filip Piwowarczyk1"));
+
+            Grade compact = contract.ReadGrade(ctx, "Filip Piwowarczyk0");
+            Grade json = contract.ReadGrade(ctx, "Filip Piwowarczyk1");
+
+            assertThat(compact).isEqualTo(filip0);
+            assertThat(json.getGradeId()).isEqualTo("Filip Piwowarczyk1");
+        }
+
+        @Test
+        void shouldReturnJsonOfCompactGrades() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIterator<KeyValue> results = mockResults(List.of(compactKeyValue(filip0)));
+            when(stub.getStateByRange("Filip Piwowarczyk0", "Filip Piwowarczyk999999")).thenReturn(results);
+
+            String grades = contract.getGradesForStudent(ctx, "Filip Piwowarczyk");
+
+            assertThat(grades).isEqualTo("[" + filip0JSON + "]");
+        }
+
+        @Test
+        void shouldFilterCompactGradesInChaincode() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getStringState(stateFormatKey())).thenReturn("COMPACT");
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(compactKeyValue(filip0)), "");
+            when(stub.getStateByRangeWithPagination("", "", 1, "")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "{\"subject\":\"Math\"}", 1, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + filip0JSON + "]}");
+            verify(stub, never()).getQueryResultWithPagination(anyString(), anyInt(), anyString());
+        }
+    }
+
+    @Nested
+    class GradeHistory {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String filip0Updated = "{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        @Test
+        void invokeGetGradeHistory() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            QueryResultsIterator<KeyModification> history = mockHistory(List.of(
+                    mockModification("tx3", 1600000003000L, ""),
+                    mockModification("tx2", 1600000002000L, filip0Updated),
+                    mockModification("tx1", 1600000001000L, filip0)).iterator());
+            when(stub.getHistoryForKey("Filip Piwowarczyk0")).thenReturn(history);
+
+            String result = contract.getGradeHistory(ctx, "Filip Piwowarczyk0", 10);
+
+            assertThat(result).isEqualTo("[{\"grade\":null,\"isDelete\":true,\"timestamp\":1600000003000,\"txId\":\"tx3\"},"
+                    + "{\"grade\":" + filip0Updated + ",\"isDelete\":false,\"timestamp\":1600000002000,\"txId\":\"tx2\"},"
+                    + "{\"grade\":" + filip0 + ",\"isDelete\":false,\"timestamp\":1600000001000,\"txId\":\"tx1\"}]");
+        }
+
+        @Test
+        void shouldStopReadingHistoryAtLimit() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            Iterator<KeyModification> modifications = List.of(
+                    mockModification("tx2", 1600000002000L, filip0Updated),
+                    mockModification("tx1", 1600000001000L, filip0)).iterator();
+            QueryResultsIterator<KeyModification> history = mockHistory(modifications);
+            when(stub.getHistoryForKey("Filip Piwowarczyk0")).thenReturn(history);
+
+            String result = contract.getGradeHistory(ctx, "Filip Piwowarczyk0", 1);
+
+            assertThat(result).isEqualTo("[{\"grade\":" + filip0Updated + ",\"isDelete\":false,\"timestamp\":1600000002000,\"txId\":\"tx2\"}]");
+            assertThat(modifications.hasNext()).isTrue();
+        }
+
+        @Test
+        void whenLimitIsNotPositive() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            Throwable thrown = catchThrowable(() -> contract.getGradeHistory(ctx, "Filip Piwowarczyk0", 0));
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Limit 0 is not positive");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_LIMIT".getBytes());
+            verify(stub, never()).getHistoryForKey(anyString());
+        }
+    }
+
+    @Nested
+    class GradeSummaries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String filip1 = "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String oneTwo = "{\"count\":1,\"histogram\":[1,0,0,0,0,0,0],\"sum\":2.0}";
+        private final String oneFour = "{\"count\":1,\"histogram\":[0,0,0,0,1,0,0],\"sum\":4.0}";
+        private final String minusTwo = "{\"count\":-1,\"histogram\":[-1,0,0,0,0,0,0],\"sum\":-2.0}";
+
+        @Test
+        void shouldAddGradeToSummaries() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            contract.addGradeWithId(ctx, "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), oneTwo);
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "Math"), oneTwo);
+            verify(stub, never()).getStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"));
+            verify(stub, never()).getStringState(summaryKey(GradeStore.SUBJECT, "Math"));
+        }
+
+        @Test
+        void shouldMoveGradeBetweenBucketsOnUpdate() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.UpdateGrade(ctx, "Filip Piwowarczyk0", 4.0, "PE", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            InOrder inOrder = inOrder(stub);
+            inOrder.verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), minusTwo);
+            inOrder.verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"),
+                    "{\"count\":0,\"histogram\":[-1,0,0,0,1,0,0],\"sum\":2.0}");
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "Math"), minusTwo);
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "PE"), oneFour);
+        }
+
+        @Test
+        void shouldRemoveGradeFromSummariesOnDelete() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.DeleteGrade(ctx, "Filip Piwowarczyk0");
+
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), minusTwo);
+            verify(stub).putStringState(summaryDeltaKey(GradeStore.SUBJECT, "Math"), minusTwo);
+        }
+
+        @Test
+        void shouldDropDeltaWhichCancelsOut() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.UpdateGrade(ctx, "Filip Piwowarczyk0", 2.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).delState(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"));
+            verify(stub).delState(summaryDeltaKey(GradeStore.SUBJECT, "Math"));
+        }
+
+        @Test
+        void invokeGetSummaries() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"))).thenReturn(oneTwo);
+            QueryResultsIterator<KeyValue> studentDeltas = mockResults(List.of(
+                    new MockKeyValue(new CompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT, "Filip Piwowarczyk", "tx0").toString(), minusTwo),
+                    new MockKeyValue(summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk"), oneFour)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT, "Filip Piwowarczyk"))
+                    .thenReturn(studentDeltas);
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.SUBJECT, "Math"))
+                    .thenReturn(mockResults(List.of()));
+
+            assertThat(contract.getStudentSummary(ctx, "Filip Piwowarczyk")).isEqualTo(oneFour);
+            assertThat(contract.getSubjectSummary(ctx, "Math"))
+                    .isEqualTo("{\"count\":0,\"histogram\":[0,0,0,0,0,0,0],\"sum\":0.0}");
+        }
+
+        @Test
+        void invokeRebuildSummaries() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            String staleKey = summaryKey(GradeStore.SUBJECT, "History");
+            QueryResultsIterator<KeyValue> students = mockResults(List.of());
+            QueryResultsIterator<KeyValue> subjects = mockResults(List.of(new MockKeyValue(staleKey, oneTwo)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_INDEX, GradeStore.STUDENT)).thenReturn(students);
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_INDEX, GradeStore.SUBJECT)).thenReturn(subjects);
+            String staleDeltaKey = summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk");
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(staleDeltaKey, minusTwo))));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.SUBJECT))
+                    .thenReturn(mockResults(List.of()));
+            QueryResultsIterator<KeyValue> grades = mockResults(List.of(
+                    new MockKeyValue("Filip Piwowarczyk0", filip0),
+                    new MockKeyValue("Filip Piwowarczyk1", filip1)));
+            when(stub.getStateByRange("", "")).thenReturn(grades);
+
+            contract.rebuildSummaries(ctx);
+
+            verify(stub).delState(staleKey);
+            verify(stub).delState(staleDeltaKey);
+            verify(stub).putStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"),
+                    "{\"count\":2,\"histogram\":[1,0,0,0,0,1,0],\"sum\":6.5}");
+            verify(stub).putStringState(summaryKey(GradeStore.SUBJECT, "Math"), oneTwo);
+            verify(stub).putStringState(summaryKey(GradeStore.SUBJECT, "PE"),
+                    "{\"count\":1,\"histogram\":[0,0,0,0,0,1,0],\"sum\":4.5}");
+        }
+
+        @Test
+        void invokeCompactAggregates() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            String studentDelta0 = new CompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT, "Filip Piwowarczyk", "tx0").toString();
+            String studentDelta1 = summaryDeltaKey(GradeStore.STUDENT, "Filip Piwowarczyk");
+            String subjectDelta = summaryDeltaKey(GradeStore.SUBJECT, "Math");
+            when(stub.getStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"))).thenReturn(oneTwo);
+            when(stub.getStringState(summaryKey(GradeStore.SUBJECT, "Math"))).thenReturn(oneTwo);
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.STUDENT))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(studentDelta0, minusTwo), new MockKeyValue(studentDelta1, oneFour))));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUMMARY_DELTA_INDEX, GradeStore.SUBJECT))
+                    .thenReturn(mockResults(List.of(new MockKeyValue(subjectDelta, minusTwo))));
+
+            contract.compactAggregates(ctx);
+
+            verify(stub).delState(studentDelta0);
+            verify(stub).delState(studentDelta1);
+            verify(stub).delState(subjectDelta);
+            verify(stub).putStringState(summaryKey(GradeStore.STUDENT, "Filip Piwowarczyk"), oneFour);
+            verify(stub).delState(summaryKey(GradeStore.SUBJECT, "Math"));
+        }
+    }
+
+    @Nested
+    class CachedState {
+
+        @Test
+        void shouldReadGradeOnceInUpdateGrade() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState("Filip Piwowarczyk0"))
+                    .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
+
+            contract.UpdateGrade(ctx, "Filip Piwowarczyk0", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+            contract.ReadGrade(ctx, "Filip Piwowarczyk0");
+
+            verify(stub, times(1)).getStringState("Filip Piwowarczyk0");
+        }
+
+        @Test
+        void shouldSeeOwnWritesWhenAddingGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            Grade first = contract.addGrade(ctx, 3.0, "Math", "John Doe", "Filip Piwowarczyk");
+            Grade second = contract.addGrade(ctx, 4.0, "Math", "John Doe", "Filip Piwowarczyk");
+
+            assertThat(first.getGradeId()).isEqualTo("Filip Piwowarczyk0");
+            assertThat(second.getGradeId()).isEqualTo("Filip Piwowarczyk1");
+            verify(stub, times(1)).getStringState(sequenceKey("Filip Piwowarczyk"));
+        }
+    }
+
+    @Nested
+    class PaginatedQueries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String filip1 = "{\"grade\":3.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        @Test
+        void invokeGetAllGradesPage() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk0", filip0), new MockKeyValue("Filip Piwowarczyk1", filip1)), "Filip Piwowarczyk2");
+            when(stub.getStateByRangeWithPagination("", "", 2, "")).thenReturn(results);
+
+            String page = contract.getAllGradesPage(ctx, 2, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"Filip Piwowarczyk2\",\"fetchedRecordsCount\":2,\"records\":[" + filip0 + "," + filip1 + "]}");
+        }
+
+        @Test
+        void invokeGetGradesForStudentPage() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk1", filip1)), "");
+            when(stub.getStateByRangeWithPagination("Filip Piwowarczyk0", "Filip Piwowarczyk999999", 1, "Filip Piwowarczyk1"))
+                    .thenReturn(results);
+
+            String page = contract.getGradesForStudentPage(ctx, "Filip Piwowarczyk", 1, "Filip Piwowarczyk1");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + filip1 + "]}");
+        }
+    }
+
+    @Nested
+    class IndexedQueries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String ola0 = "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        @Test
+        void invokeGetGradesBySubject() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIterator<KeyValue> results = mockResults(List.of(
+                    new MockKeyValue(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE),
+                    new MockKeyValue(subjectKey("Math", "Ola Piwowarczyk", "Ola Piwowarczyk0"), GradeStore.INDEX_VALUE)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.SUBJECT_INDEX, "Math")).thenReturn(results);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Ola Piwowarczyk0")).thenReturn(ola0);
+
+            String grades = contract.getGradesBySubject(ctx, "Math");
+
+            assertThat(grades).isEqualTo("[" + filip0 + "," + ola0 + "]");
+        }
+
+        @Test
+        void invokeGetGradesByTeacher() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIterator<KeyValue> results = mockResults(List.of(
+                    new MockKeyValue(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE),
+                    new MockKeyValue(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk9"), GradeStore.INDEX_VALUE)));
+            when(stub.getStateByPartialCompositeKey(GradeStore.TEACHER_INDEX, "Adam Mickiewicz")).thenReturn(results);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+            when(stub.getStringState("Filip Piwowarczyk9")).thenReturn("");
+
+            String grades = contract.getGradesByTeacher(ctx, "Adam Mickiewicz");
+
+            assertThat(grades).isEqualTo("[" + filip0 + "]");
+        }
+
+        @Test
+        void shouldIndexAddedGrade() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+
+            contract.addGrade(ctx, 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
+
+            verify(stub).putStringState(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE);
+            verify(stub).putStringState(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE);
+        }
+
+        @Test
+        void shouldMoveChangedIndexOnUpdate() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.UpdateGrade(ctx, "Filip Piwowarczyk0", 3.0, "Math", "Adam Dabrowski", "Filip Piwowarczyk");
+
+            verify(stub).delState(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"));
+            verify(stub).putStringState(teacherKey("Adam Dabrowski", "Filip Piwowarczyk0"), GradeStore.INDEX_VALUE);
+            verify(stub, never()).delState(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"));
+            verify(stub, never()).putStringState(eq(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0")), anyString());
+        }
+
+        @Test
+        void shouldRemoveIndexOnDelete() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn(filip0);
+
+            contract.DeleteGrade(ctx, "Filip Piwowarczyk0");
+
+            verify(stub).delState("Filip Piwowarczyk0");
+            verify(stub).delState(subjectKey("Math", "Filip Piwowarczyk", "Filip Piwowarczyk0"));
+            verify(stub).delState(teacherKey("Adam Mickiewicz", "Filip Piwowarczyk0"));
+        }
+    }
+
+    @Nested
+    class RichQueries {
+
+        private final String filip0 = "{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String filip1 = "{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String filip2 = "{\"grade\":4.5,\"gradeId\":\"Filip Piwowarczyk2\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+        private final String ola0 = "{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}";
+
+        @Test
+        void invokeQueryGradesInCouchDB() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(
+                    List.of(new MockKeyValue("Filip Piwowarczyk0", filip0)), "g1AAAA");
+            when(stub.getQueryResultWithPagination(anyString(), eq(1), eq(""))).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "{\"subject\":\"Math\"}", 1, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"g1AAAA\",\"fetchedRecordsCount\":1,\"records\":[" + filip0 + "]}");
+            verify(stub).getQueryResultWithPagination(
+                    "{\"selector\":{\"subject\":\"Math\",\"gradeId\":{\"$exists\":true},\"grade\":{\"$exists\":true}}}", 1, "");
+        }
+
+        @Test
+        void invokeQueryGradesInLevelDB() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getQueryResultWithPagination(anyString(), eq(3), eq("")))
+                    .thenThrow(new RuntimeException("ExecuteQuery not supported for leveldb"));
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue("Filip Piwowarczyk0", filip0),
+                    new MockKeyValue("Filip Piwowarczyk1", filip1),
+                    new MockKeyValue("Filip Piwowarczyk2", filip2)), "Ola Piwowarczyk0");
+            when(stub.getStateByRangeWithPagination("", "", 3, "")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "{\"subject\":\"Math\",\"grade\":{\"$gte\":4}}", 3, "");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"range:Ola Piwowarczyk0\",\"fetchedRecordsCount\":3,\"records\":[" + filip2 + "]}");
+        }
+
+        @Test
+        void shouldContinueRangeBookmarkInChaincode() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIteratorWithMetadata<KeyValue> results = mockPage(List.of(
+                    new MockKeyValue("Ola Piwowarczyk0", ola0)), "");
+            when(stub.getStateByRangeWithPagination("", "", 3, "Ola Piwowarczyk0")).thenReturn(results);
+
+            String page = contract.queryGrades(ctx, "{\"subject\":\"Math\",\"grade\":{\"$gte\":4}}", 3, "range:Ola Piwowarczyk0");
+
+            assertThat(page).isEqualTo("{\"bookmark\":\"\",\"fetchedRecordsCount\":1,\"records\":[" + ola0 + "]}");
+            verify(stub, never()).getQueryResultWithPagination(anyString(), anyInt(), anyString());
+        }
+
+        @Test
+        void whenQueryGradesWithUnsupportedOperator() throws Exception {
+            GradeController contract = new GradeController();
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
+            when(ctx.getStub()).thenReturn(stub);
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.queryGrades(ctx, "{\"subject\":{\"$regex\":\"^M\"}}", 1, "");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Bad selector {\"subject\":{\"$regex\":\"^M\"}}: Unsupported operator $regex");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_SELECTOR".getBytes());
+        }
+    }
+
+    @Nested
+    class BatchTransactions {
+
+        @Test
+        void invokeAddGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            String results = contract.addGrades(ctx, "["
+                    + "{\"grade\":4.0,\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"},"
+                    + "{\"grade\":3.2,\"subject\":\"PE\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"},"
+                    + "{\"grade\":5.0,\"subject\":\"IT\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"}]");
+
+            assertThat(results).isEqualTo("["
+                    + "{\"error\":null,\"grade\":{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null},"
+                    + "{\"error\":\"WRONG_GRADE_VALUE\",\"grade\":null,\"gradeId\":null,\"message\":\"Bad grade value 3.2\"},"
+                    + "{\"error\":null,\"grade\":{\"grade\":5.0,\"gradeId\":\"Filip Piwowarczyk1\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"IT\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk1\",\"message\":null}]");
+            verify(stub, times(1)).getStringState(sequenceKey("Filip Piwowarczyk"));
+            verify(stub).putStringState(sequenceKey("Filip Piwowarczyk"), "2");
+        }
+
+        @Test
+        void invokeUpdateGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
+
+            String results = contract.updateGrades(ctx, "[{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk9\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}]");
+
+            assertThat(results).isEqualTo("["
+                    + "{\"error\":null,\"grade\":{\"grade\":4.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null},"
+                    + "{\"error\":\"GRADE_NOT_FOUND\",\"grade\":null,\"gradeId\":\"Filip Piwowarczyk9\",\"message\":\"Grade Filip Piwowarczyk9 does not exist\"}]");
+        }
+
+        @Test
+        void whenGradesAreMalformed() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.updateGrades(ctx, "[{\"grade\":4.0,\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\",\"student\":\"Filip Piwowarczyk\"}]");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause();
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("WRONG_GRADES_FORMAT".getBytes());
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+    }
+
+    @Nested
+    class ReadGradesTransaction {
+
+        @Test
+        void invokeReadGrades() {
+            GradeController contract = new GradeController();
+            ChaincodeStub stub = mockStub();
+            GradeContext ctx = mockContext(stub);
+            when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
+            when(stub.getStringState("Ola Piwowarczyk0")).thenReturn("{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"}");
+
+            String results = contract.ReadGrades(ctx, new String[]{"Filip Piwowarczyk0", "Filip Piwowarczyk9", "Ola Piwowarczyk0"});
+
+            assertThat(results).isEqualTo("[{\"error\":null,\"grade\":{\"grade\":2.0,\"gradeId\":\"Filip Piwowarczyk0\",\"student\":\"Filip Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Filip Piwowarczyk0\",\"message\":null},"
+                    + "{\"error\":\"GRADE_NOT_FOUND\",\"grade\":null,\"gradeId\":\"Filip Piwowarczyk9\",\"message\":\"Grade Filip Piwowarczyk9 does not exist\"},"
+                    + "{\"error\":null,\"grade\":{\"grade\":4.0,\"gradeId\":\"Ola Piwowarczyk0\",\"student\":\"Ola Piwowarczyk\",\"subject\":\"Math\",\"teacher\":\"Adam Mickiewicz\"},\"gradeId\":\"Ola Piwowarczyk0\",\"message\":null}]");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+    }
+
     @Nested
     class UpdateGradeTransaction {
 
         @Test
-        public void whenGradeExists() {
+        public void whenGradeExists() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");
 
             Grade grade = contract.UpdateGrade(ctx, "Filip Piwowarczyk0", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk");
 
-            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 4.0, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
+            assertThat(grade).isEqualTo(new Grade("Filip Piwowarczyk0", 4.0, null, "Math", "Adam Mickiewicz", "Filip Piwowarczyk"));
         }
 
         @Test
-        public void whenGradeDoesNotExists() {
+        public void whenGradeDoesNotExists() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0")).thenReturn("");
 
@@ -279,10 +1046,10 @@ public final class GradeControllerTest {
         }
 
         @Test
-        void whenAssignWrongGradeValue() {
+        void whenAssignWrongGradeValue() throws Exception {
             GradeController contract = new GradeController();
-            Context ctx = mock(Context.class);
-            ChaincodeStub stub = mock(ChaincodeStub.class);
+            Context ctx = mockSignedContext();
+            ChaincodeStub stub = mockStub();
             when(ctx.getStub()).thenReturn(stub);
             when(stub.getStringState("Filip Piwowarczyk0"))
                     .thenReturn("{ \"gradeId\": \"Filip Piwowarczyk0\", \"grade\": 2.0, \"subject\": \"Math\", \"teacher\": \"Adam Mickiewicz\", \"student\": \"Filip Piwowarczyk\"}");